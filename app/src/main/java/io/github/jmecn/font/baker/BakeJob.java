@@ -0,0 +1,238 @@
+package io.github.jmecn.font.baker;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ImageRaster;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.FtFontCache;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+/**
+ * Bake a font with a preset.
+ *
+ * @author yanmaoyuan
+ */
+public class BakeJob implements Callable<BakeJob.Report> {
+
+    static Logger logger = LoggerFactory.getLogger(BakeJob.class);
+
+    /**
+     * Format of the baked metrics.
+     */
+    public enum Format {
+        /** BMFont text file, it can be loaded by the BitmapFont loader of jME. */
+        FNT,
+        /** FtFontCache entry, it is loaded by FtFontLoader with the same font and preset. */
+        BIN
+    }
+
+    /**
+     * Timing of a job.
+     */
+    public static final class Report {
+        private final String name;
+        private int glyphs;
+        private int pages;
+        private long generateNanos;
+        private long writeNanos;
+        private Exception error;
+
+        Report(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public Exception getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return String.format(Locale.ROOT, "%s: FAILED, %s", name, error);
+            }
+            return String.format(Locale.ROOT, "%s: %d glyphs, %d pages, generate %.1f ms, write %.1f ms",
+                    name, glyphs, pages, generateNanos / 1e6, writeNanos / 1e6);
+        }
+    }
+
+    private final File font;
+    private final File preset;
+    private final Properties properties;
+    private final File output;
+    private final Format format;
+
+    public BakeJob(File font, File preset, Properties properties, File output, Format format) {
+        this.font = font;
+        this.preset = preset;
+        this.properties = properties;
+        this.output = output;
+        this.format = format;
+    }
+
+    /**
+     * @return the name of the baked files, e.g. FreeSerif-normal16
+     */
+    public String getName() {
+        return baseName(font) + "-" + baseName(preset);
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    @Override
+    public Report call() {
+        Report report = new Report(getName());
+        try {
+            bake(report);
+        } catch (Exception e) {
+            logger.error("Failed to bake {}", report.getName(), e);
+            report.error = e;
+        }
+        return report;
+    }
+
+    private void bake(Report report) throws IOException {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.loadProperties(properties);
+        // all the characters are baked, and the jobs already run in parallel
+        parameter.setIncremental(false);
+        parameter.setParallelism(1);
+
+        byte[] fontData = Files.readAllBytes(font.toPath());
+        // the key must be computed before the generator updates the parameter
+        String key = FtFontCache.getKey(fontData, 0, parameter);
+
+        long start = System.nanoTime();
+        try (FtFontGenerator generator = new FtFontGenerator(font)) {
+            FtBitmapCharacterSet data = generator.generateData(parameter);
+            long generated = System.nanoTime();
+            report.generateNanos = generated - start;
+            report.glyphs = data.getGlyphs().size();
+            report.pages = data.getImages().size();
+
+            if (!output.isDirectory() && !output.mkdirs()) {
+                throw new IOException("Failed to create directory: " + output);
+            }
+            String name = getName();
+            List<String> pageFiles = new ArrayList<>();
+            for (int i = 0; i < data.getImages().size(); i++) {
+                String pageFile = name + "_" + i + ".png";
+                writePng(data.getImage(i), new File(output, pageFile));
+                pageFiles.add(pageFile);
+            }
+            if (format == Format.FNT) {
+                writeFnt(data, parameter, pageFiles, new File(output, name + ".fnt"));
+            } else if (!new FtFontCache(output).save(key, parameter, data)) {
+                throw new IOException("Failed to save " + name + " to " + output);
+            }
+            report.writeNanos = System.nanoTime() - generated;
+        }
+    }
+
+    /**
+     * Write a page as a PNG file. The rows of the page are bottom up, like the textures of jME.
+     * @param image the page
+     * @param file the PNG file
+     * @throws IOException if the file can't be written
+     */
+    static void writePng(Image image, File file) throws IOException {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        ImageRaster raster = ImageRaster.create(image);
+        BufferedImage png = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        ColorRGBA color = new ColorRGBA();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                raster.getPixel(x, y, color);
+                png.setRGB(x, height - 1 - y, color.asIntARGB());
+            }
+        }
+        if (!ImageIO.write(png, "png", file)) {
+            throw new IOException("No PNG writer");
+        }
+    }
+
+    /**
+     * Write the metrics as a BMFont text file.
+     * @param data the character set
+     * @param parameter the parameter used to generate the font
+     * @param pageFiles the file names of the pages
+     * @param file the BMFont file
+     * @throws IOException if the file can't be written
+     */
+    static void writeFnt(FtBitmapCharacterSet data, FtFontParameter parameter, List<String> pageFiles, File file) throws IOException {
+        List<Glyph> glyphs = new ArrayList<>(data.getGlyphs());
+        Glyph space = data.getCharacter(' ');
+        if (space != null && !glyphs.contains(space)) {
+            glyphs.add(space);
+        }
+
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.printf(Locale.ROOT, "info face=\"%s\" size=%d bold=0 italic=0 charset=\"\" unicode=1 stretchH=100 smooth=1 aa=1 padding=%d,%d,%d,%d spacing=%d,%d%n",
+                    data.name, data.getRenderedSize(), parameter.getPadTop(), parameter.getPadRight(),
+                    parameter.getPadBottom(), parameter.getPadLeft(), parameter.getSpaceX(), parameter.getSpaceY());
+            out.printf(Locale.ROOT, "common lineHeight=%d base=%d scaleW=%d scaleH=%d pages=%d packed=0%n",
+                    data.getLineHeight(), data.getBase(), data.getWidth(), data.getHeight(), pageFiles.size());
+            for (int i = 0; i < pageFiles.size(); i++) {
+                out.printf(Locale.ROOT, "page id=%d file=\"%s\"%n", i, pageFiles.get(i));
+            }
+
+            out.printf(Locale.ROOT, "chars count=%d%n", glyphs.size());
+            for (Glyph glyph : glyphs) {
+                out.printf(Locale.ROOT, "char id=%d x=%d y=%d width=%d height=%d xoffset=%d yoffset=%d xadvance=%d page=%d chnl=15%n",
+                        (int) glyph.getChar(), glyph.getX(), glyph.getY(), glyph.getWidth(), glyph.getHeight(),
+                        glyph.getXOffset(), glyph.getYOffset(), glyph.getXAdvance(), glyph.getPage());
+            }
+
+            List<String> kernings = new ArrayList<>();
+            if (parameter.isKerning()) {
+                // the lazy kerning is queried in the face and not cached in the font
+                data.forEachKerning(glyphs, (first, second, amount) ->
+                        kernings.add(String.format(Locale.ROOT, "kerning first=%d second=%d amount=%d",
+                                (int) first, (int) second, amount)));
+            }
+            out.printf(Locale.ROOT, "kernings count=%d%n", kernings.size());
+            for (String kerning : kernings) {
+                out.println(kerning);
+            }
+            if (out.checkError()) {
+                throw new IOException("Failed to write " + file);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
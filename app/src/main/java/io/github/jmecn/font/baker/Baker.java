@@ -0,0 +1,166 @@
+package io.github.jmecn.font.baker;
+
+import io.github.jmecn.font.generator.FtFontParameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bake the fonts of the presets without a display, e.g. on a build machine.
+ *
+ * <p>Every (font, preset) pair is a job, the jobs run on a thread pool. Each job writes the atlas pages as PNG files
+ * and the metrics as a BMFont text file or as a {@link io.github.jmecn.font.FtFontCache} entry.</p>
+ *
+ * <pre>
+ * Baker [-o dir] [-j threads] [-f fnt|bin] [font files...] preset files...
+ * </pre>
+ *
+ * @author yanmaoyuan
+ */
+public final class Baker {
+
+    static Logger logger = LoggerFactory.getLogger(Baker.class);
+
+    static final String USAGE = "Usage: Baker [options] [font files...] <preset files...>\n"
+            + "  -o, --output <dir>      output directory, default: baked\n"
+            + "  -j, --threads <n>       number of jobs baked at once, default: number of processors\n"
+            + "  -f, --format <fnt|bin>  fnt: BMFont text file, bin: FtFontCache entry, default: fnt\n"
+            + "The font.file of a preset is used if no font file is given.";
+
+    private Baker() {
+    }
+
+    public static void main(String[] args) {
+        // ImageIO must not open a display
+        System.setProperty("java.awt.headless", "true");
+
+        File output = new File("baked");
+        int threads = Runtime.getRuntime().availableProcessors();
+        BakeJob.Format format = BakeJob.Format.FNT;
+        List<File> fonts = new ArrayList<>();
+        List<File> presets = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-o":
+                    case "--output":
+                        output = new File(args[++i]);
+                        break;
+                    case "-j":
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    case "-f":
+                    case "--format":
+                        format = BakeJob.Format.valueOf(args[++i].toUpperCase(Locale.ROOT));
+                        break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return;
+                    default:
+                        if (arg.endsWith(".properties")) {
+                            presets.add(new File(arg));
+                        } else {
+                            fonts.add(new File(arg));
+                        }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (presets.isEmpty() || threads < 1) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        int failed = bake(fonts, presets, output, format, threads);
+        System.exit(failed == 0 ? 0 : 1);
+    }
+
+    /**
+     * Bake every (font, preset) pair.
+     * @param fonts the font files, the font.file of each preset is used if it is empty.
+     * @param presets the preset files
+     * @param output the output directory
+     * @param format format of the metrics
+     * @param threads number of jobs baked at once
+     * @return number of the failed jobs
+     */
+    public static int bake(List<File> fonts, List<File> presets, File output, BakeJob.Format format, int threads) {
+        List<BakeJob> jobs = new ArrayList<>();
+        int failed = 0;
+        for (File preset : presets) {
+            Properties properties = new Properties();
+            try (InputStream in = new FileInputStream(preset)) {
+                properties.load(in);
+            } catch (IOException e) {
+                logger.error("Failed to load preset:{}", preset, e);
+                failed++;
+                continue;
+            }
+            if (fonts.isEmpty()) {
+                String fontFile = properties.getProperty(FtFontParameter.FONT_FILE);
+                if (fontFile == null) {
+                    logger.error("No font file is given, and preset {} has no {}", preset, FtFontParameter.FONT_FILE);
+                    failed++;
+                    continue;
+                }
+                jobs.add(new BakeJob(new File(fontFile), preset, properties, output, format));
+            } else {
+                for (File font : fonts) {
+                    jobs.add(new BakeJob(font, preset, properties, output, format));
+                }
+            }
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(jobs.size(), 1)), r -> {
+            Thread thread = new Thread(r, "Baker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        try {
+            CompletionService<BakeJob.Report> completion = new ExecutorCompletionService<>(executor);
+            for (BakeJob job : jobs) {
+                completion.submit(job);
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                BakeJob.Report report = completion.take().get();
+                System.out.println(report);
+                if (!report.isSuccess()) {
+                    failed++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed++;
+        } catch (ExecutionException e) {
+            // the jobs report their own failures
+            logger.error("Bake failed", e);
+            failed++;
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.printf(Locale.ROOT, "%d jobs, %d failed, %d threads, %.1f ms%n", jobs.size(), failed, threads,
+                (System.nanoTime() - start) / 1e6);
+        return failed;
+    }
+}
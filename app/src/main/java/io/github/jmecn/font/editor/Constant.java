@@ -1,10 +1,12 @@
 package io.github.jmecn.font.editor;
 
 import com.jme3.material.Materials;
+import com.jme3.texture.Image;
 import com.jme3.texture.Texture;
 import io.github.jmecn.font.generator.enums.Hinting;
 import io.github.jmecn.font.generator.enums.RenderMode;
 import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import io.github.jmecn.font.packer.strategy.MaxRectsStrategy;
 import io.github.jmecn.font.packer.strategy.SkylineStrategy;
 
 import java.util.Arrays;
@@ -29,11 +31,17 @@ public final class Constant {
     static final String[] PACKER_SIZE_OPTIONS = new String[]{"128", "256", "512", "1024", "2048", "4096"};
     static final String[] STRATEGY_OPTIONS = new String[] {
             GuillotineStrategy.class.getSimpleName(),
-            SkylineStrategy.class.getSimpleName()
+            SkylineStrategy.class.getSimpleName(),
+            MaxRectsStrategy.class.getSimpleName()
+    };
+    static final String[] FORMAT_OPTIONS = new String[] {
+            Image.Format.RGBA8.name(),
+            Image.Format.Alpha8.name()
     };
     static final String[] MAT_DEF_OPTIONS = new String[] {
             Materials.UNSHADED,
-            "Shaders/Font/SdFont.j3md"
+            "Shaders/Font/SdFont.j3md",
+            "Shaders/Font/Font.j3md"
     };
     static final String[] RENDER_MODE_OPTIONS = Arrays.stream(RenderMode.values()).map(RenderMode::name).toArray(String[]::new);
     static final String[] HINTING_OPTIONS = Arrays.stream(Hinting.values()).map(Hinting::name).toArray(String[]::new);
@@ -71,6 +79,7 @@ public final class Constant {
     public static final String PACK_HEIGHT = "pack.height";
     public static final String PACK_PADDING = "pack.padding";
     public static final String PACK_STRATEGY = "pack.strategy";
+    public static final String PACK_FORMAT = "pack.format";
     public static final String RENDER_TITLE = "render.title";
     public static final String RENDER_HINTING = "render.hinting";
     public static final String RENDER_MODE = "render.mode";
@@ -37,6 +37,7 @@ import io.github.jmecn.font.packer.PackStrategy;
 import io.github.jmecn.font.packer.Packer;
 import io.github.jmecn.font.packer.Page;
 import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import io.github.jmecn.font.packer.strategy.MaxRectsStrategy;
 import io.github.jmecn.font.packer.strategy.SkylineStrategy;
 import io.github.jmecn.font.utils.FileUtils;
 import org.lwjgl.PointerBuffer;
@@ -105,7 +106,8 @@ public class Main extends SimpleApplication {
     ImInt packerWidth = new ImInt();
     ImInt packerHeight = new ImInt();
     ImInt packPadding = new ImInt();
-    ImInt strategy = new ImInt();// 0 - SkylineStrategy, 1 -
+    ImInt format = new ImInt();// 0 - RGBA8, 1 - Alpha8
+    ImInt strategy = new ImInt();// 0 - GuillotineStrategy, 1 - SkylineStrategy, 2 - MaxRectsStrategy
 
     // color
     float[] color = new float[4];// rgba
@@ -162,6 +164,7 @@ public class Main extends SimpleApplication {
             packerHeight.set(indexOf(PACKER_SIZE_OPTIONS, String.valueOf(packer.getPageHeight())));
             packPadding.set(packer.getPadding());
             strategy.set(indexOf(STRATEGY_OPTIONS, packer.getPackStrategy().getClass().getSimpleName()));
+            format.set(indexOf(FORMAT_OPTIONS, packer.getFormat().name()));
         } else {
             packerWidth.set(1);
             packerHeight.set(1);
@@ -425,6 +428,7 @@ public class Main extends SimpleApplication {
             ImGui.popItemWidth();
             ImGui.pushItemWidth(120);
             parameterChanged |= ImGui.combo(i18n.getString(PACK_STRATEGY), strategy, STRATEGY_OPTIONS);
+            parameterChanged |= ImGui.combo(i18n.getString(PACK_FORMAT), format, FORMAT_OPTIONS);
         }
         if (parameterChanged) {
             refreshParameter();
@@ -550,8 +554,10 @@ public class Main extends SimpleApplication {
         PackStrategy packStrategy;
         if (strategy.get() == 0) {
             packStrategy = new GuillotineStrategy();
-        } else {
+        } else if (strategy.get() == 1) {
             packStrategy = new SkylineStrategy();
+        } else {
+            packStrategy = new MaxRectsStrategy();
         }
 
         if (packer != null) {
@@ -561,9 +567,11 @@ public class Main extends SimpleApplication {
 
         int width = Integer.parseInt(PACKER_SIZE_OPTIONS[packerWidth.get()]);
         int height = Integer.parseInt(PACKER_SIZE_OPTIONS[packerHeight.get()]);
-        packer = new Packer(Image.Format.RGBA8, width, height, packPadding.get(), false, packStrategy);
+        Image.Format pageFormat = Image.Format.valueOf(FORMAT_OPTIONS[format.get()]);
+        packer = new Packer(pageFormat, width, height, packPadding.get(), false, packStrategy);
 
         parameter.setPacker(packer);
+        parameter.setFormat(pageFormat);
         parameter.setSize(size.get());
         parameter.setRenderMode(RenderMode.valueOf(RENDER_MODE_OPTIONS[renderMode.get()]));
         parameter.setColor(new ColorRGBA(color[0], color[1], color[2], color[3]));
@@ -691,6 +699,7 @@ public class Main extends SimpleApplication {
         setIndex(packerHeight, PACK_HEIGHT, properties, PACKER_SIZE_OPTIONS);
         setInt(packPadding, PACK_PADDING, properties);
         setIndex(strategy, PACK_STRATEGY, properties, STRATEGY_OPTIONS);
+        setIndex(format, PACK_FORMAT, properties, FORMAT_OPTIONS);
 
         setInt(size, FONT_SIZE, properties);
         setBool(kerning, FONT_KERNING, properties);
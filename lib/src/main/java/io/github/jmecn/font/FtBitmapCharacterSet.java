@@ -2,22 +2,38 @@ package io.github.jmecn.font;
 
 import com.jme3.font.BitmapCharacter;
 import com.jme3.font.BitmapCharacterSet;
+import com.jme3.font.BitmapText;
 import com.jme3.material.Material;
+import com.jme3.renderer.Renderer;
 import com.jme3.texture.Image;
+import com.jme3.texture.TextureArray;
 import com.jme3.util.IntMap;
-import com.jme3.util.MipMapGenerator;
+import io.github.jmecn.font.delegate.BitmapTextDelegate;
+import io.github.jmecn.font.exception.FtRuntimeException;
 import io.github.jmecn.font.freetype.FtFace;
 import io.github.jmecn.font.freetype.FtLibrary;
 import io.github.jmecn.font.freetype.FtStroker;
+import io.github.jmecn.font.generator.AsyncGlyphRenderer;
 import io.github.jmecn.font.generator.FtFontGenerator;
 import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.generator.FtFontRegistry;
+import io.github.jmecn.font.generator.GlyphBitmap;
+import io.github.jmecn.font.generator.KerningCache;
 import io.github.jmecn.font.packer.Packer;
 import io.github.jmecn.font.packer.Page;
+import io.github.jmecn.font.packer.Rectangle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 import static org.lwjgl.util.freetype.FreeType.FT_KERNING_DEFAULT;
 
@@ -35,6 +51,9 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
 
     // hold the materials
     private final IntMap<Material> materials;
+    // the pages as the layers of one texture, see FtFontParameter#isTextureArray()
+    private TextureArray textureArray;
+    private Material arrayMaterial;
 
     public float padTop;
     public float padRight;
@@ -61,7 +80,8 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
      * file, it needs to be set manually depending on how the glyphs are rendered on the backing textures. */
     public float cursorX;
 
-    public final IntMap<IntMap<Glyph>> characters;
+    // read without locking by the texts laid out on any thread, see GlyphTable
+    private final GlyphTable characters;
     /** The glyph to display for characters not in the font. May be null. */
     public Glyph missingGlyph;
 
@@ -87,20 +107,37 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
     FtStroker stroker;
     Packer packer;
     List<Glyph> glyphs;
+    KerningCache kerningCache;
     private boolean dirty;
 
+    // LRU of the glyphs when the pages are limited, see FtFontParameter#getMaxPages(). The lookups bump it without
+    // locking, a lost increment only makes the order of the pages less precise.
+    private volatile long clock;
+    // the glyphs used since this stamp are laid out now, their pages are not evicted
+    private long layoutStamp;
+    private int evictions;
+    private final Set<BitmapText> texts = Collections.newSetFromMap(new WeakHashMap<>());
+
+    // glyphs rendered in background, see FtFontParameter#isAsync()
+    private AsyncGlyphRenderer asyncRenderer;
+    // the generator shared by the fonts of a font file, see FtFontRegistry
+    private FtFontRegistry.Handle fontHandle;
+    private final IntMap<Glyph> placeholders = new IntMap<>();
+    // the texts laid out with placeholders
+    private final Set<BitmapText> waiting = Collections.newSetFromMap(new WeakHashMap<>());
+
     public FtBitmapCharacterSet() {
         images = new ArrayList<>();
-        characters = new IntMap<>();
+        characters = new GlyphTable();
         materials = new IntMap<>();
         glyphs = new ArrayList<>(128);// all ascii chars
     }
 
     public void addCharacter(int ch, Glyph glyph) {
-        getCharacterSet(0).put(ch, glyph);
+        characters.put(0, ch, glyph);
     }
     public void addCharacter(int style, int ch, Glyph glyph) {
-        getCharacterSet(style).put(ch, glyph);
+        characters.put(style, ch, glyph);
     }
 
     public Glyph getFirstGlyph () {
@@ -121,59 +158,431 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
         return getCharacter(ch) != null;
     }
 
-    private IntMap<Glyph> getCharacterSet(int style) {
-        if (characters.containsKey(style)) {
-            return characters.get(style);
-        } else {
-            IntMap<Glyph> map = new IntMap<>();
-            characters.put(style, map);
-            return map;
-        }
-    }
-
     @Override
     public Glyph getCharacter(int ch) {
         return getCharacter(ch, 0);
     }
 
+    /**
+     * Get the glyph of a character. The glyphs already generated are found without locking, so the texts can be laid
+     * out on any thread. The missing glyphs of an incremental font are generated one at a time.
+     */
     @Override
     public Glyph getCharacter(int ch, int style) {
-        // get cached character
-        IntMap<Glyph> charset = getCharacterSet(style);
-        Glyph glyph = charset.get(ch);
-
-        if (glyph == null && generator != null) {
+        Glyph glyph = characters.get(style, ch);
+        if (generator == null) {
+            return glyph;
+        }
+        if (glyph == null) {
             if (Character.isWhitespace(ch)) {
                 // don't cache whitespace
                 return null;
             }
-            generator.setPixelSizes(0, parameter.getSize());
-            float baseline = (ascent + capHeight) / scaleY;
-            glyph = generator.createGlyph((char) ch, parameter, stroker, baseline, packer);
-            if (glyph == null) {
-                return missingGlyph;
+            return generateCharacter(ch, style);
+        }
+        glyph.setLastUse(++clock);
+        if (glyph.isEvicted() && !restore(glyph)) {
+            return missingGlyph;
+        }
+        return glyph;
+    }
+
+    private synchronized Glyph generateCharacter(int ch, int style) {
+        // generated by another thread in the meantime
+        Glyph glyph = characters.get(style, ch);
+        if (glyph != null) {
+            return glyph.isEvicted() && !restore(glyph) ? missingGlyph : glyph;
+        }
+        if (asyncRenderer != null) {
+            glyph = requestGlyph(ch);
+            if (glyph != null) {
+                characters.put(style, ch, glyph);
+                return glyph;
             }
+        }
+        glyph = createGlyph(ch);
+        if (glyph == null) {
+            return missingGlyph;
+        }
+        glyph.setLastUse(++clock);
+
+        int first = glyphs.size();
+        glyphs.add(glyph);
+        dirty = true;
+        addKerning(first);
+        // publish the glyph with its kerning
+        characters.put(style, ch, glyph);
+        return glyph;
+    }
 
-            charset.put(ch, glyph);
-            glyphs.add(glyph);
-            dirty = true;
+    /**
+     * Generate the kerning of the glyphs added from an index of {@link #glyphs}, with all the glyphs.
+     * @param first index of the first added glyph
+     */
+    private void addKerning(int first) {
+        int n = glyphs.size();
+        if (kerningCache != null) {
+            for (int i = first; i < n; i++) {
+                glyphs.get(i).setKerningCache(kerningCache);
+            }
+            return;
+        }
+        if (!parameter.isKerning() || first >= n) {
+            return;
+        }
 
+        // the face may be shared by the fonts of other sizes, see FtFontRegistry
+        synchronized (generator) {
+            generator.setPixelSizes(0, parameter.getSize());
             FtFace face = generator.getFace();
-            if (parameter.isKerning()) {
-                int glyphIndex = face.getCharIndex(ch);
-                for (int i = 0, n = glyphs.size(); i < n; i++) {
-                    Glyph other = glyphs.get(i);
-                    int otherIndex = face.getCharIndex(other.getChar());
-
-                    long kerning = face.getKerning(glyphIndex, otherIndex, FT_KERNING_DEFAULT);
+            int[] indexes = new int[n];
+            for (int i = 0; i < n; i++) {
+                indexes[i] = generator.getCharIndex(glyphs.get(i).getChar());
+            }
+            for (int i = first; i < n; i++) {
+                Glyph glyph = glyphs.get(i);
+                // the pairs with the older glyphs, the glyphs added before this one and itself
+                for (int j = 0; j <= i; j++) {
+                    Glyph other = glyphs.get(j);
+                    long kerning = face.getKerning(indexes[i], indexes[j], FT_KERNING_DEFAULT);
                     if (kerning != 0) glyph.addKerning(other.getChar(), FtLibrary.from26D6(kerning));
 
-                    kerning = face.getKerning(otherIndex, glyphIndex, FT_KERNING_DEFAULT);
-                    if (kerning != 0) other.addKerning(ch, FtLibrary.from26D6(kerning));
+                    if (j != i) {
+                        kerning = face.getKerning(indexes[j], indexes[i], FT_KERNING_DEFAULT);
+                        if (kerning != 0) other.addKerning(glyph.getChar(), FtLibrary.from26D6(kerning));
+                    }
                 }
             }
         }
-        return glyph;
+    }
+
+    private float getBaseLine() {
+        return (ascent + capHeight) / scaleY;
+    }
+
+    /**
+     * Render a glyph in background. The same placeholder is returned until the glyph is published by
+     * {@link #update()}.
+     * @param ch the character
+     * @return the placeholder, or null if the background renderer is closed.
+     */
+    private Glyph requestGlyph(int ch) {
+        Glyph placeholder = placeholders.get(ch);
+        if (placeholder != null) {
+            return placeholder;
+        }
+        if (!asyncRenderer.request(ch, getBaseLine())) {
+            return null;
+        }
+        placeholder = new Glyph((char) ch);
+        placeholder.setPending(true);
+        placeholders.put(ch, placeholder);
+        return placeholder;
+    }
+
+    /**
+     * @return true if the incremental glyphs are rendered in background, see {@link FtFontParameter#isAsync()}.
+     */
+    public boolean isAsync() {
+        return asyncRenderer != null;
+    }
+
+    /**
+     * Publish the glyphs rendered in background and lay out again the texts waiting for them. It must be called on the
+     * thread which updates the texts, e.g. in {@link com.jme3.app.state.AppState#update}. It is also called when a
+     * text of this font is laid out.
+     * @return number of the glyphs published
+     */
+    public synchronized int update() {
+        if (asyncRenderer == null) {
+            return 0;
+        }
+        int count = 0;
+        List<GlyphBitmap> bitmaps = new ArrayList<>();
+        AsyncGlyphRenderer.Result result;
+        while ((result = asyncRenderer.poll()) != null) {
+            count++;
+            if (result.getBitmap() != null) {
+                bitmaps.add(result.getBitmap());
+                continue;
+            }
+            // the font has no such glyph
+            Glyph placeholder = placeholders.remove(result.getChar());
+            if (placeholder != null) {
+                if (missingGlyph != null) {
+                    placeholder.setGlyph(missingGlyph);
+                }
+                placeholder.setPending(false);
+            }
+        }
+        pack(bitmaps);
+        if (count > 0) {
+            for (BitmapText text : waiting) {
+                BitmapTextDelegate.refresh(text);
+            }
+            waiting.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Generate the missing glyphs of a text at once, e.g. the text of a dialog before it is shown. The glyphs are
+     * packed in the order of the pack strategy and their kerning is generated once, instead of one glyph at a time
+     * when the text is laid out.
+     * @param text the text
+     * @return number of the glyphs generated
+     */
+    public synchronized int prefetch(CharSequence text) {
+        if (generator == null) {
+            return 0;
+        }
+        char[] missing = getMissingChars(text);
+        if (missing.length == 0) {
+            return 0;
+        }
+        List<GlyphBitmap> bitmaps;
+        synchronized (generator) {
+            generator.setPixelSizes(0, parameter.getSize());
+            bitmaps = generator.renderGlyphs(missing, parameter, stroker, getBaseLine());
+        }
+        return pack(bitmaps).size();
+    }
+
+    /**
+     * Render the missing glyphs of a text in background, they are packed at once by {@link #update()}. If the font is
+     * not {@link #isAsync() async}, the glyphs are generated now with {@link #prefetch(CharSequence)}.
+     * @param text the text
+     * @return number of the glyphs requested
+     */
+    public synchronized int prefetchAsync(CharSequence text) {
+        if (asyncRenderer == null) {
+            return prefetch(text);
+        }
+        int count = 0;
+        for (char ch : getMissingChars(text)) {
+            Glyph placeholder = requestGlyph(ch);
+            if (placeholder != null) {
+                characters.put(0, ch, placeholder);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @param text the text
+     * @return the characters of the text which have no glyph yet, without duplicates.
+     */
+    private char[] getMissingChars(CharSequence text) {
+        BitSet seen = new BitSet();
+        StringBuilder missing = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (seen.get(ch) || Character.isWhitespace(ch) || characters.get(0, ch) != null) {
+                continue;
+            }
+            seen.set(ch);
+            missing.append(ch);
+        }
+        return missing.toString().toCharArray();
+    }
+
+    /**
+     * Pack the rendered glyphs in the order of the pack strategy, then generate their kerning at once. The placeholders
+     * of the glyphs rendered in background are updated in place.
+     * @param bitmaps the rendered glyphs, they are disposed.
+     * @return the packed glyphs
+     */
+    private List<Glyph> pack(List<GlyphBitmap> bitmaps) {
+        List<Glyph> packed = new ArrayList<>(bitmaps.size());
+        if (bitmaps.isEmpty()) {
+            return packed;
+        }
+        List<Rectangle> rects = new ArrayList<>(bitmaps.size());
+        Map<Rectangle, GlyphBitmap> bitmapOfRect = new IdentityHashMap<>(bitmaps.size());
+        for (GlyphBitmap bitmap : bitmaps) {
+            Rectangle rect = new Rectangle(bitmap.getWidth(), bitmap.getHeight());
+            rects.add(rect);
+            bitmapOfRect.put(rect, bitmap);
+        }
+        packer.sort(rects);
+
+        int first = glyphs.size();
+        long stamp = ++clock;
+        // the pages of this batch are not evicted by the batch itself
+        long lastStamp = layoutStamp;
+        layoutStamp = lastStamp > 0 ? lastStamp : stamp;
+        try {
+            for (Rectangle rect : rects) {
+                GlyphBitmap bitmap = bitmapOfRect.get(rect);
+                int ch = bitmap.getGlyph().getChar();
+                Glyph placeholder = placeholders.remove(ch);
+                Glyph created = null;
+                try {
+                    created = generator.packGlyph(bitmap, parameter, packer);
+                } catch (FtRuntimeException e) {
+                    // all pages are used by the text being laid out, or by pinned glyphs
+                    logger.warn("No space for glyph:{}, pages:{}", (char) ch, packer.getPages().size(), e);
+                }
+
+                Glyph glyph;
+                if (placeholder != null) {
+                    if (created == null) {
+                        // try again synchronously when it is used
+                        placeholder.setEvicted(true);
+                    } else {
+                        placeholder.setGlyph(created);
+                    }
+                    // publish the metrics to the threads reading the placeholder
+                    placeholder.setPending(false);
+                    glyph = placeholder;
+                } else if (created != null) {
+                    characters.put(0, ch, created);
+                    glyph = created;
+                } else {
+                    continue;
+                }
+                glyph.setLastUse(stamp);
+                glyphs.add(glyph);
+                if (created != null) {
+                    packed.add(glyph);
+                }
+            }
+        } finally {
+            layoutStamp = lastStamp;
+        }
+        dirty = true;
+        addKerning(first);
+        return packed;
+    }
+
+    private Glyph createGlyph(int ch) {
+        try {
+            synchronized (generator) {
+                generator.setPixelSizes(0, parameter.getSize());
+                return generator.createGlyph((char) ch, parameter, stroker, getBaseLine(), packer);
+            }
+        } catch (FtRuntimeException e) {
+            // all pages are used by the text being laid out, or by pinned glyphs
+            logger.warn("No space for glyph:{}, pages:{}", (char) ch, packer.getPages().size(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate an evicted glyph again. The same instance is updated, so the texts holding it only need a new layout.
+     * @param glyph the evicted glyph
+     * @return true if the glyph is in the atlas again
+     */
+    private synchronized boolean restore(Glyph glyph) {
+        if (!glyph.isEvicted()) {
+            // restored by another thread
+            return true;
+        }
+        Glyph created = createGlyph(glyph.getChar());
+        if (created == null) {
+            return false;
+        }
+        // an async placeholder which could not be packed has no metrics yet
+        glyph.setGlyph(created);
+        glyph.setEvicted(false);
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * @return true if the glyphs of this font can be evicted, see {@link FtFontParameter#getMaxPages()} and
+     * {@link FtFontParameter#getMaxBytes()}.
+     */
+    public boolean isEvictable() {
+        return generator != null && packer != null && (packer.getMaxPages() > 0 || packer.getMaxBytes() > 0);
+    }
+
+    /**
+     * Mark the glyphs of a text as used. The evicted glyphs are generated again, and the text is laid out again when
+     * one of its glyphs is evicted later.
+     * @param text the text
+     * @param used the glyphs of the text
+     */
+    public synchronized void layout(BitmapText text, List<Glyph> used) {
+        if (asyncRenderer != null) {
+            for (Glyph glyph : used) {
+                if (glyph.isPending()) {
+                    waiting.add(text);
+                    break;
+                }
+            }
+        }
+        if (!isEvictable()) {
+            return;
+        }
+        texts.add(text);
+        long stamp = ++clock;
+        for (Glyph glyph : used) {
+            glyph.setLastUse(stamp);
+        }
+        layoutStamp = stamp;
+        try {
+            for (Glyph glyph : used) {
+                if (glyph.isEvicted()) {
+                    restore(glyph);
+                }
+            }
+        } finally {
+            layoutStamp = 0;
+        }
+    }
+
+    /**
+     * Clear the least recently used page, which has no pinned glyph and no glyph of the text being laid out.
+     * @return true if a page was cleared
+     */
+    public synchronized boolean evictPage() {
+        List<Page> pages = packer.getPages();
+        long[] lastUse = new long[pages.size()];
+        boolean[] locked = new boolean[pages.size()];
+        for (Glyph glyph : glyphs) {
+            if (glyph.isEvicted()) {
+                continue;
+            }
+            int page = glyph.getPage();
+            lastUse[page] = Math.max(lastUse[page], glyph.getLastUse());
+            if (glyph.isPinned() || (layoutStamp > 0 && glyph.getLastUse() >= layoutStamp)) {
+                locked[page] = true;
+            }
+        }
+
+        int victim = -1;
+        for (int i = 0; i < pages.size(); i++) {
+            if (!locked[i] && (victim < 0 || lastUse[i] < lastUse[victim])) {
+                victim = i;
+            }
+        }
+        if (victim < 0) {
+            return false;
+        }
+
+        for (Glyph glyph : glyphs) {
+            if (!glyph.isEvicted() && glyph.getPage() == victim) {
+                glyph.setEvicted(true);
+            }
+        }
+        packer.clearPage(pages.get(victim));
+        evictions++;
+        logger.debug("evict page:{}", victim);
+
+        // the texts may hold the evicted glyphs
+        for (BitmapText text : texts) {
+            BitmapTextDelegate.refresh(text);
+        }
+        return true;
+    }
+
+    /**
+     * @return number of the pages evicted so far.
+     */
+    public int getEvictions() {
+        return evictions;
     }
 
     public List<Glyph> getGlyphs() {
@@ -414,6 +823,50 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
     public void setPacker(Packer packer) {
         this.packer = packer;
     }
+
+    public void setAsyncRenderer(AsyncGlyphRenderer asyncRenderer) {
+        this.asyncRenderer = asyncRenderer;
+    }
+
+    /**
+     * @param fontHandle the handle of the shared generator, it is closed with this font.
+     */
+    public void setFontHandle(FtFontRegistry.Handle fontHandle) {
+        this.fontHandle = fontHandle;
+    }
+
+    public KerningCache getKerningCache() {
+        return kerningCache;
+    }
+
+    public void setKerningCache(KerningCache kerningCache) {
+        this.kerningCache = kerningCache;
+    }
+
+    /**
+     * Visit the kerning pairs of the glyphs, e.g. to export the font. The lazy kerning is queried in the face without
+     * filling the cache of this font.
+     * @param glyphs the glyphs
+     * @param consumer receives the pairs with kerning
+     */
+    public void forEachKerning(List<Glyph> glyphs, KerningCache.PairConsumer consumer) {
+        if (kerningCache != null) {
+            char[] characters = new char[glyphs.size()];
+            for (int i = 0; i < characters.length; i++) {
+                characters[i] = glyphs.get(i).getChar();
+            }
+            kerningCache.forEachPair(characters, consumer);
+            return;
+        }
+        for (Glyph first : glyphs) {
+            for (Glyph second : glyphs) {
+                int kerning = first.getKerning(second.getChar());
+                if (kerning != 0) {
+                    consumer.accept(first.getChar(), second.getChar(), kerning);
+                }
+            }
+        }
+    }
 //////////
 
     public String toString () {
@@ -422,8 +875,10 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
 
     @Override
     public void close() {
+        if (asyncRenderer != null) asyncRenderer.close();
         if (stroker != null) stroker.close();
         if (packer != null) packer.close();
+        if (fontHandle != null) fontHandle.close();
     }
 
     public void addMaterial(int page, Material material) {
@@ -451,19 +906,86 @@ public class FtBitmapCharacterSet extends BitmapCharacterSet implements AutoClos
     }
 
     /**
-     * This method is used to update mipmap for incremental font. It will update mipmap for each dirty page.
+     * @param textureArray the texture of which the pages are the layers
+     * @param material the material of all the pages
+     */
+    public void setTextureArray(TextureArray textureArray, Material material) {
+        this.textureArray = textureArray;
+        this.arrayMaterial = material;
+    }
+
+    public TextureArray getTextureArray() {
+        return textureArray;
+    }
+
+    public Material getArrayMaterial() {
+        return arrayMaterial;
+    }
+
+    /**
+     * @return true if the pages are the layers of one texture, the texts are rendered with {@link #getArrayMaterial()}.
+     */
+    public boolean isTextureArray() {
+        return arrayMaterial != null;
+    }
+
+    /**
+     * Add the new pages to the texture array as layers, and upload it again when a page was drawn. The layers share
+     * the buffers of the pages, so only the list of buffers is updated. It must be called before the text is rendered,
+     * it is called when a text of this font is laid out.
+     * @return true if the texture array will be uploaded again
+     */
+    public synchronized boolean updateTextureArray() {
+        if (textureArray == null) {
+            return false;
+        }
+        Image array = textureArray.getImage();
+        List<ByteBuffer> layers = array.getData();
+        boolean changed = layers.size() != images.size();
+        for (int i = 0; i < images.size(); i++) {
+            Image page = images.get(i);
+            if (page.isUpdateNeeded()) {
+                // the page is never uploaded by itself
+                page.clearUpdateNeeded();
+                changed = true;
+            } else if (!changed && layers.get(i) != page.getData(0)) {
+                // e.g. the mipmaps were generated in a new buffer
+                changed = true;
+            }
+        }
+        if (!changed) {
+            return false;
+        }
+        ArrayList<ByteBuffer> data = new ArrayList<>(images.size());
+        for (Image page : images) {
+            data.add(page.getData(0));
+        }
+        array.setData(data);
+        array.setMipMapSizes(images.get(0).getMipMapSizes());
+        array.setUpdateNeeded();
+        return true;
+    }
+
+    /**
+     * Upload the regions of the pages drawn by the incremental font since the last call, instead of the whole pages.
+     * It must be called on the render thread before the text is rendered.
+     * @param renderer the renderer
+     * @see Packer#upload(Renderer)
+     */
+    public void upload(Renderer renderer) {
+        if (packer != null) {
+            packer.upload(renderer);
+        }
+    }
+
+    /**
+     * This method is used to update mipmap for incremental font. Only the regions drawn to the dirty pages are
+     * updated.
      *
      */
     public void updateMipmap() {
         if (parameter != null && parameter.isIncremental() && parameter.isGenMipMaps() && packer.isDirty()) {
-            for (Page page : packer.getPages()) {
-                if (page.isDirty()) {
-                    MipMapGenerator.generateMipMaps(page.getImage());
-                    page.setDirty(false);
-                    logger.debug("update mipmap for page:{}", page.getIndex());
-                }
-            }
-            packer.setDirty(false);
+            packer.updateMipMaps();
         }
     }
 }
@@ -0,0 +1,473 @@
+package io.github.jmecn.font;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import io.github.jmecn.font.exception.FtRuntimeException;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.generator.FtFontRegistry;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.listener.FtFontMaterialAddListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+/**
+ * A directory of generated fonts, so the same font is not rasterized again on each launch.
+ *
+ * <p>An entry holds the metrics, glyphs, kerning pairs and page images of a {@link FtBitmapCharacterSet} in a binary
+ * file. The key is a hash of the font data and of the parameters saved by
+ * {@link FtFontParameter#saveToProperties(Properties)}, an entry of other font data or parameters, or of another
+ * version of the format, is never loaded. The file is mapped when it is loaded and the page images read the mapped
+ * memory, FreeType is not used.</p>
+ *
+ * <p>Only the fonts generated at once are cached, the incremental fonts need the generator to add glyphs.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class FtFontCache {
+
+    static Logger logger = LoggerFactory.getLogger(FtFontCache.class);
+
+    static final int MAGIC = 0x46544643;// FTFC
+    static final int VERSION = 2;
+    static final String EXTENSION = ".ftc";
+
+    private final File directory;
+
+    public FtFontCache(File directory) {
+        this.directory = directory;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @param parameter the font parameter
+     * @return true if the font generated with the parameter can be cached.
+     */
+    public static boolean isCacheable(FtFontParameter parameter) {
+        // a packer which already has pages is shared by other fonts, e.g. in the editor
+        return !parameter.isIncremental() && (parameter.getPacker() == null || parameter.getPacker().getPages().isEmpty());
+    }
+
+    /**
+     * Compute the key of a font. It must be computed before the font is generated, the generator updates the parameter.
+     * @param fontData the font file
+     * @param faceIndex the face index
+     * @param parameter the font parameter
+     * @return the key
+     */
+    public static String getKey(byte[] fontData, int faceIndex, FtFontParameter parameter) {
+        return getKey(ByteBuffer.wrap(fontData), faceIndex, parameter);
+    }
+
+    /**
+     * Compute the key of a font, like {@link #getKey(byte[], int, FtFontParameter)}.
+     * @param fontData the font file, its position and limit are not changed.
+     * @param faceIndex the face index
+     * @param parameter the font parameter
+     * @return the key
+     */
+    public static String getKey(ByteBuffer fontData, int faceIndex, FtFontParameter parameter) {
+        Properties properties = new Properties();
+        parameter.saveToProperties(properties);
+        StringBuilder sb = new StringBuilder();
+        for (String name : new TreeSet<>(properties.stringPropertyNames())) {
+            sb.append(name).append('=').append(properties.getProperty(name)).append('\n');
+        }
+        sb.append("font.characters=").append(parameter.getCharacters()).append('\n');
+        // the pixels of the pages which are not in the properties
+        Packer packer = parameter.getPacker();
+        if (packer != null) {
+            sb.append("pack.page.format=").append(packer.getFormat()).append('\n');
+            sb.append("pack.duplicateBorder=").append(packer.isDuplicateBorder()).append('\n');
+        }
+        sb.append("font.face=").append(faceIndex).append('\n');
+        sb.append("pack.max.size=").append(FtFontGenerator.maxTextureSize).append('\n');
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new FtRuntimeException("SHA-256 is not supported", e);
+        }
+        digest.update(fontData.duplicate());
+        digest.update(sb.toString().getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder key = new StringBuilder(64);
+        for (byte b : digest.digest()) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Load a font from the cache, or generate it with the generator and add it to the cache. The generator is not
+     * closed, it may be shared by other fonts, see {@link FtFontRegistry}. The fonts of a generator over a stream are
+     * not cached, they have no font data to compute the key.
+     * @param generator the generator of the font file
+     * @param parameter the font parameter
+     * @return the font
+     */
+    public BitmapFont loadFont(FtFontGenerator generator, FtFontParameter parameter) {
+        ByteBuffer fontData = generator.getFontData();
+        if (fontData == null || !isCacheable(parameter)) {
+            return generator.generateFont(parameter);
+        }
+
+        String key = getKey(fontData, generator.getFaceIndex(), parameter);
+        BitmapFont font = loadFont(key, parameter);
+        if (font != null) {
+            return font;
+        }
+
+        font = generator.generateFont(parameter);
+        save(key, parameter, (FtBitmapCharacterSet) font.getCharSet());
+        return font;
+    }
+
+    /**
+     * Load a font from the cache, FreeType is not used.
+     * @param key the key, see {@link #getKey(byte[], int, FtFontParameter)}
+     * @param parameter the font parameter, the materials of the pages are created with it.
+     * @return the font, or null if the font is not cached or the entry is not valid.
+     */
+    public BitmapFont loadFont(String key, FtFontParameter parameter) {
+        FtBitmapCharacterSet data = load(key, parameter);
+        if (data == null) {
+            return null;
+        }
+        BitmapFont font = new BitmapFont();
+        font.setCharSet(data);
+        font.setRightToLeft(parameter.getDirection() == Direction.RTL);
+        return font;
+    }
+
+    /**
+     * @param key the key of the font
+     * @return the file of the font
+     */
+    public File getFile(String key) {
+        return new File(directory, key + EXTENSION);
+    }
+
+    /**
+     * Load a font from the cache.
+     * @param key the key, see {@link #getKey(byte[], int, FtFontParameter)}
+     * @param parameter the font parameter, the materials of the pages are created with it.
+     * @return the character set, or null if the font is not cached or the entry is not valid.
+     */
+    public FtBitmapCharacterSet load(String key, FtFontParameter parameter) {
+        File file = getFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // the mapping is still valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            logger.warn("Failed to map cached font:{}", file, e);
+            return null;
+        }
+
+        try {
+            return read(buffer, key, parameter);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            logger.warn("Invalid cached font:{}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Save a font to the cache. The font is written to a temporary file, then renamed, so a font being saved is never
+     * loaded.
+     * @param key the key, computed before the font was generated.
+     * @param parameter the font parameter used to generate the font
+     * @param data the character set
+     * @return true if the font is saved
+     */
+    public boolean save(String key, FtFontParameter parameter, FtBitmapCharacterSet data) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.warn("Failed to create font cache directory:{}", directory);
+            return false;
+        }
+        File file = getFile(key);
+        File temp = new File(directory, key + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 65536))) {
+                write(out, key, parameter, data);
+            }
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            logger.warn("Failed to save font to cache:{}", file, e);
+            if (temp.exists() && !temp.delete()) {
+                logger.warn("Failed to delete:{}", temp);
+            }
+            return false;
+        }
+    }
+
+    private static void write(DataOutputStream out, String key, FtFontParameter parameter, FtBitmapCharacterSet data) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key);
+
+        out.writeUTF(data.name == null ? "" : data.name);
+        out.writeInt(data.getLineHeight());
+        out.writeInt(data.getBase());
+        out.writeInt(data.getRenderedSize());
+        out.writeInt(data.getWidth());
+        out.writeInt(data.getHeight());
+        out.writeFloat(data.padTop);
+        out.writeFloat(data.padRight);
+        out.writeFloat(data.padBottom);
+        out.writeFloat(data.padLeft);
+        out.writeFloat(data.capHeight);
+        out.writeFloat(data.ascent);
+        out.writeFloat(data.descent);
+        out.writeFloat(data.down);
+        out.writeFloat(data.blankLineScale);
+        out.writeFloat(data.scaleX);
+        out.writeFloat(data.scaleY);
+        out.writeFloat(data.cursorX);
+        out.writeFloat(data.spaceXadvance);
+        out.writeFloat(data.xHeight);
+        out.writeBoolean(data.markupEnabled);
+
+        // the space glyph is not packed if the font has no image of it
+        List<Glyph> glyphs = new ArrayList<>(data.getGlyphs());
+        Glyph space = data.getCharacter(' ');
+        if (space != null && !glyphs.contains(space)) {
+            glyphs.add(space);
+        }
+        out.writeInt(glyphs.size());
+        out.writeInt(data.getGlyphs().size());
+        out.writeInt(glyphs.indexOf(data.missingGlyph));
+        for (Glyph glyph : glyphs) {
+            writeGlyph(out, glyph);
+        }
+
+        // kerning pairs, the lazy kerning is queried in the face and not cached in the font
+        List<int[]> kerning = new ArrayList<>();
+        if (parameter.isKerning()) {
+            data.forEachKerning(glyphs, (first, second, amount) -> kerning.add(new int[]{first, second, amount}));
+        }
+        out.writeInt(kerning.size());
+        for (int[] pair : kerning) {
+            out.writeChar(pair[0]);
+            out.writeChar(pair[1]);
+            out.writeInt(pair[2]);
+        }
+
+        List<Image> images = data.getImages();
+        out.writeInt(images.size());
+        for (Image image : images) {
+            writeImage(out, image);
+        }
+        out.writeInt(MAGIC);
+    }
+
+    private static void writeGlyph(DataOutputStream out, Glyph glyph) throws IOException {
+        out.writeChar(glyph.getChar());
+        out.writeInt(glyph.getX());
+        out.writeInt(glyph.getY());
+        out.writeInt(glyph.getWidth());
+        out.writeInt(glyph.getHeight());
+        out.writeInt(glyph.getXOffset());
+        out.writeInt(glyph.getYOffset());
+        out.writeInt(glyph.getXAdvance());
+        out.writeInt(glyph.getPage());
+        out.writeInt(glyph.getYAdvance());
+        out.writeBoolean(glyph.isFixedWidth());
+        out.writeInt(glyph.getLeft());
+        out.writeInt(glyph.getTop());
+        out.writeInt(glyph.getHoriBearingX());
+        out.writeInt(glyph.getHoriBearingY());
+        out.writeInt(glyph.getHoriAdvance());
+        out.writeInt(glyph.getVertBearingX());
+        out.writeInt(glyph.getVertBearingY());
+        out.writeInt(glyph.getVertAdvance());
+        out.writeInt(glyph.getBorderWidth());
+        out.writeInt(glyph.getSpaceX());
+        out.writeInt(glyph.getSpaceY());
+    }
+
+    private static void writeImage(DataOutputStream out, Image image) throws IOException {
+        out.writeUTF(image.getFormat().name());
+        out.writeUTF(image.getColorSpace() == null ? ColorSpace.Linear.name() : image.getColorSpace().name());
+        out.writeInt(image.getWidth());
+        out.writeInt(image.getHeight());
+
+        int size = image.getWidth() * image.getHeight() * image.getFormat().getBitsPerPixel() / 8;
+        int[] mipMapSizes = image.getMipMapSizes();
+        if (mipMapSizes == null) {
+            out.writeInt(0);
+        } else {
+            out.writeInt(mipMapSizes.length);
+            size = 0;
+            for (int mipMapSize : mipMapSizes) {
+                out.writeInt(mipMapSize);
+                size += mipMapSize;
+            }
+        }
+
+        ByteBuffer pixels = image.getData(0).duplicate();
+        pixels.clear().limit(size);
+        out.writeInt(size);
+        Channels.newChannel(out).write(pixels);
+    }
+
+    private static FtBitmapCharacterSet read(ByteBuffer in, String key, FtFontParameter parameter) {
+        if (in.getInt() != MAGIC || in.getInt() != VERSION || !key.equals(readUTF(in))) {
+            throw new IllegalArgumentException("stale entry");
+        }
+
+        FtBitmapCharacterSet data = new FtBitmapCharacterSet();
+        data.name = readUTF(in);
+        if (data.name.isEmpty()) {
+            data.name = null;
+        }
+        data.setLineHeight(in.getInt());
+        data.setBase(in.getInt());
+        data.setRenderedSize(in.getInt());
+        data.setWidth(in.getInt());
+        data.setHeight(in.getInt());
+        data.padTop = in.getFloat();
+        data.padRight = in.getFloat();
+        data.padBottom = in.getFloat();
+        data.padLeft = in.getFloat();
+        data.capHeight = in.getFloat();
+        data.ascent = in.getFloat();
+        data.descent = in.getFloat();
+        data.down = in.getFloat();
+        data.blankLineScale = in.getFloat();
+        data.scaleX = in.getFloat();
+        data.scaleY = in.getFloat();
+        data.cursorX = in.getFloat();
+        data.spaceXadvance = in.getFloat();
+        data.xHeight = in.getFloat();
+        data.markupEnabled = in.get() != 0;
+
+        int count = in.getInt();
+        int packed = in.getInt();
+        int missing = in.getInt();
+        Glyph[] glyphs = new Glyph[count];
+        for (int i = 0; i < count; i++) {
+            Glyph glyph = readGlyph(in);
+            glyphs[i] = glyph;
+            data.addCharacter(glyph.getChar(), glyph);
+            if (i < packed) {
+                data.getGlyphs().add(glyph);
+            }
+        }
+        data.missingGlyph = missing < 0 ? null : glyphs[missing];
+
+        int pairs = in.getInt();
+        for (int i = 0; i < pairs; i++) {
+            char first = in.getChar();
+            char second = in.getChar();
+            data.getCharacter(first).addKerning(second, in.getInt());
+        }
+
+        int pages = in.getInt();
+        List<Image> images = new ArrayList<>(pages);
+        for (int i = 0; i < pages; i++) {
+            images.add(readImage(in));
+        }
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("truncated entry");
+        }
+        for (int i = 0; i < pages; i++) {
+            FtFontMaterialAddListener.addPage(parameter, data, i, images.get(i));
+        }
+        return data;
+    }
+
+    private static Glyph readGlyph(ByteBuffer in) {
+        Glyph glyph = new Glyph(in.getChar());
+        glyph.setX(in.getInt());
+        glyph.setY(in.getInt());
+        glyph.setWidth(in.getInt());
+        glyph.setHeight(in.getInt());
+        glyph.setXOffset(in.getInt());
+        glyph.setYOffset(in.getInt());
+        glyph.setXAdvance(in.getInt());
+        glyph.setPage(in.getInt());
+        glyph.setYAdvance(in.getInt());
+        glyph.setFixedWidth(in.get() != 0);
+        glyph.setLeft(in.getInt());
+        glyph.setTop(in.getInt());
+        glyph.setHoriBearingX(in.getInt());
+        glyph.setHoriBearingY(in.getInt());
+        glyph.setHoriAdvance(in.getInt());
+        glyph.setVertBearingX(in.getInt());
+        glyph.setVertBearingY(in.getInt());
+        glyph.setVertAdvance(in.getInt());
+        glyph.setBorderWidth(in.getInt());
+        glyph.setSpaceX(in.getInt());
+        glyph.setSpaceY(in.getInt());
+        return glyph;
+    }
+
+    private static Image readImage(ByteBuffer in) {
+        Image.Format format = Image.Format.valueOf(readUTF(in));
+        ColorSpace colorSpace = ColorSpace.valueOf(readUTF(in));
+        int width = in.getInt();
+        int height = in.getInt();
+        int levels = in.getInt();
+        int[] mipMapSizes = null;
+        if (levels > 0) {
+            mipMapSizes = new int[levels];
+            for (int i = 0; i < levels; i++) {
+                mipMapSizes[i] = in.getInt();
+            }
+        }
+        int size = in.getInt();
+
+        // a read only view of the mapped file
+        ByteBuffer pixels = in.slice();
+        pixels.limit(size);
+        in.position(in.position() + size);
+
+        Image image = new Image(format, width, height, pixels, colorSpace);
+        image.setMipMapSizes(mipMapSizes);
+        return image;
+    }
+
+    private static String readUTF(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        // DataOutputStream writes modified UTF-8, which is the same as UTF-8 for the names and keys written here
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
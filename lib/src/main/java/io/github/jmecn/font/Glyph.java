@@ -1,6 +1,7 @@
 package io.github.jmecn.font;
 
 import com.jme3.font.BitmapCharacter;
+import io.github.jmecn.font.generator.KerningCache;
 
 /**
  * desc:
@@ -29,6 +30,19 @@ public class Glyph extends BitmapCharacter {
     private int borderWidth;
     private int spaceX;
     private int spaceY;
+
+    // lazy kerning, null if the kerning is generated with the font
+    private KerningCache kerningCache;
+
+    // LRU of an incremental font with limited pages
+    private long lastUse;
+    private boolean pinned;
+    // volatile, the glyph is read without locking when the text is laid out on another thread
+    private volatile boolean evicted;
+
+    // an empty placeholder of an incremental glyph rendered in background
+    private volatile boolean pending;
+
     public Glyph() {
         super();
     }
@@ -140,6 +154,91 @@ public class Glyph extends BitmapCharacter {
         this.spaceY = spaceY;
     }
 
+    public KerningCache getKerningCache() {
+        return kerningCache;
+    }
+
+    public void setKerningCache(KerningCache kerningCache) {
+        this.kerningCache = kerningCache;
+    }
+
+    public long getLastUse() {
+        return lastUse;
+    }
+
+    public void setLastUse(long lastUse) {
+        this.lastUse = lastUse;
+    }
+
+    /**
+     * @return true if the page of this glyph is never evicted.
+     */
+    public boolean isPinned() {
+        return pinned;
+    }
+
+    public void setPinned(boolean pinned) {
+        this.pinned = pinned;
+    }
+
+    /**
+     * @return true if the page of this glyph was cleared, it must be generated again before use.
+     */
+    public boolean isEvicted() {
+        return evicted;
+    }
+
+    public void setEvicted(boolean evicted) {
+        this.evicted = evicted;
+    }
+
+    /**
+     * @return true if this glyph is an empty placeholder, the glyph is still being rendered.
+     */
+    public boolean isPending() {
+        return pending;
+    }
+
+    public void setPending(boolean pending) {
+        this.pending = pending;
+    }
+
+    /**
+     * Copy the metrics and the place in the atlas of another glyph, the kerning is not copied.
+     * @param other the glyph to copy
+     */
+    public void setGlyph(Glyph other) {
+        setX(other.getX());
+        setY(other.getY());
+        setWidth(other.getWidth());
+        setHeight(other.getHeight());
+        setXOffset(other.getXOffset());
+        setYOffset(other.getYOffset());
+        setXAdvance(other.getXAdvance());
+        setPage(other.getPage());
+        yAdvance = other.yAdvance;
+        isFixedWidth = other.isFixedWidth;
+        left = other.left;
+        top = other.top;
+        horiBearingX = other.horiBearingX;
+        horiBearingY = other.horiBearingY;
+        horiAdvance = other.horiAdvance;
+        vertBearingX = other.vertBearingX;
+        vertBearingY = other.vertBearingY;
+        vertAdvance = other.vertAdvance;
+        borderWidth = other.borderWidth;
+        spaceX = other.spaceX;
+        spaceY = other.spaceY;
+    }
+
+    @Override
+    public int getKerning(int second) {
+        if (kerningCache != null) {
+            return kerningCache.getKerning(getChar(), second);
+        }
+        return super.getKerning(second);
+    }
+
     @Override
     public String toString() {
         return "Glyph{" +
@@ -0,0 +1,113 @@
+package io.github.jmecn.font;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The glyphs of a font keyed by style and character, with one probe sequence per lookup.
+ *
+ * <p>Lookups never lock. The table is an open addressing array of immutable entries, each entry is published with a
+ * volatile write, and the array is replaced when it grows. Writers are serialized on the table, so a reader sees either
+ * no glyph or a fully constructed entry of a character.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class GlyphTable {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final class Entry {
+        final long key;
+        final Glyph glyph;
+
+        Entry(long key, Glyph glyph) {
+            this.key = key;
+            this.glyph = glyph;
+        }
+    }
+
+    private volatile AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+    // guarded by this
+    private int size;
+
+    private static long key(int style, int ch) {
+        return ((long) style << 32) | (ch & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * @param style the style
+     * @param ch the character
+     * @return the glyph, or null if the character has no glyph yet.
+     */
+    Glyph get(int style, int ch) {
+        long key = key(style, ch);
+        AtomicReferenceArray<Entry> t = table;
+        int mask = t.length() - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            Entry entry = t.get(i);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.key == key) {
+                return entry.glyph;
+            }
+        }
+    }
+
+    /**
+     * Add or replace the glyph of a character.
+     * @param style the style
+     * @param ch the character
+     * @param glyph the glyph
+     */
+    synchronized void put(int style, int ch, Glyph glyph) {
+        if (glyph == null) {
+            throw new IllegalArgumentException("glyph cannot be null.");
+        }
+        if ((size + 1) * 4 > table.length() * 3) {
+            resize();
+        }
+        long key = key(style, ch);
+        AtomicReferenceArray<Entry> t = table;
+        int mask = t.length() - 1;
+        int i = hash(key) & mask;
+        Entry entry;
+        while ((entry = t.get(i)) != null && entry.key != key) {
+            i = (i + 1) & mask;
+        }
+        if (entry == null) {
+            size++;
+        }
+        t.set(i, new Entry(key, glyph));
+    }
+
+    /**
+     * @return number of the glyphs of all styles
+     */
+    synchronized int size() {
+        return size;
+    }
+
+    private void resize() {
+        AtomicReferenceArray<Entry> old = table;
+        AtomicReferenceArray<Entry> t = new AtomicReferenceArray<>(old.length() * 2);
+        int mask = t.length() - 1;
+        for (int j = 0; j < old.length(); j++) {
+            Entry entry = old.get(j);
+            if (entry == null) {
+                continue;
+            }
+            int i = hash(entry.key) & mask;
+            while (t.get(i) != null) {
+                i = (i + 1) & mask;
+            }
+            t.set(i, entry);
+        }
+        // the readers of the old table still find all the glyphs added before
+        table = t;
+    }
+}
@@ -0,0 +1,505 @@
+package io.github.jmecn.font.batch;
+
+import com.jme3.material.Material;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.IntMap;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.delegate.TextArrayGeometry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Many labels of one font drawn together, e.g. the nameplates or the damage numbers of a scene. Each page of the font
+ * is one geometry holding the quads of all the labels, so the labels cost one draw call per page, or one draw call if
+ * the font uses a {@link FtBitmapCharacterSet#isTextureArray() texture array}.
+ *
+ * <p>Each label owns a range of quads in the buffers of a page. When a label is changed, only its range is written:
+ * the positions when it is moved or hidden, the colors when its color is changed, and all the buffers of the range when
+ * it is laid out again. A range is moved to the end of the buffers when the label needs more quads, the free ranges
+ * are compacted when they are more than half of the buffers.</p>
+ *
+ * <p>The labels are written by {@link #update()}, it is called by {@link #updateLogicalState(float)}.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TextBatch extends Node {
+
+    static Logger logger = LoggerFactory.getLogger(TextBatch.class);
+
+    // the floats, bytes and indices of a quad in each buffer
+    static final int POSITIONS = 12;
+    static final int TEX_COORDS = 8;
+    static final int LAYERS = 4;
+    static final int COLORS = 16;
+    static final int INDICES = 6;
+
+    static final int MIN_CAPACITY = 64;
+
+    private final FtBitmapCharacterSet charSet;
+    private final List<TextLabel> labels = new ArrayList<>();
+    private final Set<TextLabel> changed = new LinkedHashSet<>();
+    private final IntMap<PageBuffer> pages = new IntMap<>();
+    private int evictions;
+    private int writtenQuads;
+
+    /**
+     * A range of quads of a label in a page buffer.
+     */
+    static final class Range {
+        final PageBuffer page;
+        final TextLabel label;
+        int start;
+        final int capacity;
+
+        Range(PageBuffer page, TextLabel label, int start, int capacity) {
+            this.page = page;
+            this.label = label;
+            this.start = start;
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * @param charSet the font of the labels, it must have the materials of its pages.
+     */
+    public TextBatch(FtBitmapCharacterSet charSet) {
+        super("TextBatch");
+        this.charSet = charSet;
+        this.evictions = charSet.getEvictions();
+        setRequiresUpdates(true);
+    }
+
+    public FtBitmapCharacterSet getCharSet() {
+        return charSet;
+    }
+
+    /**
+     * Add a label with the rendered size of the font, white, at the origin.
+     * @param text the text
+     * @return the label
+     */
+    public TextLabel addLabel(String text) {
+        TextLabel label = new TextLabel(this, text);
+        labels.add(label);
+        changed(label, TextLabel.LAYOUT);
+        return label;
+    }
+
+    /**
+     * Remove a label, its quads are released.
+     * @param label the label
+     */
+    public void removeLabel(TextLabel label) {
+        if (label.getBatch() != this) {
+            throw new IllegalArgumentException("The label is not in this batch");
+        }
+        for (IntMap.Entry<Range> entry : label.ranges) {
+            entry.getValue().page.release(entry.getValue());
+        }
+        label.ranges.clear();
+        labels.remove(label);
+        changed.remove(label);
+        label.setBatch(null);
+    }
+
+    public List<TextLabel> getLabels() {
+        return Collections.unmodifiableList(labels);
+    }
+
+    /**
+     * Lay out all the labels again, e.g. after the glyphs of the font were changed.
+     */
+    public void refresh() {
+        for (TextLabel label : labels) {
+            changed(label, TextLabel.LAYOUT);
+        }
+    }
+
+    void changed(TextLabel label, int flags) {
+        label.dirty |= flags;
+        changed.add(label);
+    }
+
+    /**
+     * @return number of the quads written by the last update
+     */
+    public int getWrittenQuads() {
+        return writtenQuads;
+    }
+
+    @Override
+    public void updateLogicalState(float tpf) {
+        super.updateLogicalState(tpf);
+        update();
+    }
+
+    /**
+     * Write the changed labels to the buffers. The labels are laid out again when the glyphs rendered in background
+     * are published or a page of the font is evicted.
+     */
+    public void update() {
+        int published = charSet.update();
+        if (published > 0 || evictions != charSet.getEvictions()) {
+            evictions = charSet.getEvictions();
+            refresh();
+        }
+        writtenQuads = 0;
+        for (TextLabel label : changed) {
+            write(label);
+        }
+        changed.clear();
+        for (IntMap.Entry<PageBuffer> entry : pages) {
+            entry.getValue().flush();
+        }
+        charSet.updateMipmap();
+        charSet.updateTextureArray();
+    }
+
+    private int bucket(int page) {
+        // the layers of a texture array are drawn together
+        return charSet.isTextureArray() ? 0 : page;
+    }
+
+    private void write(TextLabel label) {
+        int flags = label.dirty;
+        label.dirty = 0;
+        if ((flags & TextLabel.LAYOUT) != 0) {
+            label.layout(charSet);
+            allocate(label);
+            flags = TextLabel.LAYOUT | TextLabel.POSITION | TextLabel.COLOR;
+        }
+        for (IntMap.Entry<Range> entry : label.ranges) {
+            writtenQuads += entry.getValue().page.write(entry.getValue(), flags);
+        }
+    }
+
+    /**
+     * Release the ranges of a label which are too small for its quads, and allocate the missing ranges.
+     */
+    private void allocate(TextLabel label) {
+        IntMap<Integer> counts = new IntMap<>();
+        for (int i = 0; i < label.quadCount; i++) {
+            int bucket = bucket(label.pages[i]);
+            Integer count = counts.get(bucket);
+            counts.put(bucket, count == null ? 1 : count + 1);
+        }
+        List<Integer> released = new ArrayList<>();
+        for (IntMap.Entry<Range> entry : label.ranges) {
+            Integer count = counts.get(entry.getKey());
+            if (count == null || count > entry.getValue().capacity) {
+                entry.getValue().page.release(entry.getValue());
+                released.add(entry.getKey());
+            }
+        }
+        for (int bucket : released) {
+            label.ranges.remove(bucket);
+        }
+        for (IntMap.Entry<Integer> entry : counts) {
+            if (!label.ranges.containsKey(entry.getKey())) {
+                label.ranges.put(entry.getKey(), getPage(entry.getKey()).allocate(label, entry.getValue()));
+            }
+        }
+    }
+
+    private PageBuffer getPage(int bucket) {
+        PageBuffer page = pages.get(bucket);
+        if (page == null) {
+            Material material = charSet.isTextureArray() ? charSet.getArrayMaterial() : charSet.getMaterial(bucket);
+            if (material == null) {
+                throw new IllegalStateException("The font has no material of page " + bucket);
+            }
+            page = new PageBuffer(bucket, material);
+            pages.put(bucket, page);
+            logger.debug("create page buffer: {}", bucket);
+        }
+        return page;
+    }
+
+    /**
+     * @param bucket the page, or 0 for a texture array
+     * @return the geometry of the page, or null if no label has a glyph on it.
+     */
+    public Geometry getGeometry(int bucket) {
+        PageBuffer page = pages.get(bucket);
+        return page == null ? null : page.geometry;
+    }
+
+    /**
+     * The quads of all the labels on a page.
+     */
+    final class PageBuffer {
+        final int bucket;
+        final Geometry geometry;
+        final Mesh mesh = new Mesh();
+        private FloatBuffer positions;
+        private FloatBuffer texCoords;
+        private FloatBuffer layers;
+        private ByteBuffer colors;
+        private IntBuffer indices;
+        private final List<Range> ranges = new ArrayList<>();
+        // number of the quads allocated, the quads in use are below end
+        private int capacity;
+        private int end;
+        // number of the quads below end which are not in a range
+        private int free;
+        // the limits of the buffers are the quads in use after a flush, the capacity while writing
+        private boolean flushed;
+        private boolean sizeChanged;
+        private boolean positionsChanged;
+        private boolean texCoordsChanged;
+        private boolean colorsChanged;
+
+        PageBuffer(int bucket, Material material) {
+            this.bucket = bucket;
+            grow(MIN_CAPACITY);
+            mesh.setBuffer(VertexBuffer.Type.Position, 3, positions);
+            mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, texCoords);
+            mesh.setBuffer(TextArrayGeometry.LAYER, 1, layers);
+            mesh.setBuffer(VertexBuffer.Type.Color, 4, VertexBuffer.Format.UnsignedByte, colors);
+            mesh.getBuffer(VertexBuffer.Type.Color).setNormalized(true);
+            mesh.setBuffer(VertexBuffer.Type.Index, 3, indices);
+            geometry = new Geometry("TextBatch-" + bucket, mesh);
+            geometry.setMaterial(material);
+            geometry.setBatchHint(BatchHint.Never);
+            attachChild(geometry);
+        }
+
+        private void open() {
+            if (flushed) {
+                positions.clear();
+                texCoords.clear();
+                layers.clear();
+                colors.clear();
+                indices.clear();
+                flushed = false;
+            }
+        }
+
+        Range allocate(TextLabel label, int count) {
+            open();
+            if (end + count > capacity && free >= count && free * 2 >= end) {
+                compact();
+            }
+            if (end + count > capacity) {
+                grow(Math.max(end + count, capacity * 2));
+            }
+            Range range = new Range(this, label, end, count);
+            ranges.add(range);
+            end += count;
+            sizeChanged = true;
+            return range;
+        }
+
+        void release(Range range) {
+            open();
+            ranges.remove(range);
+            // the quads are not drawn until they are reused
+            for (int q = range.start; q < range.start + range.capacity; q++) {
+                int i = q * POSITIONS;
+                collapse(q, positions.get(i), positions.get(i + 1), positions.get(i + 2));
+            }
+            positionsChanged = true;
+            if (range.start + range.capacity == end) {
+                end = range.start;
+                sizeChanged = true;
+            } else {
+                free += range.capacity;
+            }
+        }
+
+        /**
+         * Write the quads of a label to its range.
+         * @return number of the quads written
+         */
+        int write(Range range, int flags) {
+            open();
+            TextLabel label = range.label;
+            boolean layout = (flags & TextLabel.LAYOUT) != 0;
+            boolean position = (flags & TextLabel.POSITION) != 0;
+            boolean color = (flags & TextLabel.COLOR) != 0;
+            float x = label.getPosition().x;
+            float y = label.getPosition().y;
+            float z = label.getPosition().z;
+            int q = range.start;
+            for (int i = 0; i < label.quadCount; i++) {
+                if (bucket(label.pages[i]) != bucket) {
+                    continue;
+                }
+                int k = i * TextLabel.QUAD_SIZE;
+                if (position) {
+                    if (label.isVisible()) {
+                        float sx = x + label.quads[k];
+                        float sy = y + label.quads[k + 1];
+                        float ex = x + label.quads[k + 2];
+                        float ey = y + label.quads[k + 3];
+                        int p = q * POSITIONS;
+                        positions.put(p, sx).put(p + 1, sy).put(p + 2, z);
+                        positions.put(p + 3, sx).put(p + 4, ey).put(p + 5, z);
+                        positions.put(p + 6, ex).put(p + 7, ey).put(p + 8, z);
+                        positions.put(p + 9, ex).put(p + 10, sy).put(p + 11, z);
+                    } else {
+                        collapse(q, x, y, z);
+                    }
+                }
+                if (layout) {
+                    float u0 = label.quads[k + 4];
+                    float v0 = 1f - label.quads[k + 5];
+                    float u1 = label.quads[k + 6];
+                    float v1 = 1f - label.quads[k + 7];
+                    int t = q * TEX_COORDS;
+                    texCoords.put(t, u0).put(t + 1, v0);
+                    texCoords.put(t + 2, u0).put(t + 3, v1);
+                    texCoords.put(t + 4, u1).put(t + 5, v1);
+                    texCoords.put(t + 6, u1).put(t + 7, v0);
+                    float layer = label.pages[i];
+                    int l = q * LAYERS;
+                    layers.put(l, layer).put(l + 1, layer).put(l + 2, layer).put(l + 3, layer);
+                }
+                if (color) {
+                    byte r = (byte) (label.getColor().r * 255);
+                    byte g = (byte) (label.getColor().g * 255);
+                    byte b = (byte) (label.getColor().b * 255);
+                    byte a = (byte) (label.getColor().a * 255);
+                    for (int c = q * COLORS; c < (q + 1) * COLORS; c += 4) {
+                        colors.put(c, r).put(c + 1, g).put(c + 2, b).put(c + 3, a);
+                    }
+                }
+                q++;
+            }
+            int written = q - range.start;
+            if (position || layout) {
+                // the quads left by a shorter text
+                for (; q < range.start + range.capacity; q++) {
+                    collapse(q, x, y, z);
+                }
+            }
+            positionsChanged |= position;
+            texCoordsChanged |= layout;
+            colorsChanged |= color;
+            return written;
+        }
+
+        // a quad with no area is not rasterized
+        private void collapse(int quad, float x, float y, float z) {
+            for (int p = quad * POSITIONS; p < (quad + 1) * POSITIONS; p += 3) {
+                positions.put(p, x).put(p + 1, y).put(p + 2, z);
+            }
+        }
+
+        private void compact() {
+            ranges.sort((a, b) -> Integer.compare(a.start, b.start));
+            int to = 0;
+            for (Range range : ranges) {
+                if (range.start != to) {
+                    move(range.start, to, range.capacity);
+                    range.start = to;
+                }
+                to += range.capacity;
+            }
+            logger.debug("compact page buffer, free:{}, end:{} -> {}", free, end, to);
+            end = to;
+            free = 0;
+            sizeChanged = true;
+        }
+
+        // move quads to a lower index, the ranges may overlap
+        private void move(int from, int to, int count) {
+            for (int i = 0; i < count * POSITIONS; i++) {
+                positions.put(to * POSITIONS + i, positions.get(from * POSITIONS + i));
+            }
+            for (int i = 0; i < count * TEX_COORDS; i++) {
+                texCoords.put(to * TEX_COORDS + i, texCoords.get(from * TEX_COORDS + i));
+            }
+            for (int i = 0; i < count * LAYERS; i++) {
+                layers.put(to * LAYERS + i, layers.get(from * LAYERS + i));
+            }
+            for (int i = 0; i < count * COLORS; i++) {
+                colors.put(to * COLORS + i, colors.get(from * COLORS + i));
+            }
+        }
+
+        private void grow(int newCapacity) {
+            positions = copy(positions, BufferUtils.createFloatBuffer(newCapacity * POSITIONS));
+            texCoords = copy(texCoords, BufferUtils.createFloatBuffer(newCapacity * TEX_COORDS));
+            layers = copy(layers, BufferUtils.createFloatBuffer(newCapacity * LAYERS));
+            ByteBuffer newColors = BufferUtils.createByteBuffer(newCapacity * COLORS);
+            if (colors != null) {
+                colors.clear();
+                newColors.put(colors).clear();
+            }
+            colors = newColors;
+            // the indices of a quad only depend on its place
+            indices = BufferUtils.createIntBuffer(newCapacity * INDICES);
+            for (int q = 0; q < newCapacity; q++) {
+                int v = q * 4;
+                indices.put(v).put(v + 1).put(v + 2).put(v).put(v + 2).put(v + 3);
+            }
+            indices.clear();
+            logger.debug("grow page buffer: {} -> {} quads", capacity, newCapacity);
+            capacity = newCapacity;
+            sizeChanged = true;
+        }
+
+        private FloatBuffer copy(FloatBuffer from, FloatBuffer to) {
+            if (from != null) {
+                from.clear();
+                to.put(from).clear();
+            }
+            return to;
+        }
+
+        /**
+         * Upload the buffers changed since the last flush.
+         */
+        void flush() {
+            if (!sizeChanged && !positionsChanged && !texCoordsChanged && !colorsChanged) {
+                return;
+            }
+            open();
+            positions.limit(end * POSITIONS);
+            texCoords.limit(end * TEX_COORDS);
+            layers.limit(end * LAYERS);
+            colors.limit(end * COLORS);
+            indices.limit(end * INDICES);
+            flushed = true;
+
+            if (sizeChanged || positionsChanged) {
+                mesh.getBuffer(VertexBuffer.Type.Position).updateData(positions);
+            }
+            if (sizeChanged || texCoordsChanged) {
+                mesh.getBuffer(VertexBuffer.Type.TexCoord).updateData(texCoords);
+                mesh.getBuffer(TextArrayGeometry.LAYER).updateData(layers);
+            }
+            if (sizeChanged || colorsChanged) {
+                mesh.getBuffer(VertexBuffer.Type.Color).updateData(colors);
+            }
+            if (sizeChanged) {
+                mesh.getBuffer(VertexBuffer.Type.Index).updateData(indices);
+                mesh.updateCounts();
+            }
+            if (sizeChanged || positionsChanged) {
+                mesh.updateBound();
+                geometry.updateModelBound();
+            }
+            // nothing to draw
+            geometry.setCullHint(end == 0 ? CullHint.Always : CullHint.Inherit);
+            sizeChanged = false;
+            positionsChanged = false;
+            texCoordsChanged = false;
+            colorsChanged = false;
+        }
+    }
+}
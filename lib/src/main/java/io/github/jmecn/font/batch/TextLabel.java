@@ -0,0 +1,239 @@
+package io.github.jmecn.font.batch;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.math.ColorRGBA;
+import com.jme3.math.Vector3f;
+import com.jme3.util.IntMap;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+
+import java.util.Arrays;
+
+/**
+ * A text drawn by a {@link TextBatch}, e.g. a nameplate or a damage number. The label is laid out again when its text,
+ * size or alignment is changed. Moving it or changing its color only writes its positions or its colors.
+ *
+ * <p>The position is the top left of the first line, the lines go down the y axis like a BitmapText.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TextLabel {
+
+    static final int LAYOUT = 1;
+    static final int POSITION = 2;
+    static final int COLOR = 4;
+
+    // x0, y0, x1, y1, u0, v0, u1, v1 of each quad, relative to the position
+    static final int QUAD_SIZE = 8;
+
+    private TextBatch batch;
+    private String text;
+    private final Vector3f position = new Vector3f();
+    private final ColorRGBA color = new ColorRGBA(ColorRGBA.White);
+    private float size;
+    private BitmapFont.Align align = BitmapFont.Align.Left;
+    private boolean visible = true;
+
+    // the quads of the glyphs, and the page of each glyph
+    float[] quads = new float[0];
+    int[] pages = new int[0];
+    int quadCount;
+    // the quads of this label in the page buffers, by page
+    final IntMap<TextBatch.Range> ranges = new IntMap<>();
+    int dirty;
+
+    TextLabel(TextBatch batch, String text) {
+        this.batch = batch;
+        this.text = text == null ? "" : text;
+    }
+
+    public TextBatch getBatch() {
+        return batch;
+    }
+
+    void setBatch(TextBatch batch) {
+        this.batch = batch;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        if (text == null) {
+            text = "";
+        }
+        if (!this.text.equals(text)) {
+            this.text = text;
+            changed(LAYOUT);
+        }
+    }
+
+    public Vector3f getPosition() {
+        return position;
+    }
+
+    public void setPosition(float x, float y, float z) {
+        position.set(x, y, z);
+        changed(POSITION);
+    }
+
+    public void setPosition(Vector3f position) {
+        setPosition(position.x, position.y, position.z);
+    }
+
+    public ColorRGBA getColor() {
+        return color;
+    }
+
+    public void setColor(ColorRGBA color) {
+        this.color.set(color);
+        changed(COLOR);
+    }
+
+    /**
+     * @return the size of the text, 0 for the rendered size of the font.
+     */
+    public float getSize() {
+        return size;
+    }
+
+    public void setSize(float size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("size must not be negative: " + size);
+        }
+        if (this.size != size) {
+            this.size = size;
+            changed(LAYOUT);
+        }
+    }
+
+    public BitmapFont.Align getAlign() {
+        return align;
+    }
+
+    /**
+     * @param align the alignment of each line to the position, e.g. Center for a nameplate.
+     */
+    public void setAlign(BitmapFont.Align align) {
+        if (align == null) {
+            throw new IllegalArgumentException("align is null");
+        }
+        if (this.align != align) {
+            this.align = align;
+            changed(LAYOUT);
+        }
+    }
+
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Hide the label without releasing its quads, e.g. a nameplate out of range.
+     * @param visible true to draw the label
+     */
+    public void setVisible(boolean visible) {
+        if (this.visible != visible) {
+            this.visible = visible;
+            changed(POSITION);
+        }
+    }
+
+    /**
+     * @return number of the quads of the label, the glyphs without pixels have no quad.
+     */
+    public int getQuadCount() {
+        return quadCount;
+    }
+
+    private void changed(int flags) {
+        if (batch != null) {
+            batch.changed(this, flags);
+        }
+    }
+
+    /**
+     * Lay out the glyphs of the text like a BitmapText, with the kerning and the line height of the font.
+     * @param charSet the font
+     */
+    void layout(FtBitmapCharacterSet charSet) {
+        float scale = size == 0 ? 1f : size / charSet.getRenderedSize();
+        float pageWidth = charSet.getWidth();
+        float pageHeight = charSet.getHeight();
+        quadCount = 0;
+
+        float x = 0;
+        float y = 0;
+        int lineStart = 0;
+        Glyph previous = null;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ch == '\n') {
+                alignLine(lineStart, x);
+                lineStart = quadCount;
+                x = 0;
+                y -= charSet.getLineHeight() * scale;
+                previous = null;
+                continue;
+            }
+            Glyph glyph = charSet.getCharacter(ch);
+            if (glyph == null) {
+                previous = null;
+                continue;
+            }
+            if (previous != null) {
+                x += previous.getKerning(ch) * scale;
+            }
+            // a pending glyph has no pixels yet, the label is laid out again when it is rendered
+            if (glyph.getWidth() > 0 && glyph.getHeight() > 0 && !charSet.isWhitespace(ch)) {
+                float x0 = x + glyph.getXOffset() * scale;
+                float y0 = y - glyph.getYOffset() * scale;
+                addQuad(glyph.getPage(),
+                        x0, y0, x0 + glyph.getWidth() * scale, y0 - glyph.getHeight() * scale,
+                        glyph.getX() / pageWidth, glyph.getY() / pageHeight,
+                        (glyph.getX() + glyph.getWidth()) / pageWidth, (glyph.getY() + glyph.getHeight()) / pageHeight);
+            }
+            x += glyph.getXAdvance() * scale;
+            previous = glyph;
+        }
+        alignLine(lineStart, x);
+    }
+
+    private void addQuad(int page, float x0, float y0, float x1, float y1, float u0, float v0, float u1, float v1) {
+        if (quadCount == pages.length) {
+            int length = Math.max(8, pages.length * 2);
+            pages = Arrays.copyOf(pages, length);
+            quads = Arrays.copyOf(quads, length * QUAD_SIZE);
+        }
+        pages[quadCount] = page;
+        int i = quadCount * QUAD_SIZE;
+        quads[i] = x0;
+        quads[i + 1] = y0;
+        quads[i + 2] = x1;
+        quads[i + 3] = y1;
+        quads[i + 4] = u0;
+        quads[i + 5] = v0;
+        quads[i + 6] = u1;
+        quads[i + 7] = v1;
+        quadCount++;
+    }
+
+    private void alignLine(int lineStart, float lineWidth) {
+        float offset;
+        switch (align) {
+            case Center:
+                offset = -lineWidth / 2;
+                break;
+            case Right:
+                offset = -lineWidth;
+                break;
+            default:
+                return;
+        }
+        for (int q = lineStart; q < quadCount; q++) {
+            quads[q * QUAD_SIZE] += offset;
+            quads[q * QUAD_SIZE + 2] += offset;
+        }
+    }
+}
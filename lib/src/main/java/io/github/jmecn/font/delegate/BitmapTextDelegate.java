@@ -1,10 +1,12 @@
 package io.github.jmecn.font.delegate;
 
+import com.jme3.font.BitmapCharacter;
 import com.jme3.font.BitmapCharacterSet;
 import com.jme3.font.BitmapFont;
 import com.jme3.font.BitmapText;
 import com.jme3.scene.Spatial;
 import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
 import io.github.jmecn.font.exception.FtRuntimeException;
 import net.bytebuddy.implementation.bind.annotation.*;
 import org.slf4j.Logger;
@@ -14,6 +16,8 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class is a delegate to BitmapText, it overrides the private method assemble() to support dynamic generated BitmapTextPage.
@@ -30,6 +34,13 @@ public class BitmapTextDelegate {
 
     // Letters#update()
     static Method lettersUpdateMethod;
+    // Letters#getHead(), Letters#invalidate(), LetterQuad#getNext(), LetterQuad#getBitmapChar(),
+    // LetterQuad#setBitmapChar(BitmapCharacter)
+    static Method lettersGetHeadMethod;
+    static Method lettersInvalidateMethod;
+    static Method letterQuadGetNextMethod;
+    static Method letterQuadGetBitmapCharMethod;
+    static Method letterQuadSetBitmapCharMethod;
 
     // BitmapTextPage#assemble(Letters)
     static Method bitmapTextPageAssembleMethod;
@@ -51,6 +62,18 @@ public class BitmapTextDelegate {
             Class<?> letters = Class.forName("com.jme3.font.Letters");
             lettersUpdateMethod = letters.getDeclaredMethod("update");
             lettersUpdateMethod.setAccessible(true);
+            lettersGetHeadMethod = letters.getDeclaredMethod("getHead");
+            lettersGetHeadMethod.setAccessible(true);
+            lettersInvalidateMethod = letters.getDeclaredMethod("invalidate");
+            lettersInvalidateMethod.setAccessible(true);
+
+            Class<?> letterQuad = Class.forName("com.jme3.font.LetterQuad");
+            letterQuadGetNextMethod = letterQuad.getDeclaredMethod("getNext");
+            letterQuadGetNextMethod.setAccessible(true);
+            letterQuadGetBitmapCharMethod = letterQuad.getDeclaredMethod("getBitmapChar");
+            letterQuadGetBitmapCharMethod.setAccessible(true);
+            letterQuadSetBitmapCharMethod = letterQuad.getDeclaredMethod("setBitmapChar", BitmapCharacter.class);
+            letterQuadSetBitmapCharMethod.setAccessible(true);
 
             clazzBitmapTextPage = Class.forName("com.jme3.font.BitmapTextPage");
             constructor = clazzBitmapTextPage.getDeclaredConstructor(BitmapFont.class, boolean.class, int.class);
@@ -72,7 +95,19 @@ public class BitmapTextDelegate {
 
         if (charSet instanceof FtBitmapCharacterSet) {
             FtBitmapCharacterSet ftCharSet = (FtBitmapCharacterSet) charSet;
+            // publish the glyphs rendered in background
+            ftCharSet.update();
+            if (ftCharSet.isEvictable() || ftCharSet.isAsync()) {
+                // generate the evicted glyphs before updating the mipmap
+                ftCharSet.layout(text, getGlyphs(letters));
+                // the glyphs may be moved in the atlas since the text was set
+                rebind(letters);
+            }
             ftCharSet.updateMipmap();
+            if (ftCharSet.isTextureArray()) {
+                assembleArray(text, ftCharSet, letters, textPages);
+                return;
+            }
             int pageSize = ftCharSet.getPageSize();
             if (pageSize > textPages.length) {
                 logger.debug("page size:{}, current:{}", pageSize, textPages.length);
@@ -98,4 +133,75 @@ public class BitmapTextDelegate {
         }
         needRefreshField.set(obj, false);
     }
+
+    /**
+     * Build one geometry for the glyphs of all the pages, when the pages are the layers of a texture array.
+     */
+    private static void assembleArray(BitmapText text, FtBitmapCharacterSet charSet, Object letters,
+                                      Object[] textPages) throws ReflectiveOperationException {
+        if (textPages.length > 0) {
+            // e.g. a text created before the font used a texture array
+            for (Object page : textPages) {
+                text.detachChild((Spatial) page);
+            }
+            textPagesField.set(text, Array.newInstance(clazzBitmapTextPage, 0));
+        }
+        TextArrayGeometry geometry = null;
+        for (Spatial child : text.getChildren()) {
+            if (child instanceof TextArrayGeometry) {
+                geometry = (TextArrayGeometry) child;
+                break;
+            }
+        }
+        if (geometry == null) {
+            geometry = new TextArrayGeometry(charSet);
+            text.attachChild(geometry);
+        }
+
+        lettersUpdateMethod.invoke(letters);
+        // the layout may add glyphs to a new page
+        charSet.updateTextureArray();
+        geometry.assemble(letters);
+        needRefreshField.set(text, false);
+    }
+
+    private static List<Glyph> getGlyphs(Object letters) throws ReflectiveOperationException {
+        List<Glyph> glyphs = new ArrayList<>();
+        Object quad = lettersGetHeadMethod.invoke(letters);
+        while (quad != null) {
+            Object bitmapChar = letterQuadGetBitmapCharMethod.invoke(quad);
+            if (bitmapChar instanceof Glyph) {
+                glyphs.add((Glyph) bitmapChar);
+            }
+            quad = letterQuadGetNextMethod.invoke(quad);
+        }
+        return glyphs;
+    }
+
+    /**
+     * Set the glyphs to the letters again, the letters keep the texture coordinates of the glyphs when the text is set.
+     */
+    private static void rebind(Object letters) throws ReflectiveOperationException {
+        Object quad = lettersGetHeadMethod.invoke(letters);
+        while (quad != null) {
+            Object bitmapChar = letterQuadGetBitmapCharMethod.invoke(quad);
+            if (bitmapChar instanceof Glyph) {
+                letterQuadSetBitmapCharMethod.invoke(quad, bitmapChar);
+            }
+            quad = letterQuadGetNextMethod.invoke(quad);
+        }
+        lettersInvalidateMethod.invoke(letters);
+    }
+
+    /**
+     * Lay out the text again before it is rendered, e.g. when the glyphs it holds were evicted.
+     * @param text the text
+     */
+    public static void refresh(BitmapText text) {
+        try {
+            needRefreshField.set(text, true);
+        } catch (IllegalAccessException e) {
+            throw new FtRuntimeException("Failed access [needRefresh] field", e);
+        }
+    }
 }
@@ -0,0 +1,160 @@
+package io.github.jmecn.font.delegate;
+
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.exception.FtRuntimeException;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The glyphs of a BitmapText on all the pages of a font, when the pages are the layers of a texture array. It takes the
+ * place of the BitmapTextPage of each page, so the text is rendered in one draw call.
+ *
+ * <p>The mesh has the buffers of a BitmapTextPage, and the layer of each vertex in {@link #LAYER}.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class TextArrayGeometry extends Geometry {
+
+    /** The buffer of the layers, one float per vertex. It is read as inTexCoord2 by Shaders/Font/FontArray.j3md. */
+    public static final VertexBuffer.Type LAYER = VertexBuffer.Type.TexCoord2;
+
+    // Letters#rewind(), Letters#nextCharacter(), Letters#isPrintable(), Letters#getCharacterSetPage(), Letters#getQuad()
+    static Method lettersRewindMethod;
+    static Method lettersNextCharacterMethod;
+    static Method lettersIsPrintableMethod;
+    static Method lettersGetPageMethod;
+    static Method lettersGetQuadMethod;
+    // LetterQuad#appendPositions(FloatBuffer), LetterQuad#appendTexCoords(FloatBuffer),
+    // LetterQuad#appendColors(ByteBuffer), LetterQuad#appendIndices(ShortBuffer, int)
+    static Method letterQuadAppendPositionsMethod;
+    static Method letterQuadAppendTexCoordsMethod;
+    static Method letterQuadAppendColorsMethod;
+    static Method letterQuadAppendIndicesMethod;
+
+    static {
+        try {
+            Class<?> letters = Class.forName("com.jme3.font.Letters");
+            lettersRewindMethod = accessible(letters.getDeclaredMethod("rewind"));
+            lettersNextCharacterMethod = accessible(letters.getDeclaredMethod("nextCharacter"));
+            lettersIsPrintableMethod = accessible(letters.getDeclaredMethod("isPrintable"));
+            lettersGetPageMethod = accessible(letters.getDeclaredMethod("getCharacterSetPage"));
+            lettersGetQuadMethod = accessible(letters.getDeclaredMethod("getQuad"));
+
+            Class<?> letterQuad = Class.forName("com.jme3.font.LetterQuad");
+            letterQuadAppendPositionsMethod = accessible(letterQuad.getDeclaredMethod("appendPositions", FloatBuffer.class));
+            letterQuadAppendTexCoordsMethod = accessible(letterQuad.getDeclaredMethod("appendTexCoords", FloatBuffer.class));
+            letterQuadAppendColorsMethod = accessible(letterQuad.getDeclaredMethod("appendColors", ByteBuffer.class));
+            letterQuadAppendIndicesMethod = accessible(letterQuad.getDeclaredMethod("appendIndices", ShortBuffer.class, int.class));
+        } catch (Exception e) {
+            throw new FtRuntimeException("Failed to init TextArrayGeometry", e);
+        }
+    }
+
+    private static Method accessible(Method method) {
+        // the methods are public, but the classes are package-private
+        method.setAccessible(true);
+        return method;
+    }
+
+    /**
+     * For serialization only. Do not use.
+     */
+    public TextArrayGeometry() {
+        super("BitmapFontArray", new Mesh());
+        setRequiresUpdates(false);
+        setBatchHint(BatchHint.Never);
+
+        Mesh mesh = getMesh();
+        mesh.setBuffer(VertexBuffer.Type.Position, 3, new float[0]);
+        mesh.setBuffer(VertexBuffer.Type.TexCoord, 2, new float[0]);
+        mesh.setBuffer(VertexBuffer.Type.Color, 4, new byte[0]);
+        mesh.getBuffer(VertexBuffer.Type.Color).setNormalized(true);
+        mesh.setBuffer(VertexBuffer.Type.Index, 3, new short[0]);
+        mesh.setBuffer(LAYER, 1, new float[0]);
+    }
+
+    /**
+     * @param charSet the character set with a texture array, see {@link FtBitmapCharacterSet#isTextureArray()}.
+     */
+    public TextArrayGeometry(FtBitmapCharacterSet charSet) {
+        this();
+        if (!charSet.isTextureArray()) {
+            throw new IllegalArgumentException("The font has no texture array: " + charSet);
+        }
+        setMaterial(charSet.getArrayMaterial());
+    }
+
+    /**
+     * Build the mesh from the printable letters of all the pages.
+     * @param letters the com.jme3.font.Letters of the BitmapText, already updated.
+     */
+    public void assemble(Object letters) {
+        try {
+            List<Object> quads = new ArrayList<>();
+            List<Integer> layers = new ArrayList<>();
+            lettersRewindMethod.invoke(letters);
+            while ((boolean) lettersNextCharacterMethod.invoke(letters)) {
+                if ((boolean) lettersIsPrintableMethod.invoke(letters)) {
+                    quads.add(lettersGetQuadMethod.invoke(letters));
+                    layers.add((int) lettersGetPageMethod.invoke(letters));
+                }
+            }
+
+            Mesh mesh = getMesh();
+            int vertices = quads.size() * 4;
+            int triangles = quads.size() * 2;
+            FloatBuffer pos = prepare(mesh.getBuffer(VertexBuffer.Type.Position), vertices * 3);
+            FloatBuffer tc = prepare(mesh.getBuffer(VertexBuffer.Type.TexCoord), vertices * 2);
+            FloatBuffer layer = prepare(mesh.getBuffer(LAYER), vertices);
+            VertexBuffer colorBuffer = mesh.getBuffer(VertexBuffer.Type.Color);
+            ByteBuffer color = (ByteBuffer) colorBuffer.getData();
+            color.rewind();
+            color = BufferUtils.ensureLargeEnough(color, vertices * 4);
+            color.limit(vertices * 4);
+            colorBuffer.updateData(color);
+            VertexBuffer indexBuffer = mesh.getBuffer(VertexBuffer.Type.Index);
+            ShortBuffer idx = (ShortBuffer) indexBuffer.getData();
+            idx.rewind();
+            idx = BufferUtils.ensureLargeEnough(idx, triangles * 3);
+            idx.limit(triangles * 3);
+            indexBuffer.updateData(idx);
+
+            for (int i = 0; i < quads.size(); i++) {
+                Object quad = quads.get(i);
+                letterQuadAppendPositionsMethod.invoke(quad, pos);
+                letterQuadAppendTexCoordsMethod.invoke(quad, tc);
+                letterQuadAppendColorsMethod.invoke(quad, color);
+                letterQuadAppendIndicesMethod.invoke(quad, idx, i);
+                float page = layers.get(i);
+                layer.put(page).put(page).put(page).put(page);
+            }
+            pos.rewind();
+            tc.rewind();
+            layer.rewind();
+            color.rewind();
+            idx.rewind();
+            mesh.updateCounts();
+            mesh.updateBound();
+        } catch (ReflectiveOperationException e) {
+            throw new FtRuntimeException("Failed to assemble the text", e);
+        }
+    }
+
+    private static FloatBuffer prepare(VertexBuffer buffer, int size) {
+        FloatBuffer data = (FloatBuffer) buffer.getData();
+        data.rewind();
+        data = BufferUtils.ensureLargeEnough(data, size);
+        data.limit(size);
+        buffer.updateData(data);
+        return data;
+    }
+}
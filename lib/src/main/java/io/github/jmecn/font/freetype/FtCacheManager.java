@@ -0,0 +1,335 @@
+package io.github.jmecn.font.freetype;
+
+import org.lwjgl.PointerBuffer;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.util.freetype.FTC_Face_Requester;
+import org.lwjgl.util.freetype.FTC_ImageType;
+import org.lwjgl.util.freetype.FTC_SBit;
+import org.lwjgl.util.freetype.FT_Face;
+import org.lwjgl.util.freetype.FT_GlyphSlot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.github.jmecn.font.freetype.FtErrors.ok;
+import static org.lwjgl.system.MemoryStack.stackPush;
+import static org.lwjgl.system.MemoryUtil.*;
+import static org.lwjgl.util.freetype.FreeType.*;
+
+/**
+ * The FreeType cache subsystem: a cmap cache of the glyph indexes and a cache of the small rendered bitmaps.
+ *
+ * <p>The rasterizer of a generator looks up its glyph indexes here, and the glyphs without border and shadow are
+ * rendered by the sbit cache. The glyphs with a border still need the outline in the slot of their face for the
+ * stroker.</p>
+ *
+ * <p>The faces are added by their font data and opened by the manager on demand in its own {@link FtLibrary}. The
+ * manager keeps at most maxFaces faces and maxSizes sizes open, and flushes the least recently used bitmaps when they
+ * take more than maxBytes. The methods are synchronized, so a manager can be shared by the generators of different
+ * threads.</p>
+ *
+ * @see <a href="https://freetype.org/freetype2/docs/reference/ft2-cache_subsystem.html">cache subsystem</a>
+ * @author yanmaoyuan
+ */
+public class FtCacheManager implements AutoCloseable {
+
+    static Logger logger = LoggerFactory.getLogger(FtCacheManager.class);
+
+    public static final long DEFAULT_MAX_BYTES = 200 * 1024L;
+
+    // the glyph index of the slot before a lookup, it is changed when the cache loads a glyph
+    private static final int NOT_LOADED = -1;
+
+    private final FtLibrary library;
+    private final FTC_Face_Requester requester;
+    private final long manager;
+    private final long cmapCache;
+    private final long sbitCache;
+
+    // font data of the face ids, see addFace
+    private final Map<Long, FaceSource> faces = new HashMap<>();
+    private long nextFaceId = 1;
+
+    private long lookupCount;
+    private long missCount;
+    private long faceMissCount;
+    private boolean isClosed;
+
+    private static final class FaceSource {
+        final ByteBuffer data;
+        final int faceIndex;
+
+        FaceSource(ByteBuffer data, int faceIndex) {
+            this.data = data;
+            this.faceIndex = faceIndex;
+        }
+    }
+
+    /**
+     * A small bitmap, copied from the cache.
+     */
+    public static final class SBit {
+        private final int width;
+        private final int height;
+        private final int left;
+        private final int top;
+        private final int pitch;
+        private final int format;
+        private final int xAdvance;
+        private final int yAdvance;
+        private final byte[] buffer;
+
+        SBit(FTC_SBit sbit) {
+            width = sbit.width() & 0xFF;
+            height = sbit.height() & 0xFF;
+            left = sbit.left();
+            top = sbit.top();
+            pitch = sbit.pitch();
+            format = sbit.format() & 0xFF;
+            xAdvance = sbit.xadvance();
+            yAdvance = sbit.yadvance();
+            int size = Math.abs(pitch) * height;
+            buffer = new byte[size];
+            if (size > 0 && sbit.buffer(size) != null) {
+                sbit.buffer(size).get(buffer);
+            }
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getPitch() {
+            return pitch;
+        }
+
+        /**
+         * @return the pixel mode, e.g. {@link org.lwjgl.util.freetype.FreeType#FT_PIXEL_MODE_GRAY}
+         */
+        public int getFormat() {
+            return format;
+        }
+
+        public int getXAdvance() {
+            return xAdvance;
+        }
+
+        public int getYAdvance() {
+            return yAdvance;
+        }
+
+        /**
+         * @return the rows of the bitmap, from the top
+         */
+        public byte[] getBuffer() {
+            return buffer;
+        }
+    }
+
+    public FtCacheManager() {
+        this(0, 0, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxFaces maximum number of open faces, 0 for the FreeType default.
+     * @param maxSizes maximum number of open sizes, 0 for the FreeType default.
+     * @param maxBytes maximum number of bytes of the cached bitmaps, 0 for the FreeType default.
+     */
+    public FtCacheManager(int maxFaces, int maxSizes, long maxBytes) {
+        if (maxFaces < 0 || maxSizes < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        library = new FtLibrary();
+        requester = FTC_Face_Requester.create(this::requestFace);
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer ptr = stack.mallocPointer(1);
+            ok(FTC_Manager_New(library.address(), maxFaces, maxSizes, maxBytes, requester, null, ptr));
+            manager = ptr.get(0);
+            ok(FTC_CMapCache_New(manager, ptr));
+            cmapCache = ptr.get(0);
+            ok(FTC_SBitCache_New(manager, ptr));
+            sbitCache = ptr.get(0);
+        } catch (RuntimeException e) {
+            requester.free();
+            library.close();
+            throw e;
+        }
+    }
+
+    // FTC_Face_Requester: open a face when it is not in the cache
+    private int requestFace(long faceId, long libraryAddress, long requestData, long aface) {
+        FaceSource source = faces.get(faceId);
+        if (source == null) {
+            return FT_Err_Invalid_Argument;
+        }
+        faceMissCount++;
+        return FT_New_Memory_Face(libraryAddress, source.data.duplicate(), source.faceIndex, memPointerBuffer(aface, 1));
+    }
+
+    /**
+     * Add a face to the cache, it is opened when it is looked up.
+     * @param fontData the font file in a direct buffer, it must not be changed until the face is removed.
+     * @param faceIndex the face index
+     * @return the face id
+     */
+    public synchronized long addFace(ByteBuffer fontData, int faceIndex) {
+        if (!fontData.isDirect()) {
+            throw new IllegalArgumentException("Only support DirectByteBuffer");
+        }
+        long faceId = nextFaceId++;
+        faces.put(faceId, new FaceSource(fontData, faceIndex));
+        return faceId;
+    }
+
+    /**
+     * Remove a face and flush its sizes and bitmaps from the cache.
+     * @param faceId the face id
+     */
+    public synchronized void removeFace(long faceId) {
+        if (!isClosed && faces.containsKey(faceId)) {
+            FTC_Manager_RemoveFaceID(manager, faceId);
+            faces.remove(faceId);
+        }
+    }
+
+    /**
+     * @param faceId the face id
+     * @param codepoint the character code
+     * @return the glyph index in the default charmap of the face, 0 if the face has no such glyph.
+     */
+    public synchronized int getCharIndex(long faceId, int codepoint) {
+        checkFace(faceId);
+        return FTC_CMapCache_Lookup(cmapCache, faceId, -1, codepoint);
+    }
+
+    /**
+     * Look up a small bitmap in the sbit cache. The bitmaps bigger than 255 pixels are not cached, they have no pixels.
+     * @param faceId the face id
+     * @param pixelSize the pixel height
+     * @param glyphIndex the glyph index
+     * @param loadFlags the load flags, FT_LOAD_RENDER is added.
+     * @return a copy of the cached bitmap
+     */
+    public synchronized SBit lookupSBit(long faceId, int pixelSize, int glyphIndex, int loadFlags) {
+        checkFace(faceId);
+        try (MemoryStack stack = stackPush()) {
+            FTC_ImageType type = newImageType(stack, faceId, pixelSize, loadFlags | FT_LOAD_RENDER);
+            PointerBuffer sbit = stack.mallocPointer(1);
+            PointerBuffer node = stack.mallocPointer(1);
+            long slot = beforeLookup(faceId);
+            ok(FTC_SBitCache_Lookup(sbitCache, type, glyphIndex, sbit, node));
+            afterLookup(slot);
+            try {
+                return new SBit(FTC_SBit.create(sbit.get(0)));
+            } finally {
+                FTC_Node_Unref(node.get(0), manager);
+            }
+        }
+    }
+
+    // FTC_ImageType is read only in lwjgl, the fields are written to the memory directly
+    private static FTC_ImageType newImageType(MemoryStack stack, long faceId, int pixelSize, int loadFlags) {
+        long address = stack.ncalloc(FTC_ImageType.ALIGNOF, 1, FTC_ImageType.SIZEOF);
+        memPutAddress(address + FTC_ImageType.FACE_ID, faceId);
+        memPutInt(address + FTC_ImageType.WIDTH, 0);
+        memPutInt(address + FTC_ImageType.HEIGHT, pixelSize);
+        memPutInt(address + FTC_ImageType.FLAGS, loadFlags);
+        return FTC_ImageType.create(address);
+    }
+
+    // FreeType has no counters, a miss is seen from the glyph slot of the cached face which the glyph is loaded to.
+    private long beforeLookup(long faceId) {
+        lookupCount++;
+        try (MemoryStack stack = stackPush()) {
+            PointerBuffer face = stack.mallocPointer(1);
+            ok(FTC_Manager_LookupFace(manager, faceId, face));
+            long slot = FT_Face.create(face.get(0)).glyph().address();
+            memPutInt(slot + FT_GlyphSlot.GLYPH_INDEX, NOT_LOADED);
+            return slot;
+        }
+    }
+
+    private void afterLookup(long slot) {
+        if (memGetInt(slot + FT_GlyphSlot.GLYPH_INDEX) != NOT_LOADED) {
+            missCount++;
+        }
+    }
+
+    private void checkFace(long faceId) {
+        if (isClosed) {
+            throw new IllegalStateException("The cache manager is closed");
+        }
+        if (!faces.containsKey(faceId)) {
+            throw new IllegalArgumentException("Unknown face id: " + faceId);
+        }
+    }
+
+    /**
+     * @return number of the bitmap lookups
+     */
+    public synchronized long getLookupCount() {
+        return lookupCount;
+    }
+
+    /**
+     * @return number of the bitmap lookups found in the cache
+     */
+    public synchronized long getHitCount() {
+        return lookupCount - missCount;
+    }
+
+    /**
+     * @return number of the bitmap lookups which rendered the glyph
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return number of times a face was opened
+     */
+    public synchronized long getFaceMissCount() {
+        return faceMissCount;
+    }
+
+    public synchronized void resetCounters() {
+        lookupCount = 0;
+        missCount = 0;
+        faceMissCount = 0;
+    }
+
+    /**
+     * Flush all the faces, sizes and bitmaps, the faces stay added.
+     */
+    public synchronized void reset() {
+        if (!isClosed) {
+            FTC_Manager_Reset(manager);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (!isClosed) {
+            FTC_Manager_Done(manager);
+            requester.free();
+            library.close();
+            faces.clear();
+            isClosed = true;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.lwjgl.util.freetype.FT_Vector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
 import static io.github.jmecn.font.freetype.FtErrors.ok;
@@ -28,9 +29,27 @@ public class FtFace implements AutoCloseable {
     private FtSize size;
     private boolean isClosed;
 
+    // the font file read by the face, it must be kept until the face is closed
+    private final ByteBuffer data;
+    private final FtStream stream;
+
     public FtFace(long address) {
+        this(address, null, null);
+    }
+
+    FtFace(long address, ByteBuffer data) {
+        this(address, data, null);
+    }
+
+    FtFace(long address, FtStream stream) {
+        this(address, null, stream);
+    }
+
+    private FtFace(long address, ByteBuffer data, FtStream stream) {
         this.face = FT_Face.create(address);
         this.glyph = new FtGlyphSlot(face.glyph());
+        this.data = data;
+        this.stream = stream;
         this.isClosed = false;
     }
 
@@ -42,10 +61,24 @@ public class FtFace implements AutoCloseable {
     public void close() {
         if (!isClosed) {
             FT_Done_Face(face);
+            if (stream != null) {
+                stream.close();
+            }
             isClosed = true;
         }
     }
 
+    /**
+     * @return the stream read by the face, or null if the face is not opened over a stream.
+     */
+    public FtStream getStream() {
+        return stream;
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
     public long getNumFaces() {
         return face.num_faces();
     }
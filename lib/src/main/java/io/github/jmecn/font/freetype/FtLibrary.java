@@ -1,14 +1,22 @@
 package io.github.jmecn.font.freetype;
 
+import io.github.jmecn.font.exception.FtRuntimeException;
 import io.github.jmecn.font.utils.FileUtils;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.system.MemoryStack;
+import org.lwjgl.util.freetype.FT_Open_Args;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.lwjgl.system.MemoryStack.stackPush;
 import static org.lwjgl.util.freetype.FreeType.*;
@@ -27,6 +35,9 @@ public class FtLibrary implements AutoCloseable {
     public static final int DEFAULT_SPREAD = 8;
     public static final int MAX_SPREAD = 32;
 
+    // mapped font files, see mapFile
+    private static final Map<String, WeakReference<ByteBuffer>> MAPPINGS = new HashMap<>();
+
     private long address;
     private final String version;
     private boolean isClosed;
@@ -114,10 +125,80 @@ public class FtLibrary implements AutoCloseable {
         }
     }
 
+    /**
+     * Open a face over a mapped font file. The file is not read in memory, the pages are loaded by the OS when the face
+     * reads them. The faces of a font collection share the mapping.
+     * @param file the font file
+     * @param faceIndex the face index
+     * @return the face
+     */
+    public FtFace newMappedFace(File file, long faceIndex) {
+        return newMemoryFace(mapFile(file), faceIndex);
+    }
+
+    /**
+     * Map a font file, the mapping is shared while it is used, e.g. by the faces of a font collection.
+     * @param file the font file
+     * @return a read only mapping of the file
+     */
+    public static ByteBuffer mapFile(File file) {
+        if (!file.isFile()) {
+            throw new IllegalArgumentException("File not found: " + file.getPath());
+        }
+        String key = file.getAbsolutePath();
+        synchronized (MAPPINGS) {
+            WeakReference<ByteBuffer> reference = MAPPINGS.get(key);
+            ByteBuffer buffer = reference == null ? null : reference.get();
+            if (buffer != null) {
+                return buffer;
+            }
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new FtRuntimeException("Map font file failed: " + file.getPath(), e);
+            }
+            MAPPINGS.values().removeIf(it -> it.get() == null);
+            MAPPINGS.put(key, new WeakReference<>(buffer));
+            logger.debug("map font file: {}, {} Bytes", key, buffer.capacity());
+            return buffer;
+        }
+    }
+
+    /**
+     * Open a face over a stream, the font file is read on demand and never loaded in memory. It suits the font files
+     * which are not on the file system, e.g. in a jar. A seek backwards opens the stream again, so the loading is
+     * slower than the other faces.
+     * @param source opens the font file
+     * @param size size of the font file, or -1 if it is unknown
+     * @param faceIndex the face index
+     * @return the face
+     */
+    public FtFace newStreamFace(Supplier<InputStream> source, long size, long faceIndex) {
+        FtStream stream = new FtStream(source, size);
+        try (MemoryStack stack = stackPush()) {
+            FT_Open_Args args = FT_Open_Args.calloc(stack)
+                    .flags(FT_OPEN_STREAM)
+                    .stream$(stream.getStream());
+            PointerBuffer ptr = stack.mallocPointer(1);
+            ok(FT_Open_Face(address, args, faceIndex, ptr));
+            return new FtFace(ptr.get(0), stream);
+        } catch (RuntimeException e) {
+            stream.close();
+            throw e;
+        }
+    }
+
     public FtFace newFace(InputStream inputStream) {
         return newFace(inputStream, 0);
     }
 
+    /**
+     * Open a face over a copy of the stream in memory. The stream is read on the heap, then copied to a direct buffer,
+     * see {@link #newMappedFace(File, long)} and {@link #newStreamFace(Supplier, long, long)} for the big font files.
+     * @param inputStream the font file
+     * @param faceIndex the face index
+     * @return the face
+     */
     public FtFace newFace(InputStream inputStream, long faceIndex) {
         byte[] data = FileUtils.readAllBytes(inputStream);
         if (data.length == 0) {
@@ -143,7 +224,7 @@ public class FtLibrary implements AutoCloseable {
         try (MemoryStack stack = stackPush()) {
             PointerBuffer ptr = stack.mallocPointer(1);
             ok(FT_New_Memory_Face(address, buffer, faceIndex, ptr));
-            return new FtFace(ptr.get(0));
+            return new FtFace(ptr.get(0), buffer);
         }
     }
 
@@ -0,0 +1,174 @@
+package io.github.jmecn.font.freetype;
+
+import org.lwjgl.util.freetype.FT_Stream;
+import org.lwjgl.util.freetype.FT_Stream_IoFunc;
+import org.lwjgl.util.freetype.FT_Stream_IoFuncI;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.function.Supplier;
+
+import static org.lwjgl.system.MemoryUtil.*;
+
+/**
+ * A FreeType stream over an {@link InputStream}, the font file is read on demand and never loaded in memory.
+ *
+ * <p>FreeType reads the tables of a font at random offsets, so a seek backwards opens the input stream again and
+ * skips to the offset. The stream is used by one face, it is closed with the face.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class FtStream implements AutoCloseable {
+
+    static Logger logger = LoggerFactory.getLogger(FtStream.class);
+
+    private final Supplier<InputStream> source;
+    private final FT_Stream stream;
+    private final FT_Stream_IoFunc read;
+
+    private InputStream in;
+    private ReadableByteChannel channel;
+    // position of the input stream
+    private long position;
+    private int reopenCount;
+    private boolean isClosed;
+
+    /**
+     * @param source opens the font file, it is called again for each seek backwards.
+     * @param size size of the font file, or -1 to read the file once to get it.
+     */
+    public FtStream(Supplier<InputStream> source, long size) {
+        this.source = source;
+        if (size < 0) {
+            size = measure(source);
+        }
+        if (size == 0) {
+            throw new IllegalArgumentException("input stream is empty");
+        }
+        this.read = FT_Stream_IoFunc.create(new Reader());
+        this.stream = FT_Stream.calloc();
+        stream.size(size).pos(0).read(read);
+    }
+
+    private static long measure(Supplier<InputStream> source) {
+        byte[] buffer = new byte[8192];
+        long size = 0;
+        try (InputStream in = source.get()) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                size += n;
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Read input stream failed", e);
+        }
+        return size;
+    }
+
+    public FT_Stream getStream() {
+        return stream;
+    }
+
+    public long getSize() {
+        return stream.size();
+    }
+
+    /**
+     * @return number of times the input stream was opened again to seek backwards
+     */
+    public int getReopenCount() {
+        return reopenCount;
+    }
+
+    // The generated callback of lwjgl 3.3.6 returns the unsigned long result as a float, so FreeType gets a wrong
+    // number of bytes read. The arguments are the same, only the result is written as a C long.
+    private final class Reader implements FT_Stream_IoFuncI {
+        @Override
+        public void callback(long ret, long args) {
+            long result = invoke(
+                    memGetAddress(memGetAddress(args)),
+                    memGetCLong(memGetAddress(args + POINTER_SIZE)),
+                    memGetAddress(memGetAddress(args + 2L * POINTER_SIZE)),
+                    memGetCLong(memGetAddress(args + 3L * POINTER_SIZE)));
+            memPutCLong(ret, result);
+        }
+
+        @Override
+        public long invoke(long stream, long offset, long buffer, long count) {
+            return read(offset, buffer, count);
+        }
+    }
+
+    // FT_Stream_IoFunc: a read of count bytes at offset, or a seek if count is 0.
+    private long read(long offset, long buffer, long count) {
+        try {
+            seek(offset);
+            if (count == 0) {
+                return 0;
+            }
+            ByteBuffer dst = memByteBuffer(buffer, (int) count);
+            while (dst.hasRemaining() && channel.read(dst) >= 0) {
+                // read until the buffer is full or the end of the stream
+            }
+            position += dst.position();
+            return dst.position();
+        } catch (IOException | RuntimeException e) {
+            logger.error("Read font stream failed, offset:{}, count:{}", offset, count, e);
+            // a seek returns 0 on success, a read returns the number of bytes read
+            return count == 0 ? 1 : 0;
+        }
+    }
+
+    private void seek(long offset) throws IOException {
+        if (in == null || offset < position) {
+            if (in != null) {
+                closeInput();
+                reopenCount++;
+            }
+            in = source.get();
+            channel = Channels.newChannel(in);
+            position = 0;
+        }
+        while (position < offset) {
+            long n = in.skip(offset - position);
+            if (n <= 0) {
+                // skip may return 0 before the end of the stream
+                if (in.read() < 0) {
+                    throw new EOFException("Seek beyond the end of the stream: " + offset);
+                }
+                n = 1;
+            }
+            position += n;
+        }
+    }
+
+    private void closeInput() {
+        if (in != null) {
+            try {
+                in.close();
+            } catch (IOException e) {
+                logger.warn("Close font stream failed", e);
+            }
+            in = null;
+            channel = null;
+        }
+    }
+
+    /**
+     * Free the stream, it must be called after the face is closed.
+     */
+    @Override
+    public void close() {
+        if (!isClosed) {
+            closeInput();
+            read.free();
+            stream.free();
+            isClosed = true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.jmecn.font.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rasterize the glyphs of an incremental font on a background thread.
+ *
+ * <p>The thread has its own FreeType library and face. It only renders the glyphs, the results are polled and packed
+ * into the atlas on the thread which owns the font, so the pages are never written concurrently.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class AsyncGlyphRenderer implements AutoCloseable {
+
+    static Logger logger = LoggerFactory.getLogger(AsyncGlyphRenderer.class);
+
+    /**
+     * A rendered glyph.
+     */
+    public static final class Result {
+        private final int ch;
+        private final GlyphBitmap bitmap;
+
+        Result(int ch, GlyphBitmap bitmap) {
+            this.ch = ch;
+            this.bitmap = bitmap;
+        }
+
+        public int getChar() {
+            return ch;
+        }
+
+        /**
+         * @return the glyph with an owned image, or null if the font has no such glyph.
+         */
+        public GlyphBitmap getBitmap() {
+            return bitmap;
+        }
+    }
+
+    private final FtFontParameter parameter;
+    private final GlyphRasterizer rasterizer;
+    private final ExecutorService executor;
+    // the requested characters which are not polled yet
+    private final Set<Integer> requested = ConcurrentHashMap.newKeySet();
+    private final Queue<Result> done = new ConcurrentLinkedQueue<>();
+
+    AsyncGlyphRenderer(GlyphRasterizer rasterizer, FtFontParameter parameter) {
+        this.parameter = parameter;
+        this.rasterizer = rasterizer;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "FtFontGenerator-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Render a glyph in background. The request is ignored if the character is already requested.
+     * @param ch the character
+     * @param baseLine base line
+     * @return true if the request is accepted
+     */
+    public boolean request(int ch, float baseLine) {
+        if (!requested.add(ch)) {
+            return false;
+        }
+        try {
+            executor.execute(() -> done.add(new Result(ch, render(ch, baseLine))));
+        } catch (RejectedExecutionException e) {
+            requested.remove(ch);
+            return false;
+        }
+        return true;
+    }
+
+    private GlyphBitmap render(int ch, float baseLine) {
+        try {
+            GlyphBitmap bitmap = rasterizer.render((char) ch, parameter, rasterizer.getStroker(), baseLine);
+            return bitmap == null ? null : bitmap.detach();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to render glyph:{}", (char) ch, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the next rendered glyph, or null if none is ready.
+     */
+    public Result poll() {
+        Result result = done.poll();
+        if (result != null) {
+            requested.remove(result.ch);
+        }
+        return result;
+    }
+
+    /**
+     * @return number of the glyphs requested and not polled yet.
+     */
+    public int getPending() {
+        return requested.size();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("Async glyph thread is still running");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rasterizer.close();
+        Result result;
+        while ((result = done.poll()) != null) {
+            if (result.bitmap != null) {
+                result.bitmap.dispose();
+            }
+        }
+        requested.clear();
+    }
+}
@@ -6,8 +6,6 @@ import com.jme3.font.BitmapText;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.FastMath;
 import com.jme3.texture.Image;
-import com.jme3.texture.image.ImageRaster;
-import com.jme3.util.MipMapGenerator;
 import io.github.jmecn.font.FtBitmapCharacterSet;
 import io.github.jmecn.font.Glyph;
 import io.github.jmecn.font.delegate.BitmapFontDelegate;
@@ -17,21 +15,30 @@ import io.github.jmecn.font.exception.FtRuntimeException;
 import io.github.jmecn.font.generator.enums.RenderMode;
 import io.github.jmecn.font.Direction;
 import io.github.jmecn.font.packer.*;
+import io.github.jmecn.font.packer.listener.FtFontEvictListener;
 import io.github.jmecn.font.packer.listener.FtFontMaterialAddListener;
 import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
 import io.github.jmecn.font.packer.strategy.SkylineStrategy;
+import io.github.jmecn.font.utils.FileUtils;
 import io.github.jmecn.font.utils.ImageUtils;
 import net.bytebuddy.ByteBuddy;
 import net.bytebuddy.agent.ByteBuddyAgent;
 import net.bytebuddy.implementation.MethodDelegation;
 import net.bytebuddy.matcher.ElementMatchers;
-import org.lwjgl.util.freetype.FreeType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 import static net.bytebuddy.dynamic.loading.ClassReloadingStrategy.fromInstalledAgent;
 import static org.lwjgl.util.freetype.FreeType.*;
@@ -75,18 +82,43 @@ public class FtFontGenerator implements AutoCloseable {
     boolean bitmapped;
     private String name;
 
+    // the font source, used to open the faces of worker threads
+    private final int faceIndex;
+    private final ByteBuffer fontData;
+    private final Supplier<InputStream> source;
+    private final long sourceSize;
+
+    private GlyphRasterizer rasterizer;
+
+    // the shared cmap and sbit caches, see setCacheManager
+    private FtCacheManager cacheManager;
+    private long cacheFaceId;
+
+    // pixels of the glyphs drawn straight to the page, see ImageUtils.newCoverageLut
+    private int[] coverageLut;
+    private final ColorRGBA lutColor = new ColorRGBA();
+    private float lutGamma;
+    private int lutRenderCount;
+    private int lutDrawCount;
+
+    // parallel generation
+    private BlockingQueue<GlyphRasterizer> workers;
+    private List<GlyphRasterizer> allWorkers;
+    private ExecutorService executor;
+
     public FtFontGenerator(File file) {
         this(file, 0);
     }
 
+    /**
+     * Create a generator over a mapped font file, the faces of the worker threads and the other faces of a font
+     * collection share the mapping.
+     *
+     * @param file the font file
+     * @param faceIndex the face index
+     */
     public FtFontGenerator(File file, int faceIndex) {
-        library = new FtLibrary();
-        face = library.newFace(file, faceIndex);
-        name = face.getFamilyName();
-        if (checkForBitmapFont()) {
-            return;
-        }
-        setPixelSizes(0, 15);
+        this(FtLibrary.mapFile(file), faceIndex);
     }
 
     public FtFontGenerator(InputStream in) {
@@ -94,12 +126,70 @@ public class FtFontGenerator implements AutoCloseable {
     }
 
     public FtFontGenerator(InputStream in, int faceIndex) {
+        this(readFontData(in), faceIndex);
+    }
+
+    /**
+     * Create a generator over the font data in memory, the data is not copied. The faces of the worker threads share
+     * it too.
+     *
+     * @param fontData the font file in a direct buffer, it must not be changed until the generator is closed.
+     * @param faceIndex the face index
+     */
+    public FtFontGenerator(ByteBuffer fontData, int faceIndex) {
+        this.faceIndex = faceIndex;
+        this.fontData = fontData;
+        this.source = null;
+        this.sourceSize = -1;
         library = new FtLibrary();
-        face = library.newFace(in, faceIndex);
+        face = library.newMemoryFace(fontData, faceIndex);
+        init();
+    }
 
+    /**
+     * Create a generator over a stream, the font file is read on demand and never loaded in memory. The faces of the
+     * worker threads open their own streams.
+     *
+     * @param source opens the font file, it is called again for each seek backwards.
+     * @param size size of the font file, or -1 if it is unknown
+     * @param faceIndex the face index
+     */
+    public FtFontGenerator(Supplier<InputStream> source, long size, int faceIndex) {
+        this.faceIndex = faceIndex;
+        this.fontData = null;
+        this.source = source;
+        library = new FtLibrary();
+        face = library.newStreamFace(source, size, faceIndex);
+        // the workers don't measure the stream again
+        this.sourceSize = face.getStream().getSize();
+        init();
     }
+
+    private void init() {
+        name = face.getFamilyName();
+        if (checkForBitmapFont()) {
+            rasterizer = new GlyphRasterizer(library, face, true);
+            return;
+        }
+        rasterizer = new GlyphRasterizer(library, face, false);
+        setPixelSizes(0, 15);
+    }
+
+    static ByteBuffer readFontData(InputStream in) {
+        byte[] data = FileUtils.readAllBytes(in);
+        if (data.length == 0) {
+            throw new IllegalArgumentException("input stream is empty");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        buffer.flip();
+        return buffer;
+    }
+
     @Override
     public void close() {
+        setCacheManager(null);
+        closeWorkers();
         face.close();
         library.close();
     }
@@ -108,6 +198,56 @@ public class FtFontGenerator implements AutoCloseable {
         return face;
     }
 
+    /**
+     * @return the font file in memory, or null if the generator reads a stream.
+     */
+    public ByteBuffer getFontData() {
+        return fontData == null ? null : fontData.duplicate();
+    }
+
+    public int getFaceIndex() {
+        return faceIndex;
+    }
+
+    /**
+     * Look up the glyph indexes and render the glyphs drawn straight to the page in a cache manager, it may be shared
+     * by the generators of other font files. The generators over a stream have no font data to add to the cache,
+     * they keep using their face. The worker threads always use their own faces.
+     * @param cacheManager the cache manager, or null to use the face.
+     */
+    public synchronized void setCacheManager(FtCacheManager cacheManager) {
+        if (this.cacheManager != null) {
+            rasterizer.setCacheManager(null, 0);
+            this.cacheManager.removeFace(cacheFaceId);
+            this.cacheManager = null;
+        }
+        if (cacheManager == null) {
+            return;
+        }
+        if (fontData == null) {
+            logger.warn("The stream face of {} is not cached", name);
+            return;
+        }
+        cacheFaceId = cacheManager.addFace(fontData, faceIndex);
+        this.cacheManager = cacheManager;
+        rasterizer.setCacheManager(cacheManager, cacheFaceId);
+    }
+
+    public FtCacheManager getCacheManager() {
+        return cacheManager;
+    }
+
+    /**
+     * @param codepoint the character code
+     * @return the glyph index, 0 if the font has no such glyph.
+     */
+    public int getCharIndex(int codepoint) {
+        if (cacheManager != null) {
+            return cacheManager.getCharIndex(cacheFaceId, codepoint);
+        }
+        return face.getCharIndex(codepoint);
+    }
+
     private boolean checkForBitmapFont () {
         if (face.hasFixedSizes() && face.hasHorizontal() && face.loadChar(0x20)) {
             FtGlyphSlot slot = face.getGlyph();
@@ -148,7 +288,8 @@ public class FtFontGenerator implements AutoCloseable {
     public BitmapFont generateFont(FtFontParameter parameter, FtBitmapCharacterSet data) {
         generateData(parameter, data);
 
-        if (data.getPageSize() == 0) {
+        // the pages of a texture array share one material
+        if (data.getPageSize() == 0 && !data.isTextureArray()) {
             throw new FtRuntimeException("Unable to create a font with no images.");
         }
         BitmapFont font = new BitmapFont();
@@ -240,59 +381,21 @@ public class FtFontGenerator implements AutoCloseable {
         data.ascent -= data.capHeight;
         data.down = -data.lineHeight;
 
-        FtStroker stroker = null;
-        if (parameter.getBorderWidth() > 0) {
-            stroker = library.newStroker();
-            stroker.set(FtLibrary.int26D6(parameter.getBorderWidth()),
-                    parameter.isBorderStraight() ? FreeType.FT_STROKER_LINECAP_BUTT : FreeType.FT_STROKER_LINECAP_ROUND,
-                    parameter.isBorderStraight() ? FreeType.FT_STROKER_LINEJOIN_MITER_FIXED : FreeType.FT_STROKER_LINEJOIN_ROUND,
-                    0);
-        }
-
-        // Create glyphs largest height first for best packing.
-        int[] heights = new int[charactersLength];
-        for (int i = 0; i < charactersLength; i++) {
-            char c = characters[i];
-
-            int height = face.loadChar(c, flags) ? FtLibrary.from26D6(face.getGlyph().getMetrics().getHeight()) : 0;
-            heights[i] = height;
-
-            if (c == '\0') {
-                Glyph missingGlyph = createGlyph('\0', parameter, stroker, baseLine, packer);
-                if (missingGlyph != null && missingGlyph.getWidth() != 0 && missingGlyph.getHeight() != 0) {
-                    data.addCharacter('\0', missingGlyph);
-                    data.missingGlyph = missingGlyph;
-                    data.getGlyphs().add(missingGlyph);
-                }
-            }
-        }
-        int heightsCount = heights.length;
-        while (heightsCount > 0) {
-            int best = 0;
-            int maxHeight = heights[0];
-            for (int i = 1; i < heightsCount; i++) {
-                int height = heights[i];
-                if (height > maxHeight) {
-                    maxHeight = height;
-                    best = i;
-                }
-            }
+        FtStroker stroker = GlyphRasterizer.newStroker(library, parameter);
 
-            char c = characters[best];
-            if (data.getCharacter(c) == null) {
-                Glyph glyph = createGlyph(c, parameter, stroker, baseLine, packer);
-                if (glyph != null) {
-                    data.addCharacter(c, glyph);
-                    data.getGlyphs().add(glyph);
-                }
+        // Render each character once, then pack them all in the order of the pack strategy.
+        List<GlyphBitmap> bitmaps;
+        if (parameter.getParallelism() > 1 && !bitmapped && !incremental) {
+            try {
+                bitmaps = rasterizeParallel(characters, parameter, baseLine, data);
+            } finally {
+                // the threads and the faces of the workers are not kept after the generation
+                closeWorkers();
             }
-
-            heightsCount--;
-            heights[best] = heights[heightsCount];
-            char tmpChar = characters[best];
-            characters[best] = characters[heightsCount];
-            characters[heightsCount] = tmpChar;
+        } else {
+            bitmaps = rasterize(characters, parameter, stroker, baseLine, data);
         }
+        packGlyphs(bitmaps, parameter, packer, data);
 
         if (stroker != null && !incremental) {
             stroker.close();
@@ -303,11 +406,38 @@ public class FtFontGenerator implements AutoCloseable {
             data.setParameter(parameter);
             data.setStroker(stroker);
             data.setPacker(packer);
+
+            if (parameter.getMaxPages() > 0 || parameter.getMaxBytes() > 0) {
+                // the glyphs of the characters are never evicted
+                for (Glyph glyph : data.getGlyphs()) {
+                    glyph.setPinned(true);
+                }
+                if (parameter.getMaxPages() > 0 && packer.getPages().size() >= parameter.getMaxPages()) {
+                    logger.warn("The characters use {} pages, no page is left for incremental glyphs, max pages:{}", packer.getPages().size(), parameter.getMaxPages());
+                }
+                if (parameter.getMaxBytes() > 0 && packer.getCommittedBytes() + packer.getPageBytes() > parameter.getMaxBytes()) {
+                    logger.warn("The characters use {} bytes, no page is left for incremental glyphs, max bytes:{}", packer.getCommittedBytes(), parameter.getMaxBytes());
+                }
+                packer.setMaxPages(parameter.getMaxPages());
+                packer.setMaxBytes(parameter.getMaxBytes());
+                packer.addListener(new FtFontEvictListener(data));
+            }
+            if (parameter.isAsync() && !bitmapped) {
+                data.setAsyncRenderer(newAsyncRenderer(parameter));
+            }
         }
 
         // Generate kerning.
         parameter.setKerning(parameter.isKerning() & face.hasKerning());
-        generateKerning(parameter, data, characters, charactersLength);
+        if (parameter.isKerning() && parameter.isLazyKerning()) {
+            KerningCache kerningCache = new KerningCache(this, parameter.getSize());
+            for (Glyph glyph : data.getGlyphs()) {
+                glyph.setKerningCache(kerningCache);
+            }
+            data.setKerningCache(kerningCache);
+        } else {
+            generateKerning(parameter, data, characters, charactersLength);
+        }
 
         // Set space glyph.
         Glyph spaceGlyph = data.getCharacter(' ');
@@ -323,15 +453,220 @@ public class FtFontGenerator implements AutoCloseable {
 
         if (parameter.isGenMipMaps()) {
             // Generate mip maps.
-            for (Page page : packer.getPages()) {
-                Image image = page.getImage();
-                MipMapGenerator.generateMipMaps(image);
-                page.setDirty(false);
-            }
+            packer.updateMipMaps();
         }
         return data;
     }
 
+    /**
+     * Render the characters on the calling thread.
+     *
+     * @param characters the characters
+     * @param parameter font parameter
+     * @param stroker stroker
+     * @param baseLine base line
+     * @param data character glyph data
+     * @return the rendered glyphs in the order of the characters
+     */
+    private List<GlyphBitmap> rasterize(char[] characters, FtFontParameter parameter, FtStroker stroker, float baseLine, FtBitmapCharacterSet data) {
+        List<GlyphBitmap> bitmaps = new ArrayList<>(characters.length);
+        // skip the duplicated characters and the characters already generated
+        BitSet seen = new BitSet(65536);
+        for (char c : characters) {
+            if (seen.get(c) || data.getCharacter(c) != null) {
+                continue;
+            }
+            seen.set(c);
+            GlyphBitmap bitmap = rasterizer.render(c, parameter, stroker, baseLine);
+            if (bitmap != null) {
+                // keep the pixels, the scratch images are reused by the next character
+                bitmaps.add(bitmap.detach());
+            }
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Render the characters on the worker threads. The result is the same as {@link #rasterize}, so the atlas is
+     * identical to the serial mode.
+     *
+     * @param characters the characters
+     * @param parameter font parameter
+     * @param baseLine base line
+     * @param data character glyph data
+     * @return the rendered glyphs in the order of the characters
+     */
+    private List<GlyphBitmap> rasterizeParallel(char[] characters, FtFontParameter parameter, float baseLine, FtBitmapCharacterSet data) {
+        BitSet seen = new BitSet(65536);
+        List<Future<GlyphBitmap>> futures = new ArrayList<>(characters.length);
+        startWorkers(parameter);
+        for (char c : characters) {
+            if (seen.get(c) || data.getCharacter(c) != null) {
+                continue;
+            }
+            seen.set(c);
+            futures.add(executor.submit(() -> {
+                GlyphRasterizer worker = workers.take();
+                try {
+                    GlyphBitmap bitmap = worker.render(c, parameter, worker.getStroker(), baseLine);
+                    return bitmap == null ? null : bitmap.detach();
+                } finally {
+                    workers.put(worker);
+                }
+            }));
+        }
+
+        List<GlyphBitmap> bitmaps = new ArrayList<>(futures.size());
+        for (int i = 0; i < futures.size(); i++) {
+            GlyphBitmap bitmap;
+            try {
+                bitmap = futures.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(futures, i);
+                dispose(bitmaps);
+                throw new FtRuntimeException("Interrupted while generating glyphs", e);
+            } catch (ExecutionException e) {
+                cancel(futures, i);
+                dispose(bitmaps);
+                throw new FtRuntimeException("Failed to generate glyph", e.getCause());
+            }
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            }
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Sort the glyphs with the comparator of the pack strategy, place them all, then draw them to the pages.
+     *
+     * @param bitmaps the rendered glyphs
+     * @param parameter font parameter
+     * @param packer packer
+     * @param data character glyph data
+     */
+    private void packGlyphs(List<GlyphBitmap> bitmaps, FtFontParameter parameter, Packer packer, FtBitmapCharacterSet data) {
+        List<Rectangle> rects = new ArrayList<>(bitmaps.size());
+        Map<Rectangle, GlyphBitmap> bitmapOfRect = new IdentityHashMap<>(bitmaps.size());
+        for (GlyphBitmap bitmap : bitmaps) {
+            if (bitmap.getGlyph().getChar() == '\0' && (bitmap.getWidth() == 0 || bitmap.getHeight() == 0)) {
+                // an empty missing glyph is neither packed nor registered, the font then has no missing glyph
+                bitmap.dispose();
+                continue;
+            }
+            Rectangle rect = new Rectangle(bitmap.getWidth(), bitmap.getHeight());
+            rects.add(rect);
+            bitmapOfRect.put(rect, bitmap);
+        }
+        packer.sort(rects);
+
+        // the glyphs keep their rectangles, they are never looked up in the packer.
+        for (Rectangle rect : rects) {
+            packer.insert(null, rect);
+        }
+
+        for (Rectangle rect : rects) {
+            GlyphBitmap bitmap = bitmapOfRect.get(rect);
+            packer.draw(rect, bitmap.getImage());
+            bitmap.dispose();
+
+            Glyph glyph = placeGlyph(bitmap.getGlyph(), rect, parameter);
+            char c = glyph.getChar();
+            data.addCharacter(c, glyph);
+            data.getGlyphs().add(glyph);
+            if (c == '\0') {
+                data.missingGlyph = glyph;
+            }
+        }
+    }
+
+    private static void dispose(List<GlyphBitmap> bitmaps) {
+        for (GlyphBitmap bitmap : bitmaps) {
+            bitmap.dispose();
+        }
+    }
+
+    private static void cancel(List<Future<GlyphBitmap>> futures, int from) {
+        for (int i = from; i < futures.size(); i++) {
+            futures.get(i).cancel(false);
+        }
+    }
+
+    // open the face in the library of another thread
+    private FtFace openFace(FtLibrary library) {
+        if (fontData != null) {
+            return library.newMemoryFace(fontData.duplicate(), faceIndex);
+        }
+        return library.newStreamFace(source, sourceSize, faceIndex);
+    }
+
+    // a rasterizer with its own library, face and stroker
+    private GlyphRasterizer newWorker(FtFontParameter parameter) {
+        FtLibrary workerLibrary = new FtLibrary();
+        try {
+            return new GlyphRasterizer(workerLibrary, openFace(workerLibrary), parameter);
+        } catch (RuntimeException e) {
+            workerLibrary.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Create the worker rasterizers. Each of them has its own FtLibrary, face and stroker over the shared font data.
+     * @param parameter font parameter
+     */
+    private void startWorkers(FtFontParameter parameter) {
+        // The workers are bound to the size and border of the parameter, they are closed after each generation.
+        closeWorkers();
+
+        int parallelism = parameter.getParallelism();
+        workers = new ArrayBlockingQueue<>(parallelism);
+        allWorkers = new ArrayList<>(parallelism);
+        for (int i = 0; i < parallelism; i++) {
+            GlyphRasterizer worker = newWorker(parameter);
+            workers.add(worker);
+            allWorkers.add(worker);
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread thread = new Thread(r, "FtFontGenerator-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Create a background renderer of the incremental glyphs, bound to the size and border of the parameter.
+     * @param parameter font parameter
+     * @return the renderer, it must be closed with the font.
+     */
+    public AsyncGlyphRenderer newAsyncRenderer(FtFontParameter parameter) {
+        return new AsyncGlyphRenderer(newWorker(parameter), parameter);
+    }
+
+    private void closeWorkers() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    logger.warn("Worker threads are still running");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+        if (allWorkers != null) {
+            for (GlyphRasterizer worker : allWorkers) {
+                worker.close();
+            }
+            allWorkers = null;
+            workers = null;
+        }
+    }
+
     // Create a packer.
     private Packer newPacker(FtFontParameter parameter, FtBitmapCharacterSet data, int charactersLength) {
         int size;
@@ -347,7 +682,7 @@ public class FtFontGenerator implements AutoCloseable {
             }
             packStrategy = new SkylineStrategy();
         }
-        Packer packer = new Packer(Image.Format.RGBA8, size, size, 1, false, packStrategy);
+        Packer packer = new Packer(getPageFormat(parameter), size, size, 1, false, packStrategy);
         packer.setTransparentColor(parameter.getColor());
         packer.getTransparentColor().a = 0;
         if (parameter.getBorderWidth() > 0) {
@@ -358,6 +693,26 @@ public class FtFontGenerator implements AutoCloseable {
         return packer;
     }
 
+    /**
+     * The format of the glyph pages. Only RGBA8 keeps the colors of the border and the shadow.
+     * @param parameter font parameter
+     * @return RGBA8 or Alpha8
+     */
+    private Image.Format getPageFormat(FtFontParameter parameter) {
+        Image.Format format = parameter.getFormat();
+        if (format == Image.Format.Alpha8) {
+            if (parameter.getBorderWidth() > 0 || parameter.getShadowOffsetX() != 0 || parameter.getShadowOffsetY() != 0) {
+                logger.warn("Alpha8 page can't keep the color of border and shadow, use RGBA8 instead");
+                return Image.Format.RGBA8;
+            }
+            return format;
+        }
+        if (format != Image.Format.RGBA8) {
+            logger.warn("Unsupported page format: {}, use RGBA8 instead", format);
+        }
+        return Image.Format.RGBA8;
+    }
+
     /**
      * Generate kerning.
      * @param parameter font parameter
@@ -367,16 +722,25 @@ public class FtFontGenerator implements AutoCloseable {
      */
     public void generateKerning(FtFontParameter parameter, FtBitmapCharacterSet data, char[] characters, int charactersLength) {
         if (parameter.isKerning()) {
+            // look up the glyphs once, not for every pair
+            BitmapCharacter[] glyphs = new BitmapCharacter[charactersLength];
+            int[] indexes = new int[charactersLength];
+            for (int i = 0; i < charactersLength; i++) {
+                glyphs[i] = data.getCharacter(characters[i]);
+                if (glyphs[i] != null) {
+                    indexes[i] = getCharIndex(characters[i]);
+                }
+            }
             for (int i = 0; i < charactersLength; i++) {
                 char firstChar = characters[i];
-                BitmapCharacter first = data.getCharacter(firstChar);
+                BitmapCharacter first = glyphs[i];
                 if (first == null) continue;
-                int firstIndex = face.getCharIndex(firstChar);
+                int firstIndex = indexes[i];
                 for (int ii = i; ii < charactersLength; ii++) {
                     char secondChar = characters[ii];
-                    BitmapCharacter second = data.getCharacter(secondChar);
+                    BitmapCharacter second = glyphs[ii];
                     if (second == null) continue;
-                    int secondIndex = face.getCharIndex(secondChar);
+                    int secondIndex = indexes[ii];
 
                     long kerning = face.getKerning(firstIndex, secondIndex, FT_KERNING_DEFAULT); // FT_KERNING_DEFAULT (scaled then rounded).
                     if (kerning != 0) first.addKerning(secondChar, FtLibrary.from26D6(kerning));
@@ -398,164 +762,92 @@ public class FtFontGenerator implements AutoCloseable {
      * @return null if glyph was not found.
      */
     public synchronized Glyph createGlyph(char charCode, FtFontParameter parameter, FtStroker stroker, float baseLine, Packer packer) {
-
-        boolean missing = face.getCharIndex(charCode) == 0 && charCode != 0;
-        if (missing) {
-            return null;
-        }
-
-        if (!face.loadChar(charCode, parameter.getLoadFlags())) {
+        // without border and shadow, the FreeType bitmap is drawn straight to the page
+        GlyphBitmap bitmap = rasterizer.render(charCode, parameter, stroker, baseLine, packer.canDrawCoverage());
+        if (bitmap == null) {
             return null;
         }
+        return packGlyph(bitmap, parameter, packer);
+    }
 
-        if (parameter.getRenderMode() == RenderMode.SDF) {
-            library.setSdfSpread(parameter.getSpread());
+    /**
+     * Render the characters of an incremental font without packing them.
+     *
+     * @param characters the characters, they must have no glyph yet.
+     * @param parameter font parameter
+     * @param stroker stroker
+     * @param baseLine base line
+     * @return the rendered glyphs owning their images, the characters not found are skipped.
+     */
+    public synchronized List<GlyphBitmap> renderGlyphs(char[] characters, FtFontParameter parameter, FtStroker stroker, float baseLine) {
+        List<GlyphBitmap> bitmaps = new ArrayList<>(characters.length);
+        for (char c : characters) {
+            GlyphBitmap bitmap = rasterizer.render(c, parameter, stroker, baseLine);
+            if (bitmap != null) {
+                // keep the pixels, the scratch images are reused by the next character
+                bitmaps.add(bitmap.detach());
+            }
         }
+        return bitmaps;
+    }
 
-        FtGlyphSlot slot = face.getGlyph();
-        FtGlyph main = slot.getGlyph();
-        FtBitmapGlyph mainGlyph;
-        try {
-            mainGlyph = main.toBitmap(parameter.getRenderMode().getMode());
-        } catch (FtRuntimeException e) {
-            main.close();
-            logger.error("Couldn't render charCode: {}, char:{}", (int) charCode, charCode, e);
-            return null;
+    private int[] getCoverageLut(FtFontParameter parameter) {
+        boolean padded = parameter.getPadTop() > 0 || parameter.getPadLeft() > 0 || parameter.getPadBottom() > 0 || parameter.getPadRight() > 0;
+        int drawCount = padded ? 2 : 1;
+        if (coverageLut == null || !lutColor.equals(parameter.getColor()) || lutGamma != parameter.getGamma()
+                || lutRenderCount != parameter.getRenderCount() || lutDrawCount != drawCount) {
+            lutColor.set(parameter.getColor());
+            lutGamma = parameter.getGamma();
+            lutRenderCount = parameter.getRenderCount();
+            lutDrawCount = drawCount;
+            coverageLut = ImageUtils.newCoverageLut(lutColor, lutGamma, lutRenderCount, lutDrawCount);
         }
-        FtBitmap mainBitmap = mainGlyph.getBitmap();
-        Image mainImage = mainBitmap.getImage(Image.Format.RGBA8, parameter.getColor(), parameter.getGamma());
-
-        if (mainBitmap.getWidth() != 0 && mainBitmap.getRows() != 0) {
-            long offsetX;
-            long offsetY;
-            if (parameter.getBorderWidth() > 0) {
-                // execute stroker; this generates a glyph "extended" along the outline
-                long top = mainGlyph.getTop();
-                long left = mainGlyph.getLeft();
-                FtGlyph border = slot.getGlyph();
-                border = border.strokeBorder(stroker, false, true);
-                FtBitmapGlyph borderGlyph = border.toBitmap(parameter.getRenderMode().getMode());
-                offsetX = left - borderGlyph.getLeft();
-                offsetY = -(top - borderGlyph.getTop());
-
-                // Render border (pixmap is bigger than main).
-                FtBitmap borderBitmap = borderGlyph.getBitmap();
-                Image borderImage = borderBitmap.getImage(Image.Format.RGBA8, parameter.getBorderColor(), parameter.getBorderGamma());
-
-                // Draw main glyph on top of border.
-                for (int i = 0, n = parameter.getRenderCount(); i < n; i++) {
-                    ImageUtils.drawImage(borderImage, mainImage, (int) offsetX, (int) offsetY);
-                }
-
-                mainImage.dispose();
-                mainGlyph.close();
-                mainImage = borderImage;
-                mainGlyph = borderGlyph;
-            }
-
-            if (parameter.getShadowOffsetX() != 0 || parameter.getShadowOffsetY() != 0) {
-                int mainW = mainImage.getWidth();
-                int mainH = mainImage.getHeight();
-                int shadowOffsetX = Math.max(parameter.getShadowOffsetX(), 0);
-                int shadowOffsetY = Math.max(parameter.getShadowOffsetY(), 0);
-                int shadowW = mainW + Math.abs(parameter.getShadowOffsetX());
-                int shadowH = mainH + Math.abs(parameter.getShadowOffsetY());
-                Image shadowImage = ImageUtils.newImage(mainImage.getFormat(), shadowW, shadowH);
-
-                ColorRGBA shadowColor = parameter.getShadowColor();
-                float a = shadowColor.a;
-                if (a != 0) {
-                    byte r = (byte)(shadowColor.r * 255);
-                    byte g = (byte)(shadowColor.g * 255);
-                    byte b = (byte)(shadowColor.b * 255);
-                    ByteBuffer mainPixels = mainImage.getData(0);
-                    ByteBuffer shadowPixels = shadowImage.getData(0);
-                    for (int y = 0; y < mainH; y++) {
-                        int shadowRow = shadowW * (y + shadowOffsetY) + shadowOffsetX;
-                        for (int x = 0; x < mainW; x++) {
-                            int mainPixel = (mainW * y + x) * 4;
-                            byte mainA = mainPixels.get(mainPixel + 3);
-                            if (mainA == 0) continue;
-                            int shadowPixel = (shadowRow + x) * 4;
-                            shadowPixels.put(shadowPixel, r);
-                            shadowPixels.put(shadowPixel + 1, g);
-                            shadowPixels.put(shadowPixel + 2, b);
-                            shadowPixels.put(shadowPixel + 3, (byte)((mainA & 0xff) * a));
-                        }
-                    }
-                }
+        return coverageLut;
+    }
 
-                // Draw main glyph (with any border) on top of shadow.
-                for (int i = 0, n = parameter.getRenderCount(); i < n; i++) {
-                    ImageUtils.drawImage(shadowImage, mainImage, Math.max(-parameter.getShadowOffsetX(), 0), Math.max(-parameter.getShadowOffsetY(), 0));
-                }
-                mainImage.dispose();
-                mainImage = shadowImage;
-            } else if (parameter.getBorderWidth() == 0) {
-                // No shadow and no border, draw glyph additional times.
-                for (int i = 0, n = parameter.getRenderCount() - 1; i < n; i++) {
-                    ImageUtils.drawImage(mainImage, mainImage, 0, 0);
-                }
-            }
+    /**
+     * Pack a rasterized glyph into the atlas and release its image.
+     *
+     * @param bitmap the rasterized glyph
+     * @param parameter font parameter
+     * @param packer packer
+     * @return the packed glyph
+     */
+    public synchronized Glyph packGlyph(GlyphBitmap bitmap, FtFontParameter parameter, Packer packer) {
+        Glyph glyph = bitmap.getGlyph();
 
-            if (parameter.getPadTop() > 0 || parameter.getPadLeft() > 0 || parameter.getPadBottom() > 0 || parameter.getPadRight() > 0) {
-                Image paddingImage = ImageUtils.newImage(mainImage.getFormat(), mainImage.getWidth() + parameter.getPadLeft() + parameter.getPadRight(),
-                        mainImage.getHeight() + parameter.getPadTop() + parameter.getPadBottom());
-                ImageUtils.drawImage(paddingImage, mainImage, parameter.getPadLeft(), parameter.getPadTop());
-                mainImage.dispose();
-                mainImage = paddingImage;
+        Rectangle rect;
+        FtBitmap coverage = bitmap.getCoverage();
+        try {
+            if (coverage != null) {
+                rect = new Rectangle(bitmap.getWidth(), bitmap.getHeight());
+                packer.insert(null, rect);
+                packer.drawCoverage(rect, coverage, getCoverageLut(parameter), parameter.getPadLeft(), parameter.getPadTop());
+            } else if (bitmap.getSBit() != null) {
+                rect = new Rectangle(bitmap.getWidth(), bitmap.getHeight());
+                packer.insert(null, rect);
+                packer.drawCoverage(rect, bitmap.getSBit(), getCoverageLut(parameter), parameter.getPadLeft(), parameter.getPadTop());
+            } else {
+                rect = packer.pack(bitmap.getImage());
             }
+        } finally {
+            // the packer may refuse the glyph when the pages are limited
+            bitmap.dispose();
         }
 
-        FtGlyphMetrics metrics = slot.getMetrics();
-        Glyph glyph = new Glyph(charCode);
-        if (mainImage != null) {
-            glyph.setWidth(mainImage.getWidth());
-            glyph.setHeight(mainImage.getHeight());
-        } else {
-            glyph.setWidth(0);
-            glyph.setHeight(0);
-        }
-
-        glyph.setXOffset(mainGlyph.getLeft());
-        glyph.setYOffset((int) baseLine - mainGlyph.getTop());
-
-        glyph.setXAdvance( FtLibrary.from26D6(metrics.getHoriAdvance()) + parameter.getBorderWidth() + parameter.getSpaceX() );
-        glyph.setYAdvance( FtLibrary.from26D6(metrics.getVertAdvance()) + parameter.getBorderWidth() + parameter.getSpaceY() );
-        glyph.setFixedWidth(face.isFixedWidth());
-
-        // bitmap position, for debug purpose
-        glyph.setTop(mainGlyph.getTop());
-        glyph.setLeft(mainGlyph.getLeft());
-
-        // glyph metrics, for debug purpose
-        glyph.setHoriBearingX(FtLibrary.from26D6(metrics.getHoriBearingX()));
-        glyph.setHoriBearingY(FtLibrary.from26D6(metrics.getHoriBearingY()));
-        glyph.setHoriAdvance( FtLibrary.from26D6(metrics.getHoriAdvance()));
-        glyph.setVertBearingX( FtLibrary.from26D6(metrics.getVertBearingX()));
-        glyph.setVertBearingY( FtLibrary.from26D6(metrics.getVertBearingY()));
-        glyph.setVertAdvance( FtLibrary.from26D6(metrics.getVertAdvance()));
-
-        // generator parameter, for debug purpose
-        glyph.setBorderWidth((int) parameter.getBorderWidth());
-        glyph.setSpaceX(parameter.getSpaceX());
-        glyph.setSpaceY(parameter.getSpaceY());
-
-        if (bitmapped) {
-            ImageRaster raster = ImageRaster.create(mainImage);
-            ByteBuffer buf = mainBitmap.getBuffer();
-            for (int h = 0; h < glyph.getHeight(); h++) {
-                int idx = h * Math.abs(mainBitmap.getPitch());
-                for (int w = 0; w < (glyph.getWidth() + glyph.getXOffset()); w++) {
-                    int bit = (buf.get(idx + (w / 8)) >>> (7 - (w % 8))) & 1;
-                    raster.setPixel(w, h, ((bit == 1) ? ColorRGBA.White : ColorRGBA.BlackNoAlpha));
-                }
-            }
-        }
+        return placeGlyph(glyph, rect, parameter);
+    }
 
-        String pixmapName = glyph.hashCode() + "_" + glyph.getChar();
-        Rectangle rect = packer.pack(pixmapName, mainImage);
-        glyph.setPage(packer.getPageIndex(pixmapName));
+    /**
+     * Set the location of the glyph in the atlas.
+     *
+     * @param glyph the glyph
+     * @param rect the packed rectangle
+     * @param parameter font parameter
+     * @return the glyph
+     */
+    private static Glyph placeGlyph(Glyph glyph, Rectangle rect, FtFontParameter parameter) {
+        glyph.setPage(rect.getPage());
         glyph.setX(rect.getX());
         glyph.setY(rect.getY());
 
@@ -576,9 +868,6 @@ public class FtFontGenerator implements AutoCloseable {
             // glyph.setHeight(glyph.getHeight() - parameter.getSpread() * 2);
         }
 
-        mainImage.dispose();
-        mainGlyph.close();
-
         return glyph;
     }
 
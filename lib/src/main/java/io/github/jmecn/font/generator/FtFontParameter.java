@@ -12,6 +12,7 @@ import io.github.jmecn.font.Direction;
 import io.github.jmecn.font.packer.PackStrategy;
 import io.github.jmecn.font.packer.Packer;
 import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import io.github.jmecn.font.packer.strategy.MaxRectsStrategy;
 import io.github.jmecn.font.packer.strategy.SkylineStrategy;
 
 import java.io.*;
@@ -27,11 +28,16 @@ public class FtFontParameter {
     public static final String FONT_FILE = "font.file";
     public static final String FONT_SIZE = "font.size";
     public static final String FONT_KERNING = "font.kerning";
+    public static final String FONT_KERNING_LAZY = "font.kerning.lazy";
     public static final String FONT_INCREMENTAL = "font.incremental";
+    public static final String FONT_MAX_PAGES = "font.max.pages";
+    public static final String FONT_MAX_BYTES = "font.max.bytes";
+    public static final String FONT_ASYNC = "font.async";
     public static final String PACK_WIDTH = "pack.width";
     public static final String PACK_HEIGHT = "pack.height";
     public static final String PACK_PADDING = "pack.padding";
     public static final String PACK_STRATEGY = "pack.strategy";
+    public static final String PACK_FORMAT = "pack.format";
     public static final String RENDER_HINTING = "render.hinting";
     public static final String RENDER_MODE = "render.mode";
     public static final String RENDER_SPREAD = "render.spread";
@@ -57,6 +63,8 @@ public class FtFontParameter {
     public static final String MATERIAL_USE_VERTEX_COLOR = "material.useVertexColor";
     public static final String TEXTURE_MIN_FILTER = "texture.minFilter";
     public static final String TEXTURE_MAG_FILTER = "texture.magFilter";
+    public static final String TEXTURE_ARRAY = "texture.array";
+    public static final String TEXTURE_MIPMAPS = "texture.mipmaps";
     //////////////////////////////////////////////////
 
     private Direction direction = Direction.LTR;
@@ -100,15 +108,28 @@ public class FtFontParameter {
     private String characters = CommonChars.ASCII.getChars();
     /** Whether the font should include kerning */
     private boolean kerning = true;
+    /** When true, the kerning of a character pair is queried from the face on first use and cached, instead of
+     * querying all pairs when the font is generated. The {@link FtFontGenerator} must not be closed until the font is
+     * no longer needed. */
+    private boolean lazyKerning = false;
     /** The optional Packer to use for packing multiple fonts into a single texture.
      * @see FtFontParameter */
     private Packer packer = null;
+    /** Format of the glyph pages. {@link Image.Format#Alpha8} only stores the coverage and takes a quarter of the
+     * memory of RGBA8, the color comes from the vertex color or the material color. It needs a material which reads
+     * the alpha channel, such as Shaders/Font/Font.j3md or Shaders/Font/SdFont.j3md. Glyphs with a border or a shadow
+     * fall back to RGBA8. */
+    private Image.Format format = Image.Format.RGBA8;
     /** Whether to generate mip maps for the resulting texture */
     private boolean genMipMaps = false;
     /** Minification filter */
     private Texture.MinFilter minFilter = Texture.MinFilter.NearestNoMipMaps;
     /** Magnification filter */
     private Texture.MagFilter magFilter = Texture.MagFilter.Bilinear;
+    /** When true, the pages are the layers of one {@link com.jme3.texture.TextureArray}, and each text is rendered
+     * with one mesh and one material whatever the number of pages. It needs a material which reads a texture array,
+     * such as Shaders/Font/FontArray.j3md. */
+    private boolean textureArray = false;
 
     /**
      * Material definition to use for the font.
@@ -140,6 +161,26 @@ public class FtFontParameter {
      * {@link FtFontGenerator#maxTextureSize}. */
     private boolean incremental = false;
 
+    /** Max number of pages of an incremental font, 0 for unlimited. When a glyph doesn't fit, the least recently used
+     * page is cleared and reused, its glyphs are generated again when a text uses them. The glyphs of
+     * {@link #getCharacters()} are pinned, their pages are never cleared. The packer must not be shared with other
+     * fonts. */
+    private int maxPages = 0;
+
+    /** Max bytes of the pages of an incremental font, 0 for unlimited. When a new page would exceed it, a page is
+     * cleared and reused like {@link #getMaxPages()}. */
+    private long maxBytes = 0;
+
+    /** Rasterize the incremental glyphs on a background thread. A missing glyph is laid out as an empty placeholder
+     * until it is ready, then the texts using it are laid out again on the next
+     * {@link io.github.jmecn.font.FtBitmapCharacterSet#update()}. Not used for bitmap fonts. */
+    private boolean async = false;
+
+    /** Number of threads used to rasterize the glyphs. Values &lt;= 1 generate the glyphs on the calling thread. Each
+     * thread opens its own FreeType library and face. The atlas is the same as the serial mode. Not used for
+     * incremental glyphs. */
+    private int parallelism = 1;
+
     public Direction getDirection() {
         return direction;
     }
@@ -351,6 +392,14 @@ public class FtFontParameter {
         this.kerning = kerning;
     }
 
+    public boolean isLazyKerning() {
+        return lazyKerning;
+    }
+
+    public void setLazyKerning(boolean lazyKerning) {
+        this.lazyKerning = lazyKerning;
+    }
+
     public Packer getPacker() {
         return packer;
     }
@@ -359,6 +408,14 @@ public class FtFontParameter {
         this.packer = packer;
     }
 
+    public Image.Format getFormat() {
+        return format;
+    }
+
+    public void setFormat(Image.Format format) {
+        this.format = format;
+    }
+
     public boolean isGenMipMaps() {
         return genMipMaps;
     }
@@ -383,6 +440,14 @@ public class FtFontParameter {
         this.magFilter = magFilter;
     }
 
+    public boolean isTextureArray() {
+        return textureArray;
+    }
+
+    public void setTextureArray(boolean textureArray) {
+        this.textureArray = textureArray;
+    }
+
     public MaterialDef getMatDef() {
         return matDef;
     }
@@ -431,6 +496,38 @@ public class FtFontParameter {
         this.incremental = incremental;
     }
 
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    public void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -440,12 +537,12 @@ public class FtFontParameter {
             return false;
         }
         FtFontParameter parameter = (FtFontParameter) o;
-        return size == parameter.size && renderMode == parameter.renderMode && spread == parameter.spread && Float.compare(gamma, parameter.gamma) == 0 && renderCount == parameter.renderCount && borderWidth == parameter.borderWidth && borderStraight == parameter.borderStraight && Float.compare(borderGamma, parameter.borderGamma) == 0 && shadowOffsetX == parameter.shadowOffsetX && shadowOffsetY == parameter.shadowOffsetY && spaceX == parameter.spaceX && spaceY == parameter.spaceY && padTop == parameter.padTop && padLeft == parameter.padLeft && padBottom == parameter.padBottom && padRight == parameter.padRight && kerning == parameter.kerning && genMipMaps == parameter.genMipMaps && useVertexColor == parameter.useVertexColor && incremental == parameter.incremental && hinting == parameter.hinting && Objects.equals(color, parameter.color) && Objects.equals(borderColor, parameter.borderColor) && Objects.equals(shadowColor, parameter.shadowColor) && Objects.equals(characters, parameter.characters) && Objects.equals(packer, parameter.packer) && minFilter == parameter.minFilter && magFilter == parameter.magFilter && Objects.equals(matDef, parameter.matDef) && Objects.equals(matDefName, parameter.matDefName) && Objects.equals(colorMapParamName, parameter.colorMapParamName) && Objects.equals(vertexColorParamName, parameter.vertexColorParamName);
+        return size == parameter.size && renderMode == parameter.renderMode && spread == parameter.spread && Float.compare(gamma, parameter.gamma) == 0 && renderCount == parameter.renderCount && borderWidth == parameter.borderWidth && borderStraight == parameter.borderStraight && Float.compare(borderGamma, parameter.borderGamma) == 0 && shadowOffsetX == parameter.shadowOffsetX && shadowOffsetY == parameter.shadowOffsetY && spaceX == parameter.spaceX && spaceY == parameter.spaceY && padTop == parameter.padTop && padLeft == parameter.padLeft && padBottom == parameter.padBottom && padRight == parameter.padRight && kerning == parameter.kerning && lazyKerning == parameter.lazyKerning && genMipMaps == parameter.genMipMaps && useVertexColor == parameter.useVertexColor && incremental == parameter.incremental && maxPages == parameter.maxPages && maxBytes == parameter.maxBytes && async == parameter.async && hinting == parameter.hinting && Objects.equals(color, parameter.color) && Objects.equals(borderColor, parameter.borderColor) && Objects.equals(shadowColor, parameter.shadowColor) && Objects.equals(characters, parameter.characters) && Objects.equals(packer, parameter.packer) && format == parameter.format && minFilter == parameter.minFilter && magFilter == parameter.magFilter && textureArray == parameter.textureArray && Objects.equals(matDef, parameter.matDef) && Objects.equals(matDefName, parameter.matDefName) && Objects.equals(colorMapParamName, parameter.colorMapParamName) && Objects.equals(vertexColorParamName, parameter.vertexColorParamName);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(size, renderMode, spread, hinting, color, gamma, renderCount, borderWidth, borderColor, borderStraight, borderGamma, shadowOffsetX, shadowOffsetY, shadowColor, spaceX, spaceY, padTop, padLeft, padBottom, padRight, characters, kerning, packer, genMipMaps, minFilter, magFilter, matDef, matDefName, colorMapParamName, useVertexColor, vertexColorParamName, incremental);
+        return Objects.hash(size, renderMode, spread, hinting, color, gamma, renderCount, borderWidth, borderColor, borderStraight, borderGamma, shadowOffsetX, shadowOffsetY, shadowColor, spaceX, spaceY, padTop, padLeft, padBottom, padRight, characters, kerning, lazyKerning, packer, format, genMipMaps, minFilter, magFilter, textureArray, matDef, matDefName, colorMapParamName, useVertexColor, vertexColorParamName, incremental, maxPages, maxBytes, async);
     }
 
     public void loadProperties(InputStream inputStream) {
@@ -460,6 +557,9 @@ public class FtFontParameter {
     }
 
     public void loadProperties(Properties properties) {
+        if (properties.containsKey(PACK_FORMAT)) {
+            this.setFormat(Image.Format.valueOf(getString(PACK_FORMAT, properties)));
+        }
         if (properties.containsKey(PACK_WIDTH) && properties.containsKey(PACK_HEIGHT) || properties.containsKey(PACK_PADDING)) {
             int width = getInt(PACK_WIDTH, properties);
             int height = getInt(PACK_HEIGHT, properties);
@@ -469,13 +569,15 @@ public class FtFontParameter {
                 String strategy = getString(PACK_STRATEGY, properties);
                 if (SkylineStrategy.class.getSimpleName().equals(strategy)) {
                     packStrategy = new SkylineStrategy();
+                } else if (MaxRectsStrategy.class.getSimpleName().equals(strategy)) {
+                    packStrategy = new MaxRectsStrategy();
                 } else {
                     packStrategy = new GuillotineStrategy();
                 }
             } else {
                 packStrategy = null;
             }
-            this.packer = new Packer(Image.Format.RGBA8, width, height, padding, false, packStrategy);
+            this.packer = new Packer(format, width, height, padding, false, packStrategy);
         }
 
         if (properties.containsKey(FONT_SIZE)) {
@@ -484,9 +586,21 @@ public class FtFontParameter {
         if (properties.containsKey(FONT_KERNING)) {
             this.setKerning(getBool(FONT_KERNING, properties));
         }
+        if (properties.containsKey(FONT_KERNING_LAZY)) {
+            this.setLazyKerning(getBool(FONT_KERNING_LAZY, properties));
+        }
         if (properties.containsKey(FONT_INCREMENTAL)) {
             this.setIncremental(getBool(FONT_INCREMENTAL, properties));
         }
+        if (properties.containsKey(FONT_MAX_PAGES)) {
+            this.setMaxPages(getInt(FONT_MAX_PAGES, properties));
+        }
+        if (properties.containsKey(FONT_MAX_BYTES)) {
+            this.setMaxBytes(getLong(FONT_MAX_BYTES, properties));
+        }
+        if (properties.containsKey(FONT_ASYNC)) {
+            this.setAsync(getBool(FONT_ASYNC, properties));
+        }
         if (properties.containsKey(RENDER_HINTING)) {
             this.setHinting(Hinting.valueOf(getString(RENDER_HINTING, properties)));
         }
@@ -546,6 +660,12 @@ public class FtFontParameter {
         if (properties.containsKey(TEXTURE_MAG_FILTER)) {
             this.setMagFilter(Texture.MagFilter.valueOf(getString(TEXTURE_MAG_FILTER, properties)));
         }
+        if (properties.containsKey(TEXTURE_ARRAY)) {
+            this.setTextureArray(getBool(TEXTURE_ARRAY, properties));
+        }
+        if (properties.containsKey(TEXTURE_MIPMAPS)) {
+            this.setGenMipMaps(getBool(TEXTURE_MIPMAPS, properties));
+        }
 
         if (properties.containsKey(MATERIAL_DEFINE)) {
             this.setMatDefName(getString(MATERIAL_DEFINE, properties));
@@ -568,10 +688,15 @@ public class FtFontParameter {
             properties.setProperty(PACK_PADDING, String.valueOf(packer.getPadding()));
             properties.setProperty(PACK_STRATEGY, packer.getPackStrategy().getClass().getSimpleName());
         }
+        properties.setProperty(PACK_FORMAT, this.getFormat().name());
 
         properties.setProperty(FONT_SIZE, String.valueOf(this.getSize()));
         properties.setProperty(FONT_KERNING, String.valueOf(this.isKerning()));
+        properties.setProperty(FONT_KERNING_LAZY, String.valueOf(this.isLazyKerning()));
         properties.setProperty(FONT_INCREMENTAL, String.valueOf(this.isIncremental()));
+        properties.setProperty(FONT_MAX_PAGES, String.valueOf(this.getMaxPages()));
+        properties.setProperty(FONT_MAX_BYTES, String.valueOf(this.getMaxBytes()));
+        properties.setProperty(FONT_ASYNC, String.valueOf(this.isAsync()));
 
         properties.setProperty(RENDER_HINTING,this.getHinting().name());
         properties.setProperty(RENDER_MODE, this.getRenderMode().name());
@@ -599,6 +724,8 @@ public class FtFontParameter {
 
         properties.setProperty(TEXTURE_MIN_FILTER, this.getMinFilter().name());
         properties.setProperty(TEXTURE_MAG_FILTER, this.getMagFilter().name());
+        properties.setProperty(TEXTURE_ARRAY, String.valueOf(this.isTextureArray()));
+        properties.setProperty(TEXTURE_MIPMAPS, String.valueOf(this.isGenMipMaps()));
 
         properties.setProperty(MATERIAL_DEFINE, this.getMatDefName());
         properties.setProperty(MATERIAL_COLOR_MAP, this.getColorMapParamName());
@@ -622,6 +749,14 @@ public class FtFontParameter {
         return Integer.parseInt(value);
     }
 
+    private static long getLong(String propertyName, Properties properties) {
+        String value = properties.getProperty(propertyName);
+        if (value == null || value.trim().isEmpty()) {
+            return 0L;
+        }
+        return Long.parseLong(value);
+    }
+
     private static float getFloat(String propertyName, Properties properties) {
         String value = properties.getProperty(propertyName);
         if (value == null || value.trim().isEmpty()) {
@@ -0,0 +1,281 @@
+package io.github.jmecn.font.generator;
+
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.freetype.FtCacheManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * The font files loaded by this process, shared by the fonts generated from them.
+ *
+ * <p>A font file is read once into a direct buffer, and one {@link FtFontGenerator} is created over it for each face,
+ * the faces of a font collection share the buffer. In {@link LoadMode#STREAM} the file is not loaded, the faces read it
+ * on demand. The fonts of all sizes share the generator, its glyph methods are synchronized and set the pixel size of
+ * the font they render. The generator is closed when the last {@link Handle} is closed, the handle of a font is closed
+ * with {@link FtBitmapCharacterSet#close()}, or when the font is garbage collected.</p>
+ *
+ * <p>The generators of the files in memory share one {@link FtCacheManager}, created with the first of them, for their
+ * glyph indexes and the small bitmaps of the incremental glyphs.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class FtFontRegistry {
+
+    static Logger logger = LoggerFactory.getLogger(FtFontRegistry.class);
+
+    private static final FtFontRegistry INSTANCE = new FtFontRegistry();
+
+    public static FtFontRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * How the font files are loaded.
+     */
+    public enum LoadMode {
+        /** Read the file in a direct buffer, fast to open and to render, the whole file is resident. */
+        MEMORY,
+        /** Read the file on demand, only the tables in use are read, but a seek backwards opens the file again. */
+        STREAM
+    }
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    // the font files in memory, shared by the faces of a font collection
+    private final Map<String, Blob> blobs = new HashMap<>();
+    private LoadMode loadMode = LoadMode.MEMORY;
+    // the caches shared by the generators, see getCacheManager
+    private FtCacheManager cacheManager;
+    private boolean cacheEnabled = true;
+    private final ReferenceQueue<FtBitmapCharacterSet> queue = new ReferenceQueue<>();
+    // a phantom reference is only enqueued if it is still reachable
+    private final Set<FontReference> references = new HashSet<>();
+
+    private static final class Blob {
+        final String name;
+        final ByteBuffer data;
+        int refCount;
+
+        Blob(String name, ByteBuffer data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final FtFontGenerator generator;
+        final Blob blob;
+        int refCount;
+
+        Entry(String key, FtFontGenerator generator, Blob blob) {
+            this.key = key;
+            this.generator = generator;
+            this.blob = blob;
+        }
+    }
+
+    // closes the handle of a font which was not closed
+    private static final class FontReference extends PhantomReference<FtBitmapCharacterSet> {
+        final Handle handle;
+
+        FontReference(FtBitmapCharacterSet font, ReferenceQueue<FtBitmapCharacterSet> queue, Handle handle) {
+            super(font, queue);
+            this.handle = handle;
+        }
+    }
+
+    /**
+     * A reference to a shared generator.
+     */
+    public final class Handle implements AutoCloseable {
+        private final Entry entry;
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private FontReference reference;
+
+        private Handle(Entry entry) {
+            this.entry = entry;
+        }
+
+        public FtFontGenerator getGenerator() {
+            if (closed.get()) {
+                throw new IllegalStateException("The handle is closed: " + entry.key);
+            }
+            return entry.generator;
+        }
+
+        /**
+         * Keep the generator open as long as the font, e.g. for the incremental glyphs or the lazy kerning. The handle
+         * is closed with the font, or when the font is garbage collected.
+         * @param font the font generated with the generator
+         */
+        public void attach(FtBitmapCharacterSet font) {
+            synchronized (FtFontRegistry.this) {
+                reference = new FontReference(font, queue, this);
+                references.add(reference);
+            }
+            font.setFontHandle(this);
+        }
+
+        /**
+         * Release the generator, it is closed if no other handle uses it.
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(this);
+            }
+        }
+    }
+
+    /**
+     * Get the generator of a face, the font file is read when it is not loaded yet.
+     * @param name the name of the font file, e.g. the asset name
+     * @param faceIndex the face index
+     * @param source opens the font file, it is only called if the file is not loaded. In {@link LoadMode#STREAM} it
+     *               is called again for each seek backwards.
+     * @return a handle of the generator, it must be closed or attached to a font.
+     * @throws IOException if the font file can't be read
+     */
+    public Handle acquire(String name, int faceIndex, Supplier<InputStream> source) throws IOException {
+        purge();
+        String key = name + "#" + faceIndex;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                long start = System.nanoTime();
+                if (loadMode == LoadMode.STREAM) {
+                    entry = new Entry(key, new FtFontGenerator(source, -1, faceIndex), null);
+                } else {
+                    Blob blob = blobs.get(name);
+                    if (blob == null) {
+                        try (InputStream in = source.get()) {
+                            blob = new Blob(name, FtFontGenerator.readFontData(in));
+                        }
+                        blobs.put(name, blob);
+                    }
+                    entry = new Entry(key, new FtFontGenerator(blob.data, faceIndex), blob);
+                    blob.refCount++;
+                    if (cacheEnabled) {
+                        entry.generator.setCacheManager(getCacheManager());
+                    }
+                }
+                entries.put(key, entry);
+                logger.debug("load font:{}, mode:{}, {} ms", key, loadMode, (System.nanoTime() - start) / 1000000);
+            }
+            entry.refCount++;
+            return new Handle(entry);
+        }
+    }
+
+    public synchronized LoadMode getLoadMode() {
+        return loadMode;
+    }
+
+    /**
+     * Set how the font files are loaded, the faces already loaded are not changed.
+     * @param loadMode the load mode
+     */
+    public synchronized void setLoadMode(LoadMode loadMode) {
+        if (loadMode == null) {
+            throw new IllegalArgumentException("loadMode is null");
+        }
+        this.loadMode = loadMode;
+    }
+
+    /**
+     * @return the cache manager shared by the generators, it is created on demand.
+     */
+    public synchronized FtCacheManager getCacheManager() {
+        if (cacheManager == null) {
+            cacheManager = new FtCacheManager();
+        }
+        return cacheManager;
+    }
+
+    public synchronized boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Set whether the generators of the files in memory share the cache manager, the faces already loaded are not
+     * changed.
+     * @param cacheEnabled true to use the cache manager
+     */
+    public synchronized void setCacheEnabled(boolean cacheEnabled) {
+        this.cacheEnabled = cacheEnabled;
+    }
+
+    /**
+     * Close the handles of the fonts which were garbage collected without being closed.
+     * @return number of the handles closed
+     */
+    public int purge() {
+        int count = 0;
+        Reference<? extends FtBitmapCharacterSet> reference;
+        while ((reference = queue.poll()) != null) {
+            ((FontReference) reference).handle.close();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param name the name of the font file
+     * @param faceIndex the face index
+     * @return number of the open handles of the face
+     */
+    public synchronized int getRefCount(String name, int faceIndex) {
+        Entry entry = entries.get(name + "#" + faceIndex);
+        return entry == null ? 0 : entry.refCount;
+    }
+
+    /**
+     * @return number of the faces loaded
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return size of the font files in memory, in bytes
+     */
+    public synchronized long getMemorySize() {
+        long size = 0;
+        for (Blob blob : blobs.values()) {
+            size += blob.data.capacity();
+        }
+        return size;
+    }
+
+    private synchronized void release(Handle handle) {
+        if (handle.reference != null) {
+            references.remove(handle.reference);
+            handle.reference = null;
+        }
+        Entry entry = handle.entry;
+        if (--entry.refCount > 0) {
+            return;
+        }
+        entries.remove(entry.key);
+        synchronized (entry.generator) {
+            entry.generator.close();
+        }
+        if (entry.blob != null && --entry.blob.refCount == 0) {
+            blobs.remove(entry.blob.name);
+        }
+        logger.debug("close font:{}", entry.key);
+    }
+}
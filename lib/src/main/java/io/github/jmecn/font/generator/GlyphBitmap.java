@@ -0,0 +1,134 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.freetype.FtBitmap;
+import io.github.jmecn.font.freetype.FtBitmapGlyph;
+import io.github.jmecn.font.freetype.FtCacheManager;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A rasterized glyph which is not packed yet. It holds the glyph metrics and the final composited image
+ * (main glyph, border, shadow and padding).
+ *
+ * <p>The image may be borrowed from the scratch buffers of the rasterizer, in which case it is only valid until the
+ * next glyph is rendered. Call {@link #detach()} to keep it longer.</p>
+ *
+ * <p>A glyph without border and shadow may keep the FreeType bitmap instead of an image, so it can be drawn straight
+ * to the atlas page. See {@link #getCoverage()} and {@link #getSBit()}.</p>
+ *
+ * @author yanmaoyuan
+ */
+public class GlyphBitmap {
+
+    private final Glyph glyph;
+    private Image image;
+    private boolean owned;
+    private FtBitmapGlyph coverage;
+    private FtCacheManager.SBit sbit;
+
+    public GlyphBitmap(Glyph glyph, Image image) {
+        this(glyph, image, true);
+    }
+
+    public GlyphBitmap(Glyph glyph, Image image, boolean owned) {
+        this.glyph = glyph;
+        this.image = image;
+        this.owned = owned;
+    }
+
+    /**
+     * Create a bitmap which keeps the FreeType bitmap glyph, it is closed by {@link #dispose()}.
+     * @param glyph the glyph, its size includes the padding.
+     * @param coverage the FreeType bitmap glyph, in FT_PIXEL_MODE_GRAY.
+     */
+    public GlyphBitmap(Glyph glyph, FtBitmapGlyph coverage) {
+        this.glyph = glyph;
+        this.coverage = coverage;
+        this.owned = true;
+    }
+
+    /**
+     * Create a bitmap which keeps a gray bitmap of the sbit cache, it is a copy and needs no dispose.
+     * @param glyph the glyph, its size includes the padding.
+     * @param sbit the cached bitmap, in FT_PIXEL_MODE_GRAY.
+     */
+    public GlyphBitmap(Glyph glyph, FtCacheManager.SBit sbit) {
+        this.glyph = glyph;
+        this.sbit = sbit;
+        this.owned = true;
+    }
+
+    public Glyph getGlyph() {
+        return glyph;
+    }
+
+    public Image getImage() {
+        return image;
+    }
+
+    /**
+     * @return the FreeType bitmap, or null if the glyph was composited to an image.
+     */
+    public FtBitmap getCoverage() {
+        return coverage == null ? null : coverage.getBitmap();
+    }
+
+    /**
+     * @return the bitmap of the sbit cache, or null if the glyph was not rendered by the cache.
+     */
+    public FtCacheManager.SBit getSBit() {
+        return sbit;
+    }
+
+    public int getWidth() {
+        return glyph.getWidth();
+    }
+
+    public int getHeight() {
+        return glyph.getHeight();
+    }
+
+    public boolean isOwned() {
+        return owned;
+    }
+
+    /**
+     * Copy a borrowed image to a compact heap buffer owned by this bitmap. The image is only drawn to the atlas page,
+     * it is never uploaded, so it needs no direct memory.
+     * @return this
+     */
+    public GlyphBitmap detach() {
+        if (coverage != null) {
+            throw new IllegalStateException("Can't detach the FreeType bitmap of glyph: " + glyph.getChar());
+        }
+        if (!owned && image != null) {
+            ByteBuffer src = image.getData(0).duplicate();
+            src.clear();
+            src.limit(image.getWidth() * image.getHeight() * image.getFormat().getBitsPerPixel() / 8);
+            ByteBuffer dst = ByteBuffer.allocate(src.remaining());
+            dst.put(src);
+            dst.flip();
+            image = new Image(image.getFormat(), image.getWidth(), image.getHeight(), dst, ColorSpace.Linear);
+        }
+        owned = true;
+        return this;
+    }
+
+    /**
+     * Release the image once it has been drawn to the atlas page. A borrowed image is left to the rasterizer.
+     */
+    public void dispose() {
+        if (image != null && owned) {
+            image.dispose();
+        }
+        image = null;
+        if (coverage != null) {
+            coverage.close();
+            coverage = null;
+        }
+        sbit = null;
+    }
+}
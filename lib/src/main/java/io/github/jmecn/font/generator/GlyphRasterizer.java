@@ -0,0 +1,376 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ImageRaster;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.exception.FtRuntimeException;
+import io.github.jmecn.font.freetype.*;
+import io.github.jmecn.font.generator.enums.RenderMode;
+import io.github.jmecn.font.utils.ImageUtils;
+import org.lwjgl.util.freetype.FreeType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Render a character to a {@link GlyphBitmap}: load it with FreeType, draw the border and shadow, and add the padding.
+ *
+ * <p>A rasterizer is bound to one {@link FtFace}, it is not thread safe. Parallel generation uses one rasterizer per
+ * thread, each with its own {@link FtLibrary}, face and {@link FtStroker}.</p>
+ *
+ * <p>With a {@link FtCacheManager}, the glyph indexes are looked up in its cmap cache, and the glyphs drawn straight
+ * to the atlas page are rendered by its sbit cache when they are hinted in gray.</p>
+ *
+ * <p>The main, border, shadow and padding images are composited in {@link ScratchImage}s owned by the rasterizer, so
+ * the returned bitmap borrows its image and is only valid until the next call to render.</p>
+ *
+ * @author yanmaoyuan
+ */
+class GlyphRasterizer implements AutoCloseable {
+    static Logger logger = LoggerFactory.getLogger(GlyphRasterizer.class);
+
+    private final FtLibrary library;
+    private final FtFace face;
+    private final boolean bitmapped;
+
+    // only the worker rasterizers own their library, face and stroker
+    private final boolean owner;
+    private FtStroker stroker;
+
+    // the shared caches, see setCacheManager
+    private FtCacheManager cacheManager;
+    private long cacheFaceId;
+
+    // scratch images for compositing, reused for every glyph
+    private final ScratchImage mainScratch = new ScratchImage();
+    private final ScratchImage borderScratch = new ScratchImage();
+    private final ScratchImage shadowScratch = new ScratchImage();
+    private final ScratchImage paddingScratch = new ScratchImage();
+
+    GlyphRasterizer(FtLibrary library, FtFace face, boolean bitmapped) {
+        this.library = library;
+        this.face = face;
+        this.bitmapped = bitmapped;
+        this.owner = false;
+    }
+
+    /**
+     * Create a worker rasterizer, it owns the library and the face and closes them.
+     * @param library the library of the worker
+     * @param face the face opened in the library
+     * @param parameter the font parameter
+     */
+    GlyphRasterizer(FtLibrary library, FtFace face, FtFontParameter parameter) {
+        this.library = library;
+        this.face = face;
+        this.bitmapped = false;
+        this.owner = true;
+        if (!face.setPixelSize(0, parameter.getSize())) {
+            logger.warn("Can't set pixel size for font, pixelHeight:{}", parameter.getSize());
+        }
+        this.stroker = newStroker(library, parameter);
+    }
+
+    static FtStroker newStroker(FtLibrary library, FtFontParameter parameter) {
+        if (parameter.getBorderWidth() <= 0) {
+            return null;
+        }
+        FtStroker stroker = library.newStroker();
+        stroker.set(FtLibrary.int26D6(parameter.getBorderWidth()),
+                parameter.isBorderStraight() ? FreeType.FT_STROKER_LINECAP_BUTT : FreeType.FT_STROKER_LINECAP_ROUND,
+                parameter.isBorderStraight() ? FreeType.FT_STROKER_LINEJOIN_MITER_FIXED : FreeType.FT_STROKER_LINEJOIN_ROUND,
+                0);
+        return stroker;
+    }
+
+    FtStroker getStroker() {
+        return stroker;
+    }
+
+    /**
+     * @param cacheManager the cache manager, or null to use the face.
+     * @param faceId the id of the face in the cache manager
+     */
+    void setCacheManager(FtCacheManager cacheManager, long faceId) {
+        this.cacheManager = cacheManager;
+        this.cacheFaceId = faceId;
+    }
+
+    private int getCharIndex(char charCode) {
+        if (cacheManager != null) {
+            return cacheManager.getCharIndex(cacheFaceId, charCode);
+        }
+        return face.getCharIndex(charCode);
+    }
+
+    /**
+     * Whether the sbit cache renders the same gray bitmap as the slot: normal rendering of a hinted glyph, so the
+     * cached advance is rounded like the slot metrics.
+     * @param parameter font parameter
+     * @return true if the direct glyphs can be looked up in the sbit cache
+     */
+    private boolean isCached(FtFontParameter parameter) {
+        int loadFlags = parameter.getLoadFlags();
+        return cacheManager != null && parameter.getRenderMode() == RenderMode.NORMAL
+                && (loadFlags & FreeType.FT_LOAD_NO_HINTING) == 0
+                && FreeType.FT_LOAD_TARGET_MODE(loadFlags) != FreeType.FT_RENDER_MODE_MONO;
+    }
+
+    @Override
+    public void close() {
+        if (owner) {
+            if (stroker != null) {
+                stroker.close();
+                stroker = null;
+            }
+            face.close();
+            library.close();
+        }
+    }
+
+    /**
+     * Render the character with the given parameter.
+     *
+     * @param charCode character code
+     * @param parameter font parameter
+     * @param stroker stroker
+     * @param baseLine base line
+     * @return null if glyph was not found. The image of the bitmap is borrowed from the scratch images.
+     */
+    GlyphBitmap render(char charCode, FtFontParameter parameter, FtStroker stroker, float baseLine) {
+        return render(charCode, parameter, stroker, baseLine, false);
+    }
+
+    /**
+     * Whether the glyphs can be drawn straight to the atlas page: no border, no shadow and not a bitmap font.
+     * @param parameter font parameter
+     * @return true if the glyphs need no compositing
+     */
+    boolean isDirect(FtFontParameter parameter) {
+        return !bitmapped && parameter.getBorderWidth() <= 0
+                && parameter.getShadowOffsetX() == 0 && parameter.getShadowOffsetY() == 0;
+    }
+
+    /**
+     * Render the character with the given parameter.
+     *
+     * @param charCode character code
+     * @param parameter font parameter
+     * @param stroker stroker
+     * @param baseLine base line
+     * @param direct true to keep the FreeType bitmap in the result instead of an image when {@link #isDirect}, only
+     *               the gray bitmaps are supported.
+     * @return null if glyph was not found.
+     */
+    GlyphBitmap render(char charCode, FtFontParameter parameter, FtStroker stroker, float baseLine, boolean direct) {
+        int glyphIndex = getCharIndex(charCode);
+        boolean missing = glyphIndex == 0 && charCode != 0;
+        if (missing) {
+            return null;
+        }
+
+        if (direct && isDirect(parameter) && isCached(parameter)) {
+            FtCacheManager.SBit sbit = cacheManager.lookupSBit(cacheFaceId, parameter.getSize(), glyphIndex, parameter.getLoadFlags());
+            // the empty and the big glyphs have no pixels in the cache, they are rendered in the slot
+            if (sbit.getFormat() == FreeType.FT_PIXEL_MODE_GRAY && sbit.getWidth() != 0 && sbit.getHeight() != 0) {
+                return new GlyphBitmap(newGlyph(charCode, sbit, parameter, baseLine), sbit);
+            }
+        }
+
+        if (!face.loadGlyph(glyphIndex, parameter.getLoadFlags())) {
+            return null;
+        }
+
+        if (parameter.getRenderMode() == RenderMode.SDF) {
+            library.setSdfSpread(parameter.getSpread());
+        }
+
+        FtGlyphSlot slot = face.getGlyph();
+        FtGlyph main = slot.getGlyph();
+        FtBitmapGlyph mainGlyph;
+        try {
+            mainGlyph = main.toBitmap(parameter.getRenderMode().getMode());
+        } catch (FtRuntimeException e) {
+            main.close();
+            logger.error("Couldn't render charCode: {}, char:{}", (int) charCode, charCode, e);
+            return null;
+        }
+        FtBitmap mainBitmap = mainGlyph.getBitmap();
+        if (direct && isDirect(parameter) && mainBitmap.getPixelMode() == FreeType.FT_PIXEL_MODE_GRAY
+                && mainBitmap.getWidth() != 0 && mainBitmap.getRows() != 0) {
+            // keep the bitmap glyph open, it is closed when the GlyphBitmap is disposed
+            int width = mainBitmap.getWidth() + parameter.getPadLeft() + parameter.getPadRight();
+            int height = mainBitmap.getRows() + parameter.getPadTop() + parameter.getPadBottom();
+            return new GlyphBitmap(newGlyph(charCode, slot, mainGlyph, width, height, parameter, baseLine), mainGlyph);
+        }
+        Image mainImage = toImage(mainBitmap, mainScratch, parameter.getColor(), parameter.getGamma());
+
+        if (mainBitmap.getWidth() != 0 && mainBitmap.getRows() != 0) {
+            long offsetX;
+            long offsetY;
+            if (parameter.getBorderWidth() > 0) {
+                // execute stroker; this generates a glyph "extended" along the outline
+                long top = mainGlyph.getTop();
+                long left = mainGlyph.getLeft();
+                FtGlyph border = slot.getGlyph();
+                border = border.strokeBorder(stroker, false, true);
+                FtBitmapGlyph borderGlyph = border.toBitmap(parameter.getRenderMode().getMode());
+                offsetX = left - borderGlyph.getLeft();
+                offsetY = -(top - borderGlyph.getTop());
+
+                // Render border (pixmap is bigger than main).
+                FtBitmap borderBitmap = borderGlyph.getBitmap();
+                Image borderImage = toImage(borderBitmap, borderScratch, parameter.getBorderColor(), parameter.getBorderGamma());
+
+                // Draw main glyph on top of border.
+                for (int i = 0, n = parameter.getRenderCount(); i < n; i++) {
+                    ImageUtils.drawImage(borderImage, mainImage, (int) offsetX, (int) offsetY);
+                }
+
+                mainGlyph.close();
+                mainImage = borderImage;
+                mainGlyph = borderGlyph;
+            }
+
+            if (parameter.getShadowOffsetX() != 0 || parameter.getShadowOffsetY() != 0) {
+                int mainW = mainImage.getWidth();
+                int mainH = mainImage.getHeight();
+                int shadowOffsetX = Math.max(parameter.getShadowOffsetX(), 0);
+                int shadowOffsetY = Math.max(parameter.getShadowOffsetY(), 0);
+                int shadowW = mainW + Math.abs(parameter.getShadowOffsetX());
+                int shadowH = mainH + Math.abs(parameter.getShadowOffsetY());
+                Image shadowImage = shadowScratch.resize(shadowW, shadowH, true);
+
+                ColorRGBA shadowColor = parameter.getShadowColor();
+                float a = shadowColor.a;
+                if (a != 0) {
+                    byte r = (byte)(shadowColor.r * 255);
+                    byte g = (byte)(shadowColor.g * 255);
+                    byte b = (byte)(shadowColor.b * 255);
+                    ByteBuffer mainPixels = mainImage.getData(0);
+                    ByteBuffer shadowPixels = shadowImage.getData(0);
+                    for (int y = 0; y < mainH; y++) {
+                        int shadowRow = shadowW * (y + shadowOffsetY) + shadowOffsetX;
+                        for (int x = 0; x < mainW; x++) {
+                            int mainPixel = (mainW * y + x) * 4;
+                            byte mainA = mainPixels.get(mainPixel + 3);
+                            if (mainA == 0) continue;
+                            int shadowPixel = (shadowRow + x) * 4;
+                            shadowPixels.put(shadowPixel, r);
+                            shadowPixels.put(shadowPixel + 1, g);
+                            shadowPixels.put(shadowPixel + 2, b);
+                            shadowPixels.put(shadowPixel + 3, (byte)((mainA & 0xff) * a));
+                        }
+                    }
+                }
+
+                // Draw main glyph (with any border) on top of shadow.
+                for (int i = 0, n = parameter.getRenderCount(); i < n; i++) {
+                    ImageUtils.drawImage(shadowImage, mainImage, Math.max(-parameter.getShadowOffsetX(), 0), Math.max(-parameter.getShadowOffsetY(), 0));
+                }
+                mainImage = shadowImage;
+            } else if (parameter.getBorderWidth() == 0) {
+                // No shadow and no border, draw glyph additional times.
+                for (int i = 0, n = parameter.getRenderCount() - 1; i < n; i++) {
+                    ImageUtils.drawImage(mainImage, mainImage, 0, 0);
+                }
+            }
+
+            if (parameter.getPadTop() > 0 || parameter.getPadLeft() > 0 || parameter.getPadBottom() > 0 || parameter.getPadRight() > 0) {
+                Image paddingImage = paddingScratch.resize(mainImage.getWidth() + parameter.getPadLeft() + parameter.getPadRight(),
+                        mainImage.getHeight() + parameter.getPadTop() + parameter.getPadBottom(), true);
+                ImageUtils.drawImage(paddingImage, mainImage, parameter.getPadLeft(), parameter.getPadTop());
+                mainImage = paddingImage;
+            }
+        }
+
+        Glyph glyph = newGlyph(charCode, slot, mainGlyph, mainImage.getWidth(), mainImage.getHeight(), parameter, baseLine);
+
+        if (bitmapped) {
+            ImageRaster raster = ImageRaster.create(mainImage);
+            ByteBuffer buf = mainBitmap.getBuffer();
+            for (int h = 0; h < glyph.getHeight(); h++) {
+                int idx = h * Math.abs(mainBitmap.getPitch());
+                for (int w = 0; w < (glyph.getWidth() + glyph.getXOffset()); w++) {
+                    int bit = (buf.get(idx + (w / 8)) >>> (7 - (w % 8))) & 1;
+                    raster.setPixel(w, h, ((bit == 1) ? ColorRGBA.White : ColorRGBA.BlackNoAlpha));
+                }
+            }
+        }
+
+        mainGlyph.close();
+
+        return new GlyphBitmap(glyph, mainImage, false);
+    }
+
+    private Glyph newGlyph(char charCode, FtGlyphSlot slot, FtBitmapGlyph mainGlyph, int width, int height,
+                           FtFontParameter parameter, float baseLine) {
+        FtGlyphMetrics metrics = slot.getMetrics();
+        Glyph glyph = new Glyph(charCode);
+        glyph.setWidth(width);
+        glyph.setHeight(height);
+
+        glyph.setXOffset(mainGlyph.getLeft());
+        glyph.setYOffset((int) baseLine - mainGlyph.getTop());
+
+        glyph.setXAdvance( FtLibrary.from26D6(metrics.getHoriAdvance()) + parameter.getBorderWidth() + parameter.getSpaceX() );
+        glyph.setYAdvance( FtLibrary.from26D6(metrics.getVertAdvance()) + parameter.getBorderWidth() + parameter.getSpaceY() );
+        glyph.setFixedWidth(face.isFixedWidth());
+
+        // bitmap position, for debug purpose
+        glyph.setTop(mainGlyph.getTop());
+        glyph.setLeft(mainGlyph.getLeft());
+
+        // glyph metrics, for debug purpose
+        glyph.setHoriBearingX(FtLibrary.from26D6(metrics.getHoriBearingX()));
+        glyph.setHoriBearingY(FtLibrary.from26D6(metrics.getHoriBearingY()));
+        glyph.setHoriAdvance( FtLibrary.from26D6(metrics.getHoriAdvance()));
+        glyph.setVertBearingX( FtLibrary.from26D6(metrics.getVertBearingX()));
+        glyph.setVertBearingY( FtLibrary.from26D6(metrics.getVertBearingY()));
+        glyph.setVertAdvance( FtLibrary.from26D6(metrics.getVertAdvance()));
+
+        // generator parameter, for debug purpose
+        glyph.setBorderWidth((int) parameter.getBorderWidth());
+        glyph.setSpaceX(parameter.getSpaceX());
+        glyph.setSpaceY(parameter.getSpaceY());
+
+        return glyph;
+    }
+
+    // the sbit cache has no vertical metrics, they are only kept for debug
+    private Glyph newGlyph(char charCode, FtCacheManager.SBit sbit, FtFontParameter parameter, float baseLine) {
+        Glyph glyph = new Glyph(charCode);
+        glyph.setWidth(sbit.getWidth() + parameter.getPadLeft() + parameter.getPadRight());
+        glyph.setHeight(sbit.getHeight() + parameter.getPadTop() + parameter.getPadBottom());
+
+        glyph.setXOffset(sbit.getLeft());
+        glyph.setYOffset((int) baseLine - sbit.getTop());
+
+        glyph.setXAdvance(sbit.getXAdvance() + parameter.getSpaceX());
+        glyph.setYAdvance(sbit.getYAdvance() + parameter.getSpaceY());
+        glyph.setFixedWidth(face.isFixedWidth());
+
+        // bitmap position, for debug purpose
+        glyph.setTop(sbit.getTop());
+        glyph.setLeft(sbit.getLeft());
+
+        // glyph metrics, for debug purpose
+        glyph.setHoriBearingX(sbit.getLeft());
+        glyph.setHoriBearingY(sbit.getTop());
+        glyph.setHoriAdvance(sbit.getXAdvance());
+
+        // generator parameter, for debug purpose
+        glyph.setSpaceX(parameter.getSpaceX());
+        glyph.setSpaceY(parameter.getSpaceY());
+
+        return glyph;
+    }
+
+    private static Image toImage(FtBitmap bitmap, ScratchImage scratch, ColorRGBA color, float gamma) {
+        Image image = scratch.resize(bitmap.getWidth(), bitmap.getRows(), false);
+        ImageUtils.ftBitmapToImage(bitmap, color, gamma, image);
+        return image;
+    }
+}
@@ -0,0 +1,206 @@
+package io.github.jmecn.font.generator;
+
+import io.github.jmecn.font.freetype.FtFace;
+import io.github.jmecn.font.freetype.FtLibrary;
+
+import java.util.Arrays;
+
+import static org.lwjgl.util.freetype.FreeType.FT_KERNING_DEFAULT;
+
+/**
+ * Resolves the kerning of a character pair on first use and remembers it, instead of querying every pair of the
+ * character set when the font is generated.
+ *
+ * <p>The pairs are stored in an open addressing table of primitive longs and ints. A font without kerning data never
+ * calls FreeType. The {@link FtFontGenerator} must not be closed while the font is used, after that only the cached
+ * pairs are returned.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class KerningCache {
+
+    // chars are less than 0x10000, so no pair key is -1
+    private static final long EMPTY = -1L;
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final FtFontGenerator generator;
+    private final int size;
+    private final boolean hasKerning;
+
+    private long[] keys;
+    private int[] values;
+    private int count;
+
+    /**
+     * Receives the kerning pairs, see {@link #forEachPair}.
+     */
+    public interface PairConsumer {
+        void accept(char first, char second, int kerning);
+    }
+
+    /**
+     * @param generator the generator which holds the face
+     * @param size the pixel size of the font, kerning is scaled to this size.
+     */
+    public KerningCache(FtFontGenerator generator, int size) {
+        this.generator = generator;
+        this.size = size;
+        this.hasKerning = generator.getFace().hasKerning();
+        this.keys = newKeys(INITIAL_CAPACITY);
+        this.values = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return true if the face has kerning data.
+     */
+    public boolean hasKerning() {
+        return hasKerning;
+    }
+
+    /**
+     * @param first the first character
+     * @param second the second character
+     * @return the kerning in pixels to add between the two characters.
+     */
+    public synchronized int getKerning(int first, int second) {
+        if (!hasKerning) {
+            return 0;
+        }
+        long key = ((long) first << 32) | (second & 0xFFFFFFFFL);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        int kerning = resolve(first, second);
+        if (kerning == Integer.MIN_VALUE) {
+            // the face is closed, don't remember the pair.
+            return 0;
+        }
+        keys[i] = key;
+        values[i] = kerning;
+        if (++count * 4 >= keys.length * 3) {
+            rehash(keys.length << 1);
+        }
+        return kerning;
+    }
+
+    /**
+     * Query all the pairs of the characters without remembering them, e.g. to export the font, so the table only
+     * keeps the pairs used by the text. The pairs are visited in the order of the characters, the pairs without
+     * kerning are skipped. Once the generator is closed only the cached pairs are visited.
+     * @param characters the characters
+     * @param consumer receives the pairs
+     */
+    public void forEachPair(char[] characters, PairConsumer consumer) {
+        if (!hasKerning) {
+            return;
+        }
+        synchronized (generator) {
+            FtFace face = generator.getFace();
+            if (!face.isClosed()) {
+                int[] indexes = new int[characters.length];
+                for (int i = 0; i < characters.length; i++) {
+                    indexes[i] = generator.getCharIndex(characters[i]);
+                }
+                generator.setPixelSizes(0, size);
+                for (int i = 0; i < characters.length; i++) {
+                    if (indexes[i] == 0) continue;
+                    for (int j = 0; j < characters.length; j++) {
+                        if (indexes[j] == 0) continue;
+                        int kerning = FtLibrary.from26D6(face.getKerning(indexes[i], indexes[j], FT_KERNING_DEFAULT));
+                        if (kerning != 0) {
+                            consumer.accept(characters[i], characters[j], kerning);
+                        }
+                    }
+                }
+                return;
+            }
+        }
+        // not under the lock of the generator, getKerning takes it after the lock of this cache
+        for (char first : characters) {
+            for (char second : characters) {
+                int kerning = getCached(first, second);
+                if (kerning != 0) {
+                    consumer.accept(first, second, kerning);
+                }
+            }
+        }
+    }
+
+    private synchronized int getCached(int first, int second) {
+        long key = ((long) first << 32) | (second & 0xFFFFFFFFL);
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * @return number of the cached pairs.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    private int resolve(int first, int second) {
+        // the face may be shared by the fonts of other sizes, see FtFontRegistry
+        synchronized (generator) {
+            FtFace face = generator.getFace();
+            if (face.isClosed()) {
+                return Integer.MIN_VALUE;
+            }
+            int firstIndex = generator.getCharIndex(first);
+            if (firstIndex == 0) {
+                return 0;
+            }
+            int secondIndex = generator.getCharIndex(second);
+            if (secondIndex == 0) {
+                return 0;
+            }
+            // the face may be used by another size since the last call
+            generator.setPixelSizes(0, size);
+            long kerning = face.getKerning(firstIndex, secondIndex, FT_KERNING_DEFAULT); // FT_KERNING_DEFAULT (scaled then rounded).
+            return FtLibrary.from26D6(kerning);
+        }
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = newKeys(capacity);
+        values = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long key = oldKeys[j];
+            if (key != EMPTY) {
+                int i = hash(key) & mask;
+                while (keys[i] != EMPTY) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] array = new long[capacity];
+        Arrays.fill(array, EMPTY);
+        return array;
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable RGBA8 image used while compositing a glyph. The backing buffer grows to the largest glyph seen so far
+ * and is never shrunk, so rendering a glyph in steady state allocates no direct memory.
+ *
+ * <p>The content is only valid until the next call to {@link #resize(int, int, boolean)}.</p>
+ *
+ * @author yanmaoyuan
+ */
+final class ScratchImage {
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final Image image;
+    private ByteBuffer buffer;
+
+    ScratchImage() {
+        buffer = ByteBuffer.allocateDirect(0);
+        image = new Image(Image.Format.RGBA8, 0, 0, buffer, ColorSpace.Linear);
+    }
+
+    /**
+     * Resize the image, the backing buffer is reallocated only when it is too small.
+     *
+     * @param width image width
+     * @param height image height
+     * @param clear true to fill the pixels with zero, false if the caller overwrites every pixel.
+     * @return the image
+     */
+    Image resize(int width, int height, boolean clear) {
+        int size = width * height * BYTES_PER_PIXEL;
+        if (buffer.capacity() < size) {
+            // grow with some headroom to avoid reallocating for every slightly larger glyph
+            buffer = ByteBuffer.allocateDirect(Math.max(size, buffer.capacity() + (buffer.capacity() >> 1)));
+        }
+        buffer.clear();
+        buffer.limit(size);
+        if (clear) {
+            fillZero(buffer, size);
+        }
+
+        image.setWidth(width);
+        image.setHeight(height);
+        image.setData(0, buffer);
+        return image;
+    }
+
+    private static void fillZero(ByteBuffer buf, int size) {
+        int i = 0;
+        for (int n = size - 7; i < n; i += 8) {
+            buf.putLong(i, 0L);
+        }
+        for (; i < size; i++) {
+            buf.put(i, (byte) 0);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.jmecn.font.packer;
+
+/**
+ * The union of the regions drawn to a page.
+ *
+ * @author yanmaoyuan
+ */
+final class DirtyRegion {
+
+    // empty if minX >= maxX
+    int minX;
+    int minY;
+    int maxX;
+    int maxY;
+
+    void add(int x0, int y0, int x1, int y1) {
+        if (isEmpty()) {
+            minX = x0;
+            minY = y0;
+            maxX = x1;
+            maxY = y1;
+        } else {
+            minX = Math.min(minX, x0);
+            minY = Math.min(minY, y0);
+            maxX = Math.max(maxX, x1);
+            maxY = Math.max(maxY, y1);
+        }
+    }
+
+    boolean isEmpty() {
+        return minX >= maxX;
+    }
+
+    int width() {
+        return maxX - minX;
+    }
+
+    int height() {
+        return maxY - minY;
+    }
+
+    void reset() {
+        minX = minY = maxX = maxY = 0;
+    }
+}
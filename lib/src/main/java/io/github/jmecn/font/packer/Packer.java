@@ -1,7 +1,12 @@
 package io.github.jmecn.font.packer;
 
 import com.jme3.math.ColorRGBA;
+import com.jme3.renderer.Renderer;
 import com.jme3.texture.Image;
+import com.jme3.util.IntMap;
+import io.github.jmecn.font.exception.FtRuntimeException;
+import io.github.jmecn.font.freetype.FtBitmap;
+import io.github.jmecn.font.freetype.FtCacheManager;
 import io.github.jmecn.font.packer.listener.PageListener;
 import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
 import io.github.jmecn.font.packer.strategy.SkylineStrategy;
@@ -10,7 +15,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * desc:
@@ -30,12 +37,26 @@ public class Packer implements AutoCloseable {
     int alphaThreshold;
     private ColorRGBA transparentColor = new ColorRGBA(0, 0, 0, 0);
     private final List<Page> pages;
+    // the page to append to, the last page or the page cleared last
+    private Page open;
+    // max number of pages, 0 for unlimited
+    private int maxPages;
     private boolean dirty;// use this flag to determine whether the packer is dirty, which means the packer is dirty if any page is dirty. good for performance.
     Image.Format format;
     PackStrategy packStrategy;
 
     private List<PageListener> listeners;
 
+    // packed rectangles of all pages, only the rectangles inserted with a name or an id
+    private final Map<String, Rectangle> rectsByName;
+    private final IntMap<Rectangle> rectsById;
+
+    // memory budget of the pages, 0 for unlimited
+    private long maxBytes;
+    private long committedBytes;
+
+    private final UploadStats uploadStats = new UploadStats();
+
     public Packer(int pageWidth, int pageHeight, int padding) {
         this(Image.Format.RGBA8, pageWidth, pageHeight, padding, false, new GuillotineStrategy());
     }
@@ -53,6 +74,8 @@ public class Packer implements AutoCloseable {
         this.pages = new ArrayList<>();
         this.packStrategy = packStrategy;
         this.listeners = new ArrayList<>();
+        this.rectsByName = new HashMap<>();
+        this.rectsById = new IntMap<>();
     }
 
     private boolean existsListener(PageListener listener) {
@@ -107,12 +130,52 @@ public class Packer implements AutoCloseable {
      * @throws RuntimeException in case the image did not fit due to the page size being too small or providing a duplicate name.
      */
     public synchronized Rectangle pack(String name, Image image) {
-        if (name != null && getRect(name) != null) {
+        Rectangle rect = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        insert(name, rect);
+        draw(rect, image);
+        return rect;
+    }
+
+    /**
+     * Finds the place of the rectangle without drawing anything. The location and the page of the rectangle are
+     * updated. Use {@link #draw(Rectangle, Image)} to draw the image later.
+     * @param name If null, the rectangle cannot be looked up by name.
+     * @param rect The rectangle to place, its width and height must be set.
+     * @return the page the rectangle is placed in.
+     * @throws RuntimeException in case the rectangle did not fit due to the page size being too small or providing a duplicate name.
+     */
+    public synchronized Page insert(String name, Rectangle rect) {
+        if (name != null && rectsByName.containsKey(name)) {
             throw new IllegalArgumentException("Image has already been packed with name: " + name);
         }
 
-        Rectangle rect = new Rectangle(0, 0, image.getWidth(), image.getHeight());
+        Page page = place(name, rect);
+        if (name != null) {
+            page.put(name, rect);
+            rectsByName.put(name, rect);
+        }
+        return page;
+    }
+
+    /**
+     * Finds the place of the rectangle without drawing anything, like {@link #insert(String, Rectangle)}. The
+     * rectangle can be looked up by id with {@link #getRect(int)}.
+     * @param id the id of the rectangle
+     * @param rect The rectangle to place, its width and height must be set.
+     * @return the page the rectangle is placed in.
+     * @throws RuntimeException in case the rectangle did not fit due to the page size being too small or providing a duplicate id.
+     */
+    public synchronized Page insert(int id, Rectangle rect) {
+        if (rectsById.containsKey(id)) {
+            throw new IllegalArgumentException("Image has already been packed with id: " + id);
+        }
+
+        Page page = place(null, rect);
+        rectsById.put(id, rect);
+        return page;
+    }
 
+    private Page place(String name, Rectangle rect) {
         if (rect.getWidth() > pageWidth || rect.getHeight() > pageHeight) {
             logger.info("Image dose not fit, page size:{}, {}, rect size:{}, {}", pageWidth, pageHeight, rect.getWidth(), rect.getHeight());
             if (name == null)  {
@@ -123,10 +186,31 @@ public class Packer implements AutoCloseable {
         }
 
         Page page = packStrategy.pack(this, name, rect);
-        rect.setPage(page.index);
-        if (name != null) {
-            page.put(name, rect);
+        if (page == null) {
+            // the page limit or the memory budget is reached, ask the listeners to clear a page and try again
+            for (PageListener listener : listeners) {
+                if (listener.onPageLimitReached(this)) {
+                    page = packStrategy.pack(this, name, rect);
+                    if (page != null) {
+                        break;
+                    }
+                }
+            }
+            if (page == null) {
+                throw new FtRuntimeException("Packer page limit reached, max pages:" + maxPages + ", committed bytes:" + committedBytes + ", max bytes:" + maxBytes);
+            }
         }
+        rect.setPage(page.index);
+        return page;
+    }
+
+    /**
+     * Draws the image to the place of a rectangle returned by {@link #insert(String, Rectangle)}.
+     * @param rect The placed rectangle.
+     * @param image The image to draw, it has the same size as the rectangle.
+     */
+    public synchronized void draw(Rectangle rect, Image image) {
+        Page page = pages.get(rect.page);
 
         int rectX = rect.x;
         int rectY = rect.y;
@@ -153,28 +237,77 @@ public class Packer implements AutoCloseable {
             ImageUtils.drawImage(page.image, image, 0, imageHeight - 1, imageWidth, 1, rectX, bottom);
             ImageUtils.drawImage(page.image, image, 0, 0, 1, imageHeight, left, rectY);
             ImageUtils.drawImage(page.image, image, imageWidth - 1, 0, 1, imageHeight, right, rectY);
+            page.addDirtyRegion(left, top, rectWidth + 2, rectHeight + 2);
         }
 
         // mark page as dirty, so the mipmap can be re-generated
         page.setDirty(true);
         setDirty(true);
-        return rect;
+    }
+
+    /**
+     * @return true if {@link #drawCoverage} can be used for this packer.
+     */
+    public boolean canDrawCoverage() {
+        return (format == Image.Format.RGBA8 || format == Image.Format.Alpha8) && !duplicateBorder;
+    }
+
+    /**
+     * Draws a FreeType gray bitmap to the place of a rectangle returned by {@link #insert(String, Rectangle)}, without
+     * converting it to an {@link Image} first.
+     * @param rect The placed rectangle.
+     * @param bitmap The FreeType bitmap.
+     * @param lut The pixels created by {@link ImageUtils#newCoverageLut}.
+     * @param padLeft The x of the bitmap in the rectangle.
+     * @param padTop The y of the bitmap in the rectangle.
+     */
+    public synchronized void drawCoverage(Rectangle rect, FtBitmap bitmap, int[] lut, int padLeft, int padTop) {
+        if (!canDrawCoverage()) {
+            throw new IllegalStateException("Can't draw coverage to page format: " + format);
+        }
+        Page page = pages.get(rect.page);
+        page.drawCoverage(bitmap, lut, rect, padLeft, padTop);
+
+        // mark page as dirty, so the mipmap can be re-generated
+        page.setDirty(true);
+        setDirty(true);
+    }
+
+    /**
+     * Draws a gray bitmap of the sbit cache, see {@link #drawCoverage(Rectangle, FtBitmap, int[], int, int)}.
+     * @param rect The placed rectangle.
+     * @param sbit The cached bitmap.
+     * @param lut The pixels created by {@link ImageUtils#newCoverageLut}.
+     * @param padLeft The x of the bitmap in the rectangle.
+     * @param padTop The y of the bitmap in the rectangle.
+     */
+    public synchronized void drawCoverage(Rectangle rect, FtCacheManager.SBit sbit, int[] lut, int padLeft, int padTop) {
+        if (!canDrawCoverage()) {
+            throw new IllegalStateException("Can't draw coverage to page format: " + format);
+        }
+        Page page = pages.get(rect.page);
+        page.drawCoverage(sbit, lut, rect, padLeft, padTop);
+
+        // mark page as dirty, so the mipmap can be re-generated
+        page.setDirty(true);
+        setDirty(true);
     }
 
     public boolean isEmpty() {
         return pages.isEmpty();
     }
 
+    /**
+     * @return the page to append to, it is the last page, or the page cleared by {@link #clearPage(Page)}.
+     */
     public Page peek() {
-        if (pages.isEmpty()) {
-            return null;
-        }
-        return pages.get(pages.size() - 1);
+        return open;
     }
 
     public void addPage(Page page) {
         page.index = pages.size();
         pages.add(page);
+        open = page;
 
         // notify listeners
         for (PageListener listener : listeners) {
@@ -195,11 +328,15 @@ public class Packer implements AutoCloseable {
      * @return the rectangle for the image in the page it's stored in or null
      */
     public synchronized Rectangle getRect(String name) {
-        for (Page page : pages) {
-            Rectangle rect = page.get(name);
-            if (rect != null) return rect;
-        }
-        return null;
+        return rectsByName.get(name);
+    }
+
+    /**
+     * @param id the id of the rectangle
+     * @return the rectangle inserted with {@link #insert(int, Rectangle)} or null
+     */
+    public synchronized Rectangle getRect(int id) {
+        return rectsById.get(id);
     }
 
     /**
@@ -207,22 +344,63 @@ public class Packer implements AutoCloseable {
      * @return the page the image is stored in or null
      */
     public synchronized Page getPage(String name) {
-        for (Page page : pages) {
-            Rectangle rect = page.get(name);
-            if (rect != null) return page;
-        }
-        return null;
+        Rectangle rect = rectsByName.get(name);
+        return rect == null ? null : pages.get(rect.page);
     }
 
     /** Returns the index of the page containing the given packed rectangle.
      * @param name the name of the image
      * @return the index of the page the image is stored in or -1 */
     public synchronized int getPageIndex(String name) {
-        for (int i = 0; i < pages.size(); i++) {
-            Rectangle rect = pages.get(i).get(name);
-            if (rect != null) return i;
+        Rectangle rect = rectsByName.get(name);
+        return rect == null ? -1 : rect.page;
+    }
+
+    /**
+     * @return true if a new page can be added without exceeding {@link #getMaxPages()} or {@link #getMaxBytes()}.
+     */
+    public boolean canAddPage() {
+        return (maxPages <= 0 || pages.size() < maxPages)
+                && (maxBytes <= 0 || committedBytes + getPageBytes() <= maxBytes);
+    }
+
+    public int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Set the max number of pages. When a rectangle doesn't fit in the pages, the {@link PageListener}s are asked to
+     * clear a page with {@link #clearPage(Page)}, see {@link PageListener#onPageLimitReached(Packer)}.
+     * @param maxPages max number of pages, 0 for unlimited.
+     */
+    public synchronized void setMaxPages(int maxPages) {
+        this.maxPages = maxPages;
+    }
+
+    /**
+     * Remove all the rectangles of a page and fill it with 0. The page keeps its index and image, it is used by the
+     * next inserts.
+     * @param page the page to clear
+     */
+    public synchronized void clearPage(Page page) {
+        int index = page.index;
+        rectsByName.values().removeIf(rect -> rect.page == index);
+        List<Integer> ids = new ArrayList<>();
+        for (IntMap.Entry<Rectangle> entry : rectsById) {
+            if (entry.getValue().page == index) {
+                ids.add(entry.getKey());
+            }
         }
-        return -1;
+        for (int id : ids) {
+            rectsById.remove(id);
+        }
+
+        page.clear();
+        open = page;
+
+        // mark page as dirty, so the mipmap can be re-generated
+        page.setDirty(true);
+        setDirty(true);
     }
 
     public int getPageWidth() {
@@ -269,12 +447,85 @@ public class Packer implements AutoCloseable {
         return packStrategy;
     }
 
+    /**
+     * @return the bytes of the image buffer of one page.
+     */
+    public int getPageBytes() {
+        return pageWidth * pageHeight * format.getBitsPerPixel() / 8;
+    }
+
+    /**
+     * @return the bytes allocated by the pages of this packer.
+     */
+    public synchronized long getCommittedBytes() {
+        return committedBytes;
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Set the memory budget of the pages. A page which would exceed the budget is not added, the {@link PageListener}s
+     * are asked to clear a page with {@link #clearPage(Page)} like {@link #setMaxPages(int)}.
+     * @param maxBytes max bytes of all pages, 0 for unlimited.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Reserve the memory of a new page.
+     * @param bytes the bytes of the page
+     * @throws FtRuntimeException if the memory budget is exceeded
+     */
+    synchronized void reserve(long bytes) {
+        if (maxBytes > 0 && committedBytes + bytes > maxBytes) {
+            throw new FtRuntimeException("Packer memory budget exceeded, committed:" + committedBytes + ", required:" + bytes + ", max:" + maxBytes);
+        }
+        committedBytes += bytes;
+    }
+
+    /**
+     * Upload the regions of the pages drawn since the last call, instead of the whole pages. Call it on the render
+     * thread before the pages are rendered, e.g. in {@link com.jme3.app.state.AppState#render}. If it is never
+     * called, the renderer uploads the whole pages as usual.
+     * @param renderer the renderer
+     */
+    public synchronized void upload(Renderer renderer) {
+        for (Page page : pages) {
+            page.upload(renderer, uploadStats);
+        }
+    }
+
+    /**
+     * Update the mip maps of the regions drawn to the dirty pages, then clear the dirty flags.
+     */
+    public synchronized void updateMipMaps() {
+        if (!dirty) {
+            return;
+        }
+        for (Page page : pages) {
+            if (page.isDirty()) {
+                page.updateMipMaps();
+                page.setDirty(false);
+                logger.debug("update mipmap for page:{}", page.getIndex());
+            }
+        }
+        dirty = false;
+    }
+
+    public UploadStats getUploadStats() {
+        return uploadStats;
+    }
+
     @Override
     public void close() {
         // nothing to do
         for (Page page : pages) {
             page.getImage().dispose();
         }
+        committedBytes = 0;
     }
 
     public boolean isDirty() {
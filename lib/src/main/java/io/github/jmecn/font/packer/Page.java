@@ -1,9 +1,14 @@
 package io.github.jmecn.font.packer;
 
+import com.jme3.renderer.Renderer;
 import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
 import com.jme3.texture.image.ColorSpace;
 import com.jme3.util.BufferUtils;
+import io.github.jmecn.font.freetype.FtBitmap;
+import io.github.jmecn.font.freetype.FtCacheManager;
 import io.github.jmecn.font.utils.ImageUtils;
+import io.github.jmecn.font.utils.MipMapUtils;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -24,14 +29,21 @@ public class Page {
     private boolean dirty;
 
     protected Image image;
+    // the texture of the image, to upload the dirty region only
+    private Texture texture;
+
+    // the regions drawn since the last upload, and since the last mip map update
+    private final DirtyRegion uploadRegion = new DirtyRegion();
+    private final DirtyRegion mipMapRegion = new DirtyRegion();
+    // the dirty region is copied to this image to be uploaded
+    private Image region;
 
     public Page(Packer packer) {
-        int size = packer.pageWidth * packer.pageHeight * packer.format.getBitsPerPixel();
+        int size = packer.getPageBytes();
+        // refuse to allocate the page if the memory budget is exceeded
+        packer.reserve(size);
+        // direct buffers are filled with 0 when allocated
         ByteBuffer buffer = BufferUtils.createByteBuffer(size);
-
-        // in case the buffer is not filled with 0,
-        buffer.put(new byte[size]);
-        buffer.clear();
         image = new Image(packer.format, packer.pageWidth, packer.pageHeight, buffer, ColorSpace.Linear);
 
         rectangles = new HashMap<>();
@@ -44,12 +56,155 @@ public class Page {
         names.add(name);
     }
 
+    /**
+     * Add a region to the dirty region. The coordinates are those of the image data, the first row is the bottom of
+     * the texture.
+     * @param x x of the region
+     * @param y y of the region
+     * @param width width of the region
+     * @param height height of the region
+     */
+    public synchronized void addDirtyRegion(int x, int y, int width, int height) {
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, image.getWidth());
+        int y1 = Math.min(y + height, image.getHeight());
+        if (x0 >= x1 || y0 >= y1) {
+            return;
+        }
+        uploadRegion.add(x0, y0, x1, y1);
+        mipMapRegion.add(x0, y0, x1, y1);
+    }
+
+    /**
+     * @return the region drawn since the last upload in image data coordinates, or null if nothing is drawn.
+     */
+    public synchronized Rectangle getDirtyRegion() {
+        if (uploadRegion.isEmpty()) {
+            return null;
+        }
+        return new Rectangle(uploadRegion.minX, uploadRegion.minY, uploadRegion.width(), uploadRegion.height());
+    }
+
+    /**
+     * Update the mip maps of the region drawn since the last call. All levels are generated if the image has no mip
+     * maps yet.
+     */
+    public synchronized void updateMipMaps() {
+        if (mipMapRegion.isEmpty()) {
+            return;
+        }
+        DirtyRegion r = mipMapRegion;
+        MipMapUtils.updateMipMaps(image, r.minX, r.minY, r.width(), r.height());
+        mipMapRegion.reset();
+    }
+
+    /**
+     * Upload the dirty region of the page with {@link Renderer#modifyTexture}, instead of the whole image. It must be
+     * called on the render thread before the page is rendered.
+     *
+     * <p>The whole image is uploaded by the renderer if the texture is not uploaded yet, it uses mipmaps, or the dirty
+     * region is larger than half of the page.</p>
+     *
+     * @param renderer the renderer
+     * @param stats the statistics to update
+     */
+    public synchronized void upload(Renderer renderer, UploadStats stats) {
+        if (uploadRegion.isEmpty()) {
+            return;
+        }
+        int x = uploadRegion.minX;
+        int y = uploadRegion.minY;
+        int width = uploadRegion.width();
+        int height = uploadRegion.height();
+        int bpp = image.getFormat().getBitsPerPixel() / 8;
+        int pageBytes = image.getWidth() * image.getHeight() * bpp;
+        int regionBytes = width * height * bpp;
+        uploadRegion.reset();
+
+        if (texture == null || image.getId() == Image.INVALID_ID || image.hasMipmaps()
+                || texture.getMinFilter().usesMipMapLevels() || regionBytes * 2 > pageBytes) {
+            image.setUpdateNeeded();
+            stats.addFullUpload(pageBytes);
+            return;
+        }
+
+        image.clearUpdateNeeded();
+        renderer.modifyTexture(texture, copyRegion(x, y, width, height, bpp), x, y);
+        stats.addPartialUpload(regionBytes, pageBytes);
+    }
+
+    private Image copyRegion(int x, int y, int width, int height, int bpp) {
+        int size = width * height * bpp;
+        ByteBuffer buffer = region == null ? null : region.getData(0);
+        if (buffer == null || buffer.capacity() < size) {
+            buffer = BufferUtils.createByteBuffer(size);
+            region = new Image(image.getFormat(), width, height, buffer, image.getColorSpace());
+        }
+
+        ByteBuffer src = image.getData(0).duplicate();
+        buffer.clear();
+        int stride = image.getWidth() * bpp;
+        int rowBytes = width * bpp;
+        for (int row = y; row < y + height; row++) {
+            int pos = row * stride + x * bpp;
+            src.limit(pos + rowBytes).position(pos);
+            buffer.put(src);
+        }
+        buffer.flip();
+
+        region.setWidth(width);
+        region.setHeight(height);
+        region.setData(0, buffer);
+        return region;
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public void setTexture(Texture texture) {
+        this.texture = texture;
+    }
+
     public Rectangle get(String name) {
         return rectangles.get(name);
     }
 
+    /**
+     * Remove all rectangles and fill the image with 0. Subclasses reset the state of their {@link PackStrategy}.
+     */
+    protected void clear() {
+        rectangles.clear();
+        names.clear();
+
+        ByteBuffer buffer = image.getData(0);
+        int size = buffer.capacity();
+        int i = 0;
+        for (int n = size - 7; i < n; i += 8) {
+            buffer.putLong(i, 0L);
+        }
+        for (; i < size; i++) {
+            buffer.put(i, (byte) 0);
+        }
+        image.setUpdateNeeded();
+        addDirtyRegion(0, 0, image.getWidth(), image.getHeight());
+    }
+
     public void drawImage(Image image, int x, int y) {
         ImageUtils.drawImage(this.image, image, x, y, true);
+        // the image is drawn flipped
+        addDirtyRegion(x, this.image.getHeight() - y - image.getHeight(), image.getWidth(), image.getHeight());
+    }
+
+    public void drawCoverage(FtBitmap bitmap, int[] lut, Rectangle rect, int padLeft, int padTop) {
+        ImageUtils.drawCoverage(this.image, bitmap, lut, rect.x, rect.y, rect.width, rect.height, padLeft, padTop, true);
+        addDirtyRegion(rect.x, image.getHeight() - rect.y - rect.height, rect.width, rect.height);
+    }
+
+    public void drawCoverage(FtCacheManager.SBit sbit, int[] lut, Rectangle rect, int padLeft, int padTop) {
+        ImageUtils.drawCoverage(this.image, sbit, lut, rect.x, rect.y, rect.width, rect.height, padLeft, padTop, true);
+        addDirtyRegion(rect.x, image.getHeight() - rect.y - rect.height, rect.width, rect.height);
     }
 
     public int getIndex() {
@@ -0,0 +1,70 @@
+package io.github.jmecn.font.packer;
+
+/**
+ * Statistics of the page uploads done by {@link Packer#upload}, to see how many bytes the partial uploads save.
+ *
+ * @author yanmaoyuan
+ */
+public class UploadStats {
+
+    private int fullUploads;
+    private int partialUploads;
+    private long uploadedBytes;
+    private long savedBytes;
+
+    synchronized void addFullUpload(int pageBytes) {
+        fullUploads++;
+        uploadedBytes += pageBytes;
+    }
+
+    synchronized void addPartialUpload(int regionBytes, int pageBytes) {
+        partialUploads++;
+        uploadedBytes += regionBytes;
+        savedBytes += pageBytes - regionBytes;
+    }
+
+    /**
+     * @return the number of pages uploaded as a whole
+     */
+    public synchronized int getFullUploads() {
+        return fullUploads;
+    }
+
+    /**
+     * @return the number of pages uploaded by the dirty region only
+     */
+    public synchronized int getPartialUploads() {
+        return partialUploads;
+    }
+
+    /**
+     * @return the bytes uploaded
+     */
+    public synchronized long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * @return the bytes that would be uploaded more if the whole pages were uploaded
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    public synchronized void reset() {
+        fullUploads = 0;
+        partialUploads = 0;
+        uploadedBytes = 0;
+        savedBytes = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "UploadStats{" +
+                "fullUploads=" + fullUploads +
+                ", partialUploads=" + partialUploads +
+                ", uploadedBytes=" + uploadedBytes +
+                ", savedBytes=" + savedBytes +
+                '}';
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.jmecn.font.packer.listener;
+
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.packer.PackStrategy;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.Page;
+
+/**
+ * When the page limit or the memory budget of an incremental font is reached, clear the least recently used page of
+ * the character set.
+ *
+ * @author yanmaoyuan
+ */
+public class FtFontEvictListener implements PageListener {
+
+    private final FtBitmapCharacterSet data;
+
+    public FtFontEvictListener(FtBitmapCharacterSet data) {
+        this.data = data;
+    }
+
+    @Override
+    public void onPageAdded(Packer packer, PackStrategy strategy, Page page) {
+        // nothing to do
+    }
+
+    @Override
+    public boolean onPageLimitReached(Packer packer) {
+        return data.evictPage();
+    }
+}
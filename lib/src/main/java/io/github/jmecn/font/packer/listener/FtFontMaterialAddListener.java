@@ -1,9 +1,14 @@
 package io.github.jmecn.font.packer.listener;
 
+import com.jme3.material.MatParam;
 import com.jme3.material.Material;
+import com.jme3.material.MaterialDef;
 import com.jme3.material.RenderState;
+import com.jme3.shader.VarType;
 import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
 import com.jme3.texture.Texture2D;
+import com.jme3.texture.TextureArray;
 import io.github.jmecn.font.FtBitmapCharacterSet;
 import io.github.jmecn.font.generator.FtFontParameter;
 import io.github.jmecn.font.packer.PackStrategy;
@@ -18,6 +23,9 @@ import org.slf4j.LoggerFactory;
 public class FtFontMaterialAddListener implements PageListener {
     static Logger logger = LoggerFactory.getLogger(FtFontMaterialAddListener.class);
 
+    static final String SINGLE_CHANNEL = "SingleChannel";
+    static final String SDF_USE_ALPHA = "SdfUseAlpha";
+
     private final FtFontParameter parameter;
     private final FtBitmapCharacterSet data;
 
@@ -28,26 +36,82 @@ public class FtFontMaterialAddListener implements PageListener {
 
     @Override
     public void onPageAdded(Packer packer, PackStrategy strategy, Page page) {
-        Image image = page.getImage();
+        page.setTexture(addPage(parameter, data, page.getIndex(), page.getImage()));
+    }
+
+    /**
+     * Add the image of a page and its material to the character set. It is also used for the pages which are not
+     * packed, e.g. the pages of a cached font.
+     *
+     * <p>When the parameter uses a {@link FtFontParameter#isTextureArray() texture array}, the pages share one texture
+     * and one material, which are created with the first page. The next pages are added to the texture as layers by
+     * {@link FtBitmapCharacterSet#updateTextureArray()}.</p>
+     *
+     * @param parameter the font parameter
+     * @param data the character set
+     * @param index index of the page
+     * @param image image of the page
+     * @return the texture of the page, or null if the parameter has no material define or uses a texture array.
+     * @throws IllegalArgumentException if the parameter uses a texture array and the color map of the material define
+     * is not a texture array.
+     */
+    public static Texture2D addPage(FtFontParameter parameter, FtBitmapCharacterSet data, int index, Image image) {
         data.addImage(image);
 
         if (parameter.getMatDef() == null) {
             logger.warn("Material define is null");
-            return;
+            return null;
+        }
+
+        if (parameter.isTextureArray()) {
+            if (data.getTextureArray() == null) {
+                checkTextureArray(parameter);
+                TextureArray textureArray = new TextureArray(data.getImages());
+                setFilters(parameter, textureArray);
+                data.setTextureArray(textureArray, newMaterial(parameter, textureArray, image.getFormat()));
+            }
+            return null;
         }
 
         Texture2D texture2D = new Texture2D(image);
-        texture2D.setMinFilter(parameter.getMinFilter());
-        texture2D.setMagFilter(parameter.getMagFilter());
-        texture2D.setAnisotropicFilter(8);
+        setFilters(parameter, texture2D);
+        data.addMaterial(index, newMaterial(parameter, texture2D, image.getFormat()));
+        return texture2D;
+    }
 
+    private static void checkTextureArray(FtFontParameter parameter) {
+        MaterialDef matDef = parameter.getMatDef();
+        MatParam param = matDef.getMaterialParam(parameter.getColorMapParamName());
+        if (param == null || param.getVarType() != VarType.TextureArray) {
+            throw new IllegalArgumentException("The " + parameter.getColorMapParamName() + " of material " + matDef.getName()
+                    + " is " + (param == null ? "not defined" : param.getVarType())
+                    + ", the texture array needs a TextureArray param, use Shaders/Font/FontArray.j3md instead");
+        }
+    }
+
+    private static void setFilters(FtFontParameter parameter, Texture texture) {
+        texture.setMinFilter(parameter.getMinFilter());
+        texture.setMagFilter(parameter.getMagFilter());
+        texture.setAnisotropicFilter(8);
+    }
+
+    private static Material newMaterial(FtFontParameter parameter, Texture texture, Image.Format format) {
         Material material = new Material(parameter.getMatDef());
-        material.setTexture(parameter.getColorMapParamName(), texture2D);
+        material.setTexture(parameter.getColorMapParamName(), texture);
         if (parameter.isUseVertexColor()) {
             material.setBoolean(parameter.getVertexColorParamName(), true);
         }
+        if (format == Image.Format.Alpha8) {
+            // the page only keeps the coverage in the alpha channel
+            if (parameter.getMatDef().getMaterialParam(SINGLE_CHANNEL) != null) {
+                material.setBoolean(SINGLE_CHANNEL, true);
+            } else if (parameter.getMatDef().getMaterialParam(SDF_USE_ALPHA) != null) {
+                material.setBoolean(SDF_USE_ALPHA, true);
+            } else {
+                logger.warn("Material {} can't read the Alpha8 page, use Shaders/Font/Font.j3md instead", parameter.getMatDef().getName());
+            }
+        }
         material.getAdditionalRenderState().setBlendMode(RenderState.BlendMode.Alpha);
-
-        data.addMaterial(page.getIndex(), material);
+        return material;
     }
 }
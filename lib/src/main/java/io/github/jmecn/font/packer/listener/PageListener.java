@@ -9,4 +9,15 @@ import io.github.jmecn.font.packer.Page;
  */
 public interface PageListener {
     void onPageAdded(Packer packer, PackStrategy strategy, Page page);
+
+    /**
+     * Called when a rectangle doesn't fit and no page can be added, see {@link Packer#setMaxPages(int)} and
+     * {@link Packer#setMaxBytes(long)}.
+     * A listener may clear a page with {@link Packer#clearPage(Page)}.
+     * @param packer the packer
+     * @return true if a page was cleared
+     */
+    default boolean onPageLimitReached(Packer packer) {
+        return false;
+    }
 }
\ No newline at end of file
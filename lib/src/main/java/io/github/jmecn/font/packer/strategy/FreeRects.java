@@ -0,0 +1,158 @@
+package io.github.jmecn.font.packer.strategy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The maximal free rectangles of an area, used by {@link MaxRectsStrategy} for a page and by
+ * {@link SkylineStrategy} for the space wasted below the skyline.
+ *
+ * @author yanmaoyuan
+ */
+class FreeRects {
+
+    static final class Free {
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Free(int x, int y, int width, int height) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        boolean contains(Free other) {
+            return other.x >= x && other.y >= y
+                    && other.x + other.width <= x + width
+                    && other.y + other.height <= y + height;
+        }
+    }
+
+    private final List<Free> free = new ArrayList<>();
+    private final List<Free> split = new ArrayList<>();
+
+    void clear() {
+        free.clear();
+    }
+
+    boolean isEmpty() {
+        return free.isEmpty();
+    }
+
+    int size() {
+        return free.size();
+    }
+
+    /**
+     * Add a free area which doesn't overlap the others.
+     */
+    void add(int x, int y, int width, int height) {
+        if (width > 0 && height > 0) {
+            free.add(new Free(x, y, width, height));
+        }
+    }
+
+    /**
+     * Find the free rectangle to place an area.
+     * @param width width
+     * @param height height
+     * @param heuristic how to choose between the fitting rectangles
+     * @return the chosen free rectangle, or null if the area doesn't fit.
+     */
+    Free find(int width, int height, MaxRectsStrategy.Heuristic heuristic) {
+        Free best = null;
+        int bestScore1 = Integer.MAX_VALUE;
+        int bestScore2 = Integer.MAX_VALUE;
+        for (int i = 0, n = free.size(); i < n; i++) {
+            Free f = free.get(i);
+            if (width > f.width || height > f.height) {
+                continue;
+            }
+            int score1;
+            int score2;
+            if (heuristic == MaxRectsStrategy.Heuristic.BOTTOM_LEFT) {
+                score1 = f.y + height;
+                score2 = f.x;
+            } else {
+                int leftoverX = f.width - width;
+                int leftoverY = f.height - height;
+                score1 = Math.min(leftoverX, leftoverY);
+                score2 = Math.max(leftoverX, leftoverY);
+            }
+            if (score1 < bestScore1 || (score1 == bestScore1 && score2 < bestScore2)) {
+                best = f;
+                bestScore1 = score1;
+                bestScore2 = score2;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Mark the area as used, split the free rectangles it overlaps and prune the new ones.
+     * @param x x
+     * @param y y
+     * @param width width
+     * @param height height
+     */
+    void place(int x, int y, int width, int height) {
+        int right = x + width;
+        int bottom = y + height;
+        for (int i = free.size() - 1; i >= 0; i--) {
+            Free f = free.get(i);
+            if (x >= f.x + f.width || right <= f.x || y >= f.y + f.height || bottom <= f.y) {
+                continue;
+            }
+            // remove by swapping with the last one, the order of the free list doesn't matter.
+            Free last = free.remove(free.size() - 1);
+            if (i < free.size()) {
+                free.set(i, last);
+            }
+
+            if (x > f.x) {
+                addSplit(new Free(f.x, f.y, x - f.x, f.height));
+            }
+            if (right < f.x + f.width) {
+                addSplit(new Free(right, f.y, f.x + f.width - right, f.height));
+            }
+            if (y > f.y) {
+                addSplit(new Free(f.x, f.y, f.width, y - f.y));
+            }
+            if (bottom < f.y + f.height) {
+                addSplit(new Free(f.x, bottom, f.width, f.y + f.height - bottom));
+            }
+        }
+
+        // An old free rectangle can't be inside a new one, because the free list had no contained rectangles
+        // before. Only the new ones need to be checked.
+        for (Free f : split) {
+            boolean contained = false;
+            for (int i = 0, n = free.size(); i < n; i++) {
+                if (free.get(i).contains(f)) {
+                    contained = true;
+                    break;
+                }
+            }
+            if (!contained) {
+                free.add(f);
+            }
+        }
+        split.clear();
+    }
+
+    private void addSplit(Free f) {
+        for (int i = split.size() - 1; i >= 0; i--) {
+            Free other = split.get(i);
+            if (other.contains(f)) {
+                return;
+            }
+            if (f.contains(other)) {
+                split.remove(i);
+            }
+        }
+        split.add(f);
+    }
+}
@@ -19,4 +19,10 @@ class GuillotinePage extends Page {
 	public Node insert(Rectangle rect) {
 		return root.insert(rect);
 	}
+
+	@Override
+	protected void clear() {
+		super.clear();
+		root = new Node(root.rect.getX(), root.rect.getY(), root.rect.getWidth(), root.rect.getHeight());
+	}
 }
\ No newline at end of file
@@ -34,6 +34,11 @@ public class GuillotineStrategy implements PackStrategy {
 
 		Node node = page.insert(image);
 		if (node == null) {
+			if (!packer.canAddPage()) {
+				// page limit reached
+				image.subtractPadding(padding);
+				return null;
+			}
 			// Didn't fit, pack into a new page.
 			page = new GuillotinePage(packer);
 			packer.addPage(page);
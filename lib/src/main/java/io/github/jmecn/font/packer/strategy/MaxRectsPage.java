@@ -0,0 +1,33 @@
+package io.github.jmecn.font.packer.strategy;
+
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.Page;
+
+/**
+ * A page of {@link MaxRectsStrategy}, it keeps the maximal free rectangles of the page.
+ *
+ * @author yanmaoyuan
+ */
+class MaxRectsPage extends Page {
+
+    final FreeRects free;
+    private final int padding;
+    private final int width;
+    private final int height;
+
+    public MaxRectsPage(Packer packer) {
+        super(packer);
+        padding = packer.getPadding();
+        width = packer.getPageWidth() - padding * 2;
+        height = packer.getPageHeight() - padding * 2;
+        free = new FreeRects();
+        free.add(padding, padding, width, height);
+    }
+
+    @Override
+    protected void clear() {
+        super.clear();
+        free.clear();
+        free.add(padding, padding, width, height);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.jmecn.font.packer.strategy;
+
+import io.github.jmecn.font.packer.PackStrategy;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.Page;
+import io.github.jmecn.font.packer.Rectangle;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Keeps all the maximal free rectangles of each page and places an image in the one chosen by the {@link Heuristic}.
+ * It wastes less space than {@link SkylineStrategy} and {@link GuillotineStrategy}, so the glyphs need less pages.
+ *
+ * @see <a href="https://github.com/juj/RectangleBinPack">RectangleBinPack</a>
+ * @author yanmaoyuan
+ */
+public class MaxRectsStrategy implements PackStrategy {
+
+    public enum Heuristic {
+        /** Place the image where the shorter leftover side of the free rectangle is the smallest. */
+        BEST_SHORT_SIDE_FIT,
+        /** Place the image at the lowest y, then the lowest x. */
+        BOTTOM_LEFT
+    }
+
+    private final Heuristic heuristic;
+    private Comparator<Rectangle> comparator;
+
+    public MaxRectsStrategy() {
+        this(Heuristic.BEST_SHORT_SIDE_FIT);
+    }
+
+    public MaxRectsStrategy(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    @Override
+    public void sort(List<Rectangle> images) {
+        if (comparator == null) {
+            comparator = Comparator.comparingInt(o -> Math.max(o.getWidth(), o.getHeight()));
+        }
+        images.sort(comparator.reversed());
+    }
+
+    @Override
+    public Page pack(Packer packer, String name, Rectangle image) {
+        int padding = packer.getPadding();
+        int width = image.getWidth() + padding;
+        int height = image.getHeight() + padding;
+
+        for (int i = 0, n = packer.getPages().size(); i < n; i++) {
+            MaxRectsPage page = (MaxRectsPage) packer.getPages().get(i);
+            if (place(page, image, width, height)) {
+                return page;
+            }
+        }
+
+        if (!packer.canAddPage()) {
+            // page limit reached
+            return null;
+        }
+
+        // Fit in new page.
+        MaxRectsPage page = new MaxRectsPage(packer);
+        packer.addPage(page);
+        if (!place(page, image, width, height)) {
+            // the image is smaller than the page, but not with the padding
+            throw new IllegalArgumentException("Page size too small for image: " + image);
+        }
+        return page;
+    }
+
+    private boolean place(MaxRectsPage page, Rectangle image, int width, int height) {
+        FreeRects.Free best = page.free.find(width, height, heuristic);
+        if (best == null) {
+            return false;
+        }
+        image.setLocation(best.x, best.y);
+        page.free.place(best.x, best.y, width, height);
+        return true;
+    }
+}
@@ -2,34 +2,240 @@ package io.github.jmecn.font.packer.strategy;
 
 import io.github.jmecn.font.packer.Packer;
 import io.github.jmecn.font.packer.Page;
+import io.github.jmecn.font.packer.Rectangle;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
-
+/**
+ * A page of {@link SkylineStrategy}. The skyline is a list of horizontal segments sorted by x, which covers the
+ * width of the page. The space below the skyline which can't be reached anymore is kept in a waste map.
+ *
+ * @author yanmaoyuan
+ */
 public class SkylinePage extends Page {
-    protected List<Row> lines;
+
+    private final int padding;
+    private final int right;
+    private final int bottom;
+
+    // skyline segments
+    private int[] xs;
+    private int[] ys;
+    private int[] widths;
+    private int count;
+    // the lowest segment, for a quick reject
+    private int minY;
+
+    private final FreeRects waste;
+
+    // smallest area placed in this page
+    private int minWidth = Integer.MAX_VALUE;
+    private int minHeight = Integer.MAX_VALUE;
+    private boolean full;
+
     public SkylinePage(Packer packer) {
         super(packer);
-        this.lines = new ArrayList<>();
+        this.padding = packer.getPadding();
+        this.right = packer.getPageWidth() - padding;
+        this.bottom = packer.getPageHeight() - padding;
+        this.xs = new int[16];
+        this.ys = new int[16];
+        this.widths = new int[16];
+        this.waste = new FreeRects();
+        reset();
+    }
+
+    private void reset() {
+        xs[0] = padding;
+        ys[0] = padding;
+        widths[0] = right - padding;
+        count = 1;
+        minY = padding;
+        waste.clear();
+        minWidth = Integer.MAX_VALUE;
+        minHeight = Integer.MAX_VALUE;
+        full = false;
+    }
+
+    @Override
+    protected void clear() {
+        super.clear();
+        reset();
+    }
+
+    /**
+     * @return number of the skyline segments.
+     */
+    public int segments() {
+        return count;
     }
 
-    public int rows() {
-        return lines.size();
+    /**
+     * A page is full when an area no larger than any area placed before doesn't fit, it is skipped by the
+     * following inserts.
+     * @return true if the page is full
+     */
+    public boolean isFull() {
+        return full;
     }
 
-    public Row get(int i) {
-        return lines.get(i);
+    /**
+     * Place an area at the lowest position, then the leftmost.
+     * @param image the rectangle to locate
+     * @param width width of the area, including padding
+     * @param height height of the area, including padding
+     * @return true if the area fits in this page
+     */
+    boolean insert(Rectangle image, int width, int height) {
+        if (full) {
+            return false;
+        }
+
+        // try the wasted space first
+        if (!waste.isEmpty()) {
+            FreeRects.Free f = waste.find(width, height, MaxRectsStrategy.Heuristic.BEST_SHORT_SIDE_FIT);
+            if (f != null) {
+                image.setLocation(f.x, f.y);
+                waste.place(f.x, f.y, width, height);
+                placed(width, height);
+                return true;
+            }
+        }
+
+        if (minY + height > bottom) {
+            return failed(width, height);
+        }
+
+        int bestIndex = -1;
+        int bestY = bottom - height + 1;
+        for (int i = 0; i < count; i++) {
+            if (xs[i] + width > right) {
+                break;
+            }
+            int y = fit(i, width, bestY);
+            if (y >= 0) {
+                bestIndex = i;
+                bestY = y;
+            }
+        }
+        if (bestIndex < 0) {
+            return failed(width, height);
+        }
+
+        int x = xs[bestIndex];
+        image.setLocation(x, bestY);
+        addWaste(bestIndex, x, bestY, width);
+        addSegment(bestIndex, x, bestY + height, width);
+        placed(width, height);
+        return true;
     }
 
-    public Row getLast() {
-        if (lines.isEmpty()) {
-            return null;
+    /**
+     * @param index the first segment
+     * @param width width of the area
+     * @param limit the y must be less than this value
+     * @return the y of an area on the segments starting with index, or -1 if it's not less than the limit.
+     */
+    private int fit(int index, int width, int limit) {
+        int y = 0;
+        int remaining = width;
+        for (int i = index; remaining > 0; i++) {
+            y = Math.max(y, ys[i]);
+            if (y >= limit) {
+                return -1;
+            }
+            remaining -= widths[i];
         }
-        return lines.get(lines.size() - 1);
+        return y;
     }
 
-    public void add(Row row) {
-        lines.add(row);
+    private void addWaste(int index, int x, int y, int width) {
+        int end = x + width;
+        for (int i = index; i < count && xs[i] < end; i++) {
+            int segmentWidth = Math.min(xs[i] + widths[i], end) - xs[i];
+            int wasteHeight = y - ys[i];
+            // drop the slivers smaller than anything placed in this page, they would only slow down the search
+            if (wasteHeight > 0 && segmentWidth >= minWidth && wasteHeight >= minHeight) {
+                waste.add(xs[i], ys[i], segmentWidth, wasteHeight);
+            }
+        }
+    }
+
+    private void addSegment(int index, int x, int y, int width) {
+        int end = x + width;
+        // segments fully covered by the new one
+        int last = index;
+        while (last < count && xs[last] + widths[last] <= end) {
+            last++;
+        }
+        // the segment partially covered
+        if (last < count && xs[last] < end) {
+            widths[last] -= end - xs[last];
+            xs[last] = end;
+        }
+
+        int removed = last - index;
+        if (removed == 0) {
+            ensureCapacity(count + 1);
+            System.arraycopy(xs, index, xs, index + 1, count - index);
+            System.arraycopy(ys, index, ys, index + 1, count - index);
+            System.arraycopy(widths, index, widths, index + 1, count - index);
+            count++;
+        } else if (removed > 1) {
+            System.arraycopy(xs, last, xs, index + 1, count - last);
+            System.arraycopy(ys, last, ys, index + 1, count - last);
+            System.arraycopy(widths, last, widths, index + 1, count - last);
+            count -= removed - 1;
+        }
+        xs[index] = x;
+        ys[index] = y;
+        widths[index] = width;
+
+        // merge with the neighbours at the same height
+        if (index + 1 < count && ys[index + 1] == y) {
+            widths[index] += widths[index + 1];
+            remove(index + 1);
+        }
+        if (index > 0 && ys[index - 1] == y) {
+            widths[index - 1] += widths[index];
+            remove(index);
+        }
+
+        minY = ys[0];
+        for (int i = 1; i < count; i++) {
+            minY = Math.min(minY, ys[i]);
+        }
+    }
+
+    private void remove(int index) {
+        System.arraycopy(xs, index + 1, xs, index, count - index - 1);
+        System.arraycopy(ys, index + 1, ys, index, count - index - 1);
+        System.arraycopy(widths, index + 1, widths, index, count - index - 1);
+        count--;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > xs.length) {
+            int length = xs.length << 1;
+            int[] newXs = new int[length];
+            int[] newYs = new int[length];
+            int[] newWidths = new int[length];
+            System.arraycopy(xs, 0, newXs, 0, count);
+            System.arraycopy(ys, 0, newYs, 0, count);
+            System.arraycopy(widths, 0, newWidths, 0, count);
+            xs = newXs;
+            ys = newYs;
+            widths = newWidths;
+        }
+    }
+
+    private void placed(int width, int height) {
+        minWidth = Math.min(minWidth, width);
+        minHeight = Math.min(minHeight, height);
+    }
+
+    private boolean failed(int width, int height) {
+        if (width <= minWidth && height <= minHeight) {
+            full = true;
+        }
+        return false;
     }
 }
@@ -8,6 +8,13 @@ import io.github.jmecn.font.packer.Rectangle;
 import java.util.Comparator;
 import java.util.List;
 
+/**
+ * Places each image at the lowest, then leftmost, position on the skyline of a page. The space left below the
+ * skyline is reused by the smaller images later. Full pages are skipped.
+ *
+ * @see SkylinePage
+ * @author yanmaoyuan
+ */
 public class SkylineStrategy implements PackStrategy {
     private Comparator<Rectangle> comparator;
 
@@ -22,51 +29,28 @@ public class SkylineStrategy implements PackStrategy {
     @Override
     public Page pack(Packer packer, String name, Rectangle image) {
         int padding = packer.getPadding();
-        int pageWidth = packer.getPageWidth() - padding * 2;
-        int pageHeight = packer.getPageHeight() - padding * 2;
-
-        int rectWidth = image.getWidth() + padding;
-        int rectHeight = image.getHeight() + padding;
+        int width = image.getWidth() + padding;
+        int height = image.getHeight() + padding;
 
         for (int i = 0, n = packer.getPages().size(); i < n; i++) {
             SkylinePage page = (SkylinePage) packer.getPages().get(i);
-            Row bestRow = null;
-            int len = page.rows();
-            // Fit in any row before the last.
-            for (int ii = 0, nn = len - 1; ii < nn; ii++) {
-                Row row = page.get(ii);
-                if (row.x + rectWidth >= pageWidth || row.y + rectHeight >= pageHeight || rectHeight > row.height) {
-                    continue;
-                }
-                if (bestRow == null || row.height < bestRow.height) {
-                    bestRow = row;
-                }
-            }
-            if (bestRow == null) {
-                // Fit in last row, increasing height.
-                Row row = page.getLast();
-                if (row.y + rectHeight >= pageHeight) continue;
-                if (row.x + rectWidth < pageWidth) {
-                    row.height = Math.max(row.height, rectHeight);
-                    bestRow = row;
-                } else if (row.y + row.height + rectHeight < pageHeight) {
-                    // Fit in new row.
-                    bestRow = new Row(padding, row.y + row.height, rectHeight);
-                    page.add(bestRow);
-                }
-            }
-            if (bestRow != null) {
-                bestRow.add(image, padding);
+            if (page.insert(image, width, height)) {
                 return page;
             }
         }
+
+        if (!packer.canAddPage()) {
+            // page limit reached
+            return null;
+        }
+
         // Fit in new page.
         SkylinePage page = new SkylinePage(packer);
         packer.addPage(page);
-
-        Row row = new Row(padding, padding, rectHeight);
-        page.add(row);
-        row.add(image, padding);
+        if (!page.insert(image, width, height)) {
+            // the image is smaller than the page, but not with the padding
+            throw new IllegalArgumentException("Page size too small for image: " + image);
+        }
         return page;
     }
 }
@@ -4,6 +4,7 @@ import com.jme3.asset.AssetKey;
 import com.jme3.font.BitmapFont;
 import com.jme3.material.MaterialDef;
 import com.jme3.math.ColorRGBA;
+import com.jme3.texture.Image;
 import com.jme3.texture.Texture;
 import io.github.jmecn.font.generator.FtFontParameter;
 import io.github.jmecn.font.generator.enums.Hinting;
@@ -257,6 +258,14 @@ public class FtFontKey extends AssetKey<BitmapFont> {
         delegate.setKerning(kerning);
     }
 
+    public boolean isLazyKerning() {
+        return delegate.isLazyKerning();
+    }
+
+    public void setLazyKerning(boolean lazyKerning) {
+        delegate.setLazyKerning(lazyKerning);
+    }
+
     public Packer getPacker() {
         return delegate.getPacker();
     }
@@ -265,6 +274,14 @@ public class FtFontKey extends AssetKey<BitmapFont> {
         delegate.setPacker(packer);
     }
 
+    public Image.Format getFormat() {
+        return delegate.getFormat();
+    }
+
+    public void setFormat(Image.Format format) {
+        delegate.setFormat(format);
+    }
+
     public boolean isGenMipMaps() {
         return delegate.isGenMipMaps();
     }
@@ -337,6 +354,38 @@ public class FtFontKey extends AssetKey<BitmapFont> {
         delegate.setIncremental(incremental);
     }
 
+    public int getMaxPages() {
+        return delegate.getMaxPages();
+    }
+
+    public void setMaxPages(int maxPages) {
+        delegate.setMaxPages(maxPages);
+    }
+
+    public long getMaxBytes() {
+        return delegate.getMaxBytes();
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        delegate.setMaxBytes(maxBytes);
+    }
+
+    public boolean isAsync() {
+        return delegate.isAsync();
+    }
+
+    public void setAsync(boolean async) {
+        delegate.setAsync(async);
+    }
+
+    public int getParallelism() {
+        return delegate.getParallelism();
+    }
+
+    public void setParallelism(int parallelism) {
+        delegate.setParallelism(parallelism);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
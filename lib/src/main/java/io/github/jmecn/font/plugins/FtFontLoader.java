@@ -4,9 +4,17 @@ import com.jme3.asset.AssetInfo;
 import com.jme3.asset.AssetKey;
 import com.jme3.asset.AssetLoader;
 import com.jme3.asset.AssetManager;
+import com.jme3.font.BitmapFont;
 import com.jme3.material.MaterialDef;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.FtFontCache;
 import io.github.jmecn.font.generator.FtFontGenerator;
 import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.generator.FtFontRegistry;
+import io.github.jmecn.font.utils.FileUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
  * desc:
@@ -15,14 +23,68 @@ import io.github.jmecn.font.generator.FtFontParameter;
  */
 public class FtFontLoader implements AssetLoader {
 
+    // the loaders are created by the asset manager, so the cache is shared by all of them
+    private static FtFontCache cache;
+
+    /**
+     * Set the cache of the generated fonts, e.g. a directory in the user home. The fonts are generated each time they
+     * are loaded if no cache is set.
+     * @param cache the cache, or null
+     */
+    public static void setCache(FtFontCache cache) {
+        FtFontLoader.cache = cache;
+    }
+
+    public static FtFontCache getCache() {
+        return cache;
+    }
+
     @Override
-    public Object load(AssetInfo assetInfo) {
+    public Object load(AssetInfo assetInfo) throws IOException {
         AssetKey<?> key = assetInfo.getKey();
         AssetManager assetManager = assetInfo.getManager();
 
-        FtFontGenerator generator = new FtFontGenerator(assetInfo.openStream());
         FtFontParameter parameter = newParameter(assetManager, key);
-        return generator.generateFont(parameter);
+        FtFontCache fontCache = cache;
+        String cacheKey = null;
+        if (fontCache != null && FtFontCache.isCacheable(parameter)) {
+            // a cached font is loaded without opening the face
+            byte[] fontData;
+            try (InputStream in = assetInfo.openStream()) {
+                fontData = FileUtils.readAllBytes(in);
+            }
+            cacheKey = FtFontCache.getKey(fontData, 0, parameter);
+            BitmapFont font = fontCache.loadFont(cacheKey, parameter);
+            if (font != null) {
+                return font;
+            }
+        }
+
+        // the fonts of all sizes share the font file and its face
+        FtFontRegistry.Handle handle = FtFontRegistry.getInstance().acquire(key.getName(), 0, assetInfo::openStream);
+        try {
+            BitmapFont font;
+            FtFontGenerator generator = handle.getGenerator();
+            FtBitmapCharacterSet data;
+            synchronized (generator) {
+                font = generator.generateFont(parameter);
+                data = (FtBitmapCharacterSet) font.getCharSet();
+                if (cacheKey != null) {
+                    // the lazy kerning of the entry is read from the face
+                    fontCache.save(cacheKey, parameter, data);
+                }
+            }
+            if (parameter.isIncremental() || data.getKerningCache() != null) {
+                // the generator is used until the font is released
+                handle.attach(data);
+            } else {
+                handle.close();
+            }
+            return font;
+        } catch (RuntimeException e) {
+            handle.close();
+            throw e;
+        }
     }
 
     private FtFontParameter newParameter(AssetManager assetManager, AssetKey<?> key) {
@@ -0,0 +1,147 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.math.ColorRGBA;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lookup tables to convert FreeType bitmaps to RGBA8 pixels with a color and a gamma, so
+ * {@link ImageUtils#ftBitmapToImage} doesn't call {@link Math#pow} for each pixel.
+ *
+ * <p>The tables are immutable and cached per (color, gamma), they can be shared by threads.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class ColorLut {
+
+    // a few colors are used by an application, just drop all tables if there are too many.
+    private static final int MAX_CACHE_SIZE = 64;
+    private static final Map<Key, ColorLut> cache = new ConcurrentHashMap<>();
+
+    private final int mono;
+    private final int[] gray = new int[256];
+    private final int[] bgraRed = new int[256];
+    private final int[] bgraGreen = new int[256];
+    private final int[] bgraBlue = new int[256];
+    private final int[] bgraAlpha = new int[256];
+
+    private ColorLut(ColorRGBA color, float gamma) {
+        mono = color.asIntRGBA();
+
+        // FT_PIXEL_MODE_GRAY, use the specified color for RGB, blend the FreeType bitmap with alpha.
+        int red = 0xFF;
+        int green = 0xFF;
+        int blue = 0xFF;
+        if (color.b >= 0f && color.b < 1f) {
+            blue = (int) (blue * color.b);
+        }
+        if (color.g >= 0f && color.g < 1f) {
+            green = (int) (green * color.g);
+        }
+        if (color.r >= 0f && color.r < 1f) {
+            red = (int) (red * color.r);
+        }
+        for (int i = 0; i < 256; i++) {
+            int alpha;
+            if (i != 0 && i != 0xFF && gamma != 1f) {
+                // apply gamma correction
+                alpha = (int) (0xFF * Math.pow(i / 255f, gamma));
+            } else {
+                alpha = i;
+            }
+            if (color.a >= 0f && color.a < 1f) {
+                alpha = (int) (alpha * color.a);
+            }
+            gray[i] = (red << 24) | (green << 16) | (blue << 8) | alpha;
+        }
+
+        // FT_PIXEL_MODE_BGRA, apply color and gamma correction to each channel.
+        for (int i = 0; i < 256; i++) {
+            bgraBlue[i] = color.b >= 0f && color.b < 1f ? (int) (i * color.b) : i;
+            bgraGreen[i] = color.g >= 0f && color.g < 1f ? (int) (i * color.g) : i;
+            bgraRed[i] = color.r >= 0f && color.r < 1f ? (int) (0xFF * i * color.r) : i;
+            bgraAlpha[i] = i != 255 ? (int) (0xFF * (float) Math.pow(i / 255f, gamma) * color.a) : i; // Inverse gamma.
+        }
+    }
+
+    /**
+     * Get the tables of the color and gamma.
+     * @param color the color, it is copied.
+     * @param gamma the gamma
+     * @return the cached tables
+     */
+    public static ColorLut get(ColorRGBA color, float gamma) {
+        Key key = new Key(color, gamma);
+        ColorLut lut = cache.get(key);
+        if (lut == null) {
+            if (cache.size() >= MAX_CACHE_SIZE) {
+                cache.clear();
+            }
+            lut = new ColorLut(color, gamma);
+            cache.put(key, lut);
+        }
+        return lut;
+    }
+
+    /**
+     * @return RGBA8 pixel of a set bit in FT_PIXEL_MODE_MONO
+     */
+    public int mono() {
+        return mono;
+    }
+
+    /**
+     * @param coverage the FT_PIXEL_MODE_GRAY value
+     * @return RGBA8 pixel
+     */
+    public int gray(int coverage) {
+        return gray[coverage];
+    }
+
+    /**
+     * Convert a FT_PIXEL_MODE_BGRA pixel.
+     * @param blue blue
+     * @param green green
+     * @param red red
+     * @param alpha alpha
+     * @return RGBA8 pixel
+     */
+    public int bgra(int blue, int green, int red, int alpha) {
+        return (bgraRed[red] << 24) | (bgraGreen[green] << 16) | (bgraBlue[blue] << 8) | bgraAlpha[alpha];
+    }
+
+    private static final class Key {
+        private final int r;
+        private final int g;
+        private final int b;
+        private final int a;
+        private final int gamma;
+
+        Key(ColorRGBA color, float gamma) {
+            this.r = Float.floatToIntBits(color.r);
+            this.g = Float.floatToIntBits(color.g);
+            this.b = Float.floatToIntBits(color.b);
+            this.a = Float.floatToIntBits(color.a);
+            this.gamma = Float.floatToIntBits(gamma);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return r == key.r && g == key.g && b == key.b && a == key.a && gamma == key.gamma;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = r;
+            result = 31 * result + g;
+            result = 31 * result + b;
+            result = 31 * result + a;
+            result = 31 * result + gamma;
+            return result;
+        }
+    }
+}
@@ -7,128 +7,226 @@ import com.jme3.texture.image.ImageRaster;
 import com.jme3.texture.image.MipMapImageRaster;
 import com.jme3.util.BufferUtils;
 import io.github.jmecn.font.freetype.FtBitmap;
+import io.github.jmecn.font.freetype.FtCacheManager;
 
-import java.lang.ref.WeakReference;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import static org.lwjgl.util.freetype.FreeType.*;
 
 /**
  * A singleton class for image utilities.
- * It holds a weak reference cache of ImageRaster for each Image.
  */
 public final class ImageUtils {
 
-    static final Map<Image, WeakReference<ImageRaster>> weakRefCache;
+    // the float value of each byte, same as the conversion of ImageRaster
+    private static final float[] UNIT = new float[256];
 
     static {
-        weakRefCache = new ConcurrentHashMap<>();
+        for (int i = 0; i < 256; i++) {
+            UNIT[i] = i / 255f;
+        }
     }
 
     public static Image ftBitmapToImage(FtBitmap bitmap, ColorRGBA color, float gamma) {
+        Image image = newImage(Image.Format.RGBA8, bitmap.getWidth(), bitmap.getRows());
+        ftBitmapToImage(bitmap, color, gamma, image);
+        return image;
+    }
+
+    /**
+     * Convert the FreeType bitmap to RGBA8 pixels and write them to an existing image, so the caller can reuse the
+     * image buffer.
+     *
+     * @param bitmap the FreeType bitmap
+     * @param color the color of the glyph
+     * @param gamma the gamma
+     * @param destination RGBA8 image, at least as large as the bitmap
+     */
+    public static void ftBitmapToImage(FtBitmap bitmap, ColorRGBA color, float gamma, Image destination) {
+        ftBitmapToImage(bitmap, ColorLut.get(color, gamma), destination);
+    }
+
+    /**
+     * Convert the FreeType bitmap to RGBA8 pixels with the lookup tables of a color and a gamma.
+     *
+     * @param bitmap the FreeType bitmap
+     * @param lut the lookup tables
+     * @param destination RGBA8 image, at least as large as the bitmap
+     */
+    public static void ftBitmapToImage(FtBitmap bitmap, ColorLut lut, Image destination) {
         int width = bitmap.getWidth();
         int rows = bitmap.getRows();
         ByteBuffer src = bitmap.getBuffer();
-        Image image;
         int pixelMode = bitmap.getPixelMode();
         int rowBytes = Math.abs(bitmap.getPitch()); // We currently ignore negative pitch.
+        int dstWidth = destination.getWidth();
+        ByteBuffer data = destination.getData(0);
+
+        if (pixelMode == FT_PIXEL_MODE_MONO) {
+            // Use the specified color for each set bit.
+            int rgba = lut.mono();
+            for (int y = 0; y < rows; y++) {
+                int srcRow = y * rowBytes;
+                int dstRow = y * dstWidth;
+                for (int x = 0; x < width; x++) {
+                    int b = src.get(srcRow + (x >> 3)) & 0xFF;
+                    putRGBA(data, dstRow + x, (b & (1 << (7 - (x & 7)))) != 0 ? rgba : 0);
+                }
+            }
+        } else if (pixelMode == FT_PIXEL_MODE_GRAY) {
+            // Use the specified color for RGB, blend the FreeType bitmap with alpha.
+            for (int y = 0; y < rows; y++) {
+                int srcRow = y * rowBytes;
+                int dstRow = y * dstWidth;
+                for (int x = 0; x < width; x++) {
+                    putRGBA(data, dstRow + x, lut.gray(src.get(srcRow + x) & 0xFF));
+                }
+            }
+        } else if (pixelMode == FT_PIXEL_MODE_BGRA) {
+            // ignore the input rgba, use the bgra
+            // convert bgra to rgba
+            for (int y = 0; y < rows; y++) {
+                int srcRow = y * rowBytes;
+                int dstRow = y * dstWidth;
+                for (int x = 0; x < width; x++) {
+                    int i = srcRow + x * 4;
+                    putRGBA(data, dstRow + x, lut.bgra(src.get(i) & 0xFF, src.get(i + 1) & 0xFF, src.get(i + 2) & 0xFF, src.get(i + 3) & 0xFF));
+                }
+            }
+        }
+    }
+
+    private static void putRGBA(ByteBuffer data, int pixel, int rgba) {
+        int i = pixel * 4;
+        data.put(i, (byte) (rgba >>> 24));
+        data.put(i + 1, (byte) (rgba >>> 16));
+        data.put(i + 2, (byte) (rgba >>> 8));
+        data.put(i + 3, (byte) rgba);
+    }
+
+    /**
+     * Build the RGBA8 pixel for every coverage value of a {@code FT_PIXEL_MODE_GRAY} bitmap. The pixels are the same
+     * as converting the bitmap with {@link #ftBitmapToImage}, drawing it {@code renderCount - 1} times on itself and
+     * then drawing it {@code drawCount} times over an empty image with {@link #drawImage}.
+     *
+     * @param color the color of the glyph
+     * @param gamma the gamma
+     * @param renderCount the render count of the glyph
+     * @param drawCount how many times the glyph is drawn over an empty image, 2 if it is padded before packing.
+     * @return 256 RGBA8 pixels, indexed by coverage
+     */
+    public static int[] newCoverageLut(ColorRGBA color, float gamma, int renderCount, int drawCount) {
+        ColorLut colorLut = ColorLut.get(color, gamma);
+        int[] lut = new int[256];
+        for (int gray = 0; gray < 256; gray++) {
+            // same as ftBitmapToImage
+            int rgba = colorLut.gray(gray);
+            int red = rgba >>> 24;
+            int green = (rgba >> 16) & 0xFF;
+            int blue = (rgba >> 8) & 0xFF;
+            int alpha = rgba & 0xFF;
+
+            // draw the glyph on itself
+            for (int i = 1; i < renderCount; i++) {
+                float a = alpha / 255f;
+                red = blend(red, red, a);
+                green = blend(green, green, a);
+                blue = blend(blue, blue, a);
+                alpha = toByte(a + a);
+            }
 
-//        if (pixelMode == FT_PIXEL_MODE_GRAY && rowBytes == width && gamma == 1f && color.equals(ColorRGBA.White)) {
-//            ByteBuffer data = BufferUtils.clone(src);
-//            return new Image(Image.Format.Luminance8, width, rows, data, ColorSpace.Linear);
-//        } else {
-            image = newImage(Image.Format.RGBA8, width, rows);
-            ByteBuffer data = image.getData(0);
-
-            byte[] srcRow = new byte[rowBytes];
-            int[] dstRow = new int[width];
-            IntBuffer dst = data.asIntBuffer();
-            if (pixelMode == FT_PIXEL_MODE_MONO) {
-                // Use the specified color for each set bit.
-                int rgba = color.asIntRGBA();
-                for (int y = 0; y < rows; y++) {
-                    src.get(srcRow);
-                    for (int i = 0, x = 0; x < width; i++, x += 8) {
-                        int b = srcRow[i] & 0xFF;
-                        for (int ii = 0, n = Math.min(8, width - x); ii < n; ii++) {
-                            if ((b & (1 << (7 - ii))) != 0)
-                                dstRow[x + ii] = rgba;
-                            else
-                                dstRow[x + ii] = 0;
-                        }
-                    }
-                    dst.put(dstRow);
+            // draw the glyph over an empty image
+            for (int i = 0; i < drawCount; i++) {
+                float a = alpha / 255f;
+                red = blend(0, red, a);
+                green = blend(0, green, a);
+                blue = blend(0, blue, a);
+                alpha = toByte(a);
+            }
+            lut[gray] = (red << 24) | (green << 16) | (blue << 8) | alpha;
+        }
+        return lut;
+    }
+
+    /**
+     * Draw a {@code FT_PIXEL_MODE_GRAY} bitmap straight into a RGBA8 or Alpha8 image without creating an intermediate
+     * image. The whole rectangle is overwritten, pixels outside the bitmap are cleared. Alpha8 only keeps the alpha of
+     * the pixels.
+     *
+     * @param destination RGBA8 or Alpha8 image
+     * @param bitmap the FreeType bitmap
+     * @param lut the pixels created by {@link #newCoverageLut}
+     * @param dstX rectangle x
+     * @param dstY rectangle y
+     * @param width rectangle width
+     * @param height rectangle height
+     * @param padLeft the x of the bitmap in the rectangle
+     * @param padTop the y of the bitmap in the rectangle
+     * @param flipY true to flip the rectangle vertically
+     */
+    public static void drawCoverage(Image destination, FtBitmap bitmap, int[] lut, int dstX, int dstY, int width, int height,
+                                    int padLeft, int padTop, boolean flipY) {
+        // We currently ignore negative pitch.
+        drawCoverage(destination, bitmap.getBuffer(), bitmap.getWidth(), bitmap.getRows(), Math.abs(bitmap.getPitch()),
+                lut, dstX, dstY, width, height, padLeft, padTop, flipY);
+    }
+
+    /**
+     * Draw a gray bitmap of the sbit cache, see {@link #drawCoverage(Image, FtBitmap, int[], int, int, int, int, int, int, boolean)}.
+     */
+    public static void drawCoverage(Image destination, FtCacheManager.SBit sbit, int[] lut, int dstX, int dstY, int width, int height,
+                                    int padLeft, int padTop, boolean flipY) {
+        drawCoverage(destination, ByteBuffer.wrap(sbit.getBuffer()), sbit.getWidth(), sbit.getHeight(), Math.abs(sbit.getPitch()),
+                lut, dstX, dstY, width, height, padLeft, padTop, flipY);
+    }
+
+    private static void drawCoverage(Image destination, ByteBuffer src, int bitmapWidth, int rows, int rowBytes, int[] lut,
+                                     int dstX, int dstY, int width, int height, int padLeft, int padTop, boolean flipY) {
+        ByteBuffer data = destination.getData(0);
+        int dstWidth = destination.getWidth();
+        int dstHeight = destination.getHeight();
+
+        int empty = lut[0];
+        boolean alphaOnly = destination.getFormat() == Image.Format.Alpha8;
+
+        for (int y = 0; y < height; y++) {
+            int dy = flipY ? dstHeight - 1 - (dstY + y) : dstY + y;
+            if (dy < 0 || dy >= dstHeight) {
+                // out of bounds
+                continue;
+            }
+            int sy = y - padTop;
+            boolean inRow = sy >= 0 && sy < rows;
+            int dstRow = dy * dstWidth;
+            for (int x = 0; x < width; x++) {
+                int dx = dstX + x;
+                if (dx < 0 || dx >= dstWidth) {
+                    // out of bounds
+                    continue;
                 }
-            } else if (pixelMode == FT_PIXEL_MODE_GRAY) {
-                // Use the specified color for RGB, blend the FreeType bitmap with alpha.
-
-                int red;
-                int green;
-                int blue;
-                int alpha;
-                for (int y = 0; y < rows; y++) {
-                    src.get(srcRow);
-                    for (int x = 0; x < width; x++) {
-                        red = blue = green = 0xFF;
-                        int gray = srcRow[x] & 0xFF;
-                        if (gray != 0 && gray != 0xFF && gamma != 1f) {
-                            // apply gamma correction
-                            alpha = (int) (0xFF * Math.pow(gray / 255f, gamma));
-                        } else {
-                            alpha = gray;
-                        }
-
-                        if (color.b >= 0f && color.b < 1f) {
-                            blue = (int) (blue * color.b);
-                        }
-                        if (color.g >= 0f && color.g < 1f) {
-                            green = (int) (green * color.g);
-                        }
-                        if (color.r >= 0f && color.r < 1f) {
-                            red = (int) (red * color.r);
-                        }
-                        if (color.a >= 0f && color.a < 1f) {
-                            alpha = (int) (alpha * color.a);
-                        }
-                        dstRow[x] = (red << 24) | (green << 16) | (blue << 8) | alpha;
-                    }
-                    dst.put(dstRow);
+                int sx = x - padLeft;
+                int rgba = empty;
+                if (inRow && sx >= 0 && sx < bitmapWidth) {
+                    rgba = lut[src.get(sy * rowBytes + sx) & 0xFF];
                 }
-            } else if (pixelMode == FT_PIXEL_MODE_BGRA) {
-                // ignore the input rgba, use the bgra
-                // convert bgra to rgba
-                for (int y = 0; y < rows; y++) {
-                    src.get(srcRow);
-                    for (int i = 0; i < srcRow.length; i += 4) {
-                        int blue = srcRow[i] & 0xFF;
-                        int green = srcRow[i + 1] & 0xFF;
-                        int red = srcRow[i + 2] & 0xFF;
-                        int alpha = srcRow[i + 3] & 0xFF;
-
-                        // apply color and gamma correction
-                        if (color.b >= 0f && color.b < 1f) {
-                            blue = (int) (blue * color.b);
-                        }
-                        if (color.g >= 0f && color.g < 1f) {
-                            green = (int) (green * color.g);
-                        }
-                        if (color.r >= 0f && color.r < 1f) {
-                            red = (int) (0xFF * red * color.r);
-                        }
-                        if (alpha != 255) {
-                            alpha = (int) (0xFF * (float) Math.pow(alpha / 255f, gamma) * color.a); // Inverse gamma.
-                        }
-                        dstRow[i / 4] = (red << 24) | (green << 16) | (blue << 8) | alpha;
-                    }
-                    dst.put(dstRow);
+                if (alphaOnly) {
+                    data.put(dstRow + dx, (byte) rgba);
+                } else {
+                    putRGBA(data, dstRow + dx, rgba);
                 }
             }
-//        }
+        }
+        // the buffer is written directly, upload it again like ImageRaster#setPixel does
+        destination.setUpdateNeeded();
+    }
 
-        return image;
+    // the blend mode of drawImage, with the float conversion of ImageRaster
+    private static int blend(int dst, int src, float srcAlpha) {
+        return toByte(UNIT[dst] * (1f - srcAlpha) + UNIT[src] * srcAlpha);
+    }
+
+    private static int toByte(float value) {
+        return Math.min((int) (value * 255f + 0.5f), 255);
     }
 
     public static Image newImage(Image.Format format, int width, int height) {
@@ -273,7 +371,124 @@ public final class ImageUtils {
         drawImage(destination, source, srcX, srcY, srcWidth, srcHeight, dstX, dstY, false);
     }
 
+    /**
+     * Draw the source image over the destination image, with the blend mode "sumAlpha": the colors are blended by the
+     * alpha of the source, the alpha values are added.
+     *
+     * <p>RGBA8 to RGBA8, RGBA8 to Alpha8 and Alpha8 to Alpha8 work on the raw buffers, other formats use
+     * {@link ImageRaster}. Both give the same pixels.</p>
+     *
+     * @param destination the destination image
+     * @param source the source image
+     * @param srcX source x
+     * @param srcY source y
+     * @param srcWidth width of the source region
+     * @param srcHeight height of the source region
+     * @param dstX destination x
+     * @param dstY destination y
+     * @param flipY true to flip the region vertically in the destination
+     */
     public static void drawImage(Image destination, Image source, int srcX, int srcY, int srcWidth, int srcHeight, int dstX, int dstY, boolean flipY) {
+        Image.Format dstFormat = destination.getFormat();
+        Image.Format srcFormat = source.getFormat();
+        if (dstFormat == Image.Format.RGBA8 && srcFormat == Image.Format.RGBA8) {
+            blendRGBA8(destination, source, srcX, srcY, srcWidth, srcHeight, dstX, dstY, flipY);
+        } else if (dstFormat == Image.Format.Alpha8 && (srcFormat == Image.Format.RGBA8 || srcFormat == Image.Format.Alpha8)) {
+            blendAlpha8(destination, source, srcX, srcY, srcWidth, srcHeight, dstX, dstY, flipY);
+        } else {
+            drawImageRaster(destination, source, srcX, srcY, srcWidth, srcHeight, dstX, dstY, flipY);
+        }
+    }
+
+    private static void blendRGBA8(Image destination, Image source, int srcX, int srcY, int srcWidth, int srcHeight, int dstX, int dstY, boolean flipY) {
+        ByteBuffer dst = destination.getData(0);
+        ByteBuffer src = source.getData(0);
+        int dstWidth = destination.getWidth();
+        int dstHeight = destination.getHeight();
+        int srcStride = source.getWidth();
+
+        for (int y = 0; y < srcHeight; y++) {
+            int dy = flipY ? dstHeight - 1 - (dstY + y) : dstY + y;
+            if (dy < 0 || dy >= dstHeight) {
+                // out of bounds
+                continue;
+            }
+            int srcRow = (srcY + y) * srcStride + srcX;
+            int dstRow = dy * dstWidth + dstX;
+            for (int x = 0; x < srcWidth; x++) {
+                int dx = dstX + x;
+                if (dx < 0 || dx >= dstWidth) {
+                    // out of bounds
+                    continue;
+                }
+                int s = (srcRow + x) * 4;
+                int sa = src.get(s + 3) & 0xFF;
+                if (sa == 0) {
+                    // nothing changes
+                    continue;
+                }
+                int d = (dstRow + x) * 4;
+                if (sa == 255) {
+                    // the source covers the destination
+                    dst.put(d, src.get(s));
+                    dst.put(d + 1, src.get(s + 1));
+                    dst.put(d + 2, src.get(s + 2));
+                    dst.put(d + 3, (byte) 255);
+                    continue;
+                }
+                float srcAlpha = UNIT[sa];
+                float dstAlpha = UNIT[dst.get(d + 3) & 0xFF];
+                dst.put(d, (byte) blend(dst.get(d) & 0xFF, src.get(s) & 0xFF, srcAlpha));
+                dst.put(d + 1, (byte) blend(dst.get(d + 1) & 0xFF, src.get(s + 1) & 0xFF, srcAlpha));
+                dst.put(d + 2, (byte) blend(dst.get(d + 2) & 0xFF, src.get(s + 2) & 0xFF, srcAlpha));
+                dst.put(d + 3, (byte) toByte(srcAlpha + dstAlpha));
+            }
+        }
+        // the buffer is written directly, upload it again like ImageRaster#setPixel does
+        destination.setUpdateNeeded();
+    }
+
+    private static void blendAlpha8(Image destination, Image source, int srcX, int srcY, int srcWidth, int srcHeight, int dstX, int dstY, boolean flipY) {
+        ByteBuffer dst = destination.getData(0);
+        ByteBuffer src = source.getData(0);
+        int dstWidth = destination.getWidth();
+        int dstHeight = destination.getHeight();
+        int srcStride = source.getWidth();
+        // the alpha of RGBA8 is the 4th byte
+        int srcBytes = source.getFormat() == Image.Format.RGBA8 ? 4 : 1;
+        int alphaOffset = srcBytes - 1;
+
+        for (int y = 0; y < srcHeight; y++) {
+            int dy = flipY ? dstHeight - 1 - (dstY + y) : dstY + y;
+            if (dy < 0 || dy >= dstHeight) {
+                // out of bounds
+                continue;
+            }
+            int srcRow = (srcY + y) * srcStride + srcX;
+            int dstRow = dy * dstWidth + dstX;
+            for (int x = 0; x < srcWidth; x++) {
+                int dx = dstX + x;
+                if (dx < 0 || dx >= dstWidth) {
+                    // out of bounds
+                    continue;
+                }
+                int sa = src.get((srcRow + x) * srcBytes + alphaOffset) & 0xFF;
+                if (sa == 0) {
+                    // nothing changes
+                    continue;
+                }
+                int d = dstRow + x;
+                if (sa == 255) {
+                    dst.put(d, (byte) 255);
+                    continue;
+                }
+                dst.put(d, (byte) toByte(UNIT[sa] + UNIT[dst.get(d) & 0xFF]));
+            }
+        }
+        destination.setUpdateNeeded();
+    }
+
+    static void drawImageRaster(Image destination, Image source, int srcX, int srcY, int srcWidth, int srcHeight, int dstX, int dstY, boolean flipY) {
         ImageRaster writer;
         if (destination.hasMipmaps()) {
             writer = new MipMapImageRaster(destination, 0);
@@ -0,0 +1,189 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.texture.Image;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.MipMapGenerator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mip maps of the font pages, computed with a 2x2 integer box filter.
+ *
+ * <p>Unlike {@link MipMapGenerator}, the levels can be updated for a region of the base level only, so adding a glyph
+ * to an incremental page doesn't resample the whole page. Formats with 8 bits per channel are supported, the others
+ * fall back to {@link MipMapGenerator}.</p>
+ *
+ * @author yanmaoyuan
+ */
+public final class MipMapUtils {
+
+    private static final int LOW_BYTES = 0x00FF00FF;
+    // rounding of the average of 4 values in each 16-bit lane
+    private static final int ROUND = 0x00020002;
+
+    private MipMapUtils() {
+    }
+
+    /**
+     * @param format the image format
+     * @return true if the format has 8 bits per channel
+     */
+    public static boolean isSupported(Image.Format format) {
+        switch (format) {
+            case Alpha8:
+            case Luminance8:
+            case Luminance8Alpha8:
+            case RGB8:
+            case BGR8:
+            case RGBA8:
+            case BGRA8:
+            case ARGB8:
+            case ABGR8:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Generate all the mip map levels of the image, the old levels are dropped.
+     * @param image the image
+     */
+    public static void generateMipMaps(Image image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int bpp = image.getFormat().getBitsPerPixel() / 8;
+        ByteBuffer base = image.getData(0).duplicate();
+        base.clear().limit(width * height * bpp);
+
+        if (!isSupported(image.getFormat())) {
+            // MipMapGenerator reads the whole buffer as the base level
+            image.setMipMapSizes(null);
+            image.setData(0, base.slice());
+            MipMapGenerator.generateMipMaps(image);
+            return;
+        }
+
+        int[] sizes = mipMapSizes(width, height, bpp);
+        int total = 0;
+        for (int size : sizes) {
+            total += size;
+        }
+        ByteBuffer data = BufferUtils.createByteBuffer(total);
+        data.put(base);
+        data.clear();
+
+        image.setData(0, data);
+        image.setMipMapSizes(sizes);
+        updateMipMaps(image, 0, 0, width, height);
+    }
+
+    /**
+     * Update the mip map levels of a region of the base level. If the image has no mip maps yet, all the levels are
+     * generated.
+     * @param image the image
+     * @param x x of the region, in image data coordinates
+     * @param y y of the region, in image data coordinates
+     * @param width width of the region
+     * @param height height of the region
+     */
+    public static void updateMipMaps(Image image, int x, int y, int width, int height) {
+        if (!image.hasMipmaps() || !isSupported(image.getFormat())) {
+            generateMipMaps(image);
+            return;
+        }
+
+        int bpp = image.getFormat().getBitsPerPixel() / 8;
+        int[] sizes = image.getMipMapSizes();
+        ByteBuffer data = image.getData(0);
+
+        int x0 = Math.max(x, 0);
+        int y0 = Math.max(y, 0);
+        int x1 = Math.min(x + width, image.getWidth());
+        int y1 = Math.min(y + height, image.getHeight());
+        int srcWidth = image.getWidth();
+        int srcHeight = image.getHeight();
+        int srcOffset = 0;
+        for (int level = 1; level < sizes.length && x0 < x1 && y0 < y1; level++) {
+            int dstWidth = Math.max(srcWidth >> 1, 1);
+            int dstHeight = Math.max(srcHeight >> 1, 1);
+            int dstOffset = srcOffset + sizes[level - 1];
+
+            // the texels of this level sampling the region of the previous level
+            x0 = x0 >> 1;
+            y0 = y0 >> 1;
+            x1 = Math.min(((x1 - 1) >> 1) + 1, dstWidth);
+            y1 = Math.min(((y1 - 1) >> 1) + 1, dstHeight);
+            if (bpp == 4) {
+                downsample4(data, srcOffset, srcWidth, srcHeight, dstOffset, dstWidth, x0, y0, x1, y1);
+            } else {
+                downsample(data, bpp, srcOffset, srcWidth, srcHeight, dstOffset, dstWidth, x0, y0, x1, y1);
+            }
+
+            srcWidth = dstWidth;
+            srcHeight = dstHeight;
+            srcOffset = dstOffset;
+        }
+        image.setUpdateNeeded();
+    }
+
+    /**
+     * @param width width of the base level
+     * @param height height of the base level
+     * @param bpp bytes per pixel
+     * @return the bytes of each level, down to 1x1
+     */
+    static int[] mipMapSizes(int width, int height, int bpp) {
+        int levels = 1;
+        for (int size = Math.max(width, height); size > 1; size >>= 1) {
+            levels++;
+        }
+        int[] sizes = new int[levels];
+        for (int i = 0; i < levels; i++) {
+            sizes[i] = width * height * bpp;
+            width = Math.max(width >> 1, 1);
+            height = Math.max(height >> 1, 1);
+        }
+        return sizes;
+    }
+
+    // 4 channels of 8 bits, 2 channels are averaged at once in 16-bit lanes
+    private static void downsample4(ByteBuffer data, int srcOffset, int srcWidth, int srcHeight, int dstOffset, int dstWidth,
+                                    int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            int row0 = srcOffset + 2 * y * srcWidth * 4;
+            int row1 = srcOffset + Math.min(2 * y + 1, srcHeight - 1) * srcWidth * 4;
+            int dst = dstOffset + (y * dstWidth + x0) * 4;
+            for (int x = x0; x < x1; x++, dst += 4) {
+                int sx0 = 2 * x * 4;
+                int sx1 = Math.min(2 * x + 1, srcWidth - 1) * 4;
+                int a = data.getInt(row0 + sx0);
+                int b = data.getInt(row0 + sx1);
+                int c = data.getInt(row1 + sx0);
+                int d = data.getInt(row1 + sx1);
+                int low = (a & LOW_BYTES) + (b & LOW_BYTES) + (c & LOW_BYTES) + (d & LOW_BYTES) + ROUND;
+                int high = ((a >>> 8) & LOW_BYTES) + ((b >>> 8) & LOW_BYTES) + ((c >>> 8) & LOW_BYTES)
+                        + ((d >>> 8) & LOW_BYTES) + ROUND;
+                data.putInt(dst, ((low >>> 2) & LOW_BYTES) | (((high >>> 2) & LOW_BYTES) << 8));
+            }
+        }
+    }
+
+    private static void downsample(ByteBuffer data, int bpp, int srcOffset, int srcWidth, int srcHeight, int dstOffset, int dstWidth,
+                                   int x0, int y0, int x1, int y1) {
+        for (int y = y0; y < y1; y++) {
+            int row0 = srcOffset + 2 * y * srcWidth * bpp;
+            int row1 = srcOffset + Math.min(2 * y + 1, srcHeight - 1) * srcWidth * bpp;
+            int dst = dstOffset + (y * dstWidth + x0) * bpp;
+            for (int x = x0; x < x1; x++) {
+                int sx0 = 2 * x * bpp;
+                int sx1 = Math.min(2 * x + 1, srcWidth - 1) * bpp;
+                for (int i = 0; i < bpp; i++, dst++) {
+                    int sum = (data.get(row0 + sx0 + i) & 0xFF) + (data.get(row0 + sx1 + i) & 0xFF)
+                            + (data.get(row1 + sx0 + i) & 0xFF) + (data.get(row1 + sx1 + i) & 0xFF);
+                    data.put(dst, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+
+uniform vec4 m_Color;
+uniform sampler2D m_ColorMap;
+
+#if defined(DISCARD_ALPHA)
+uniform float m_AlphaDiscardThreshold;
+#endif
+
+varying vec2 vTexCoord;
+
+varying vec4 vVertColor;
+
+void main(void) {
+    vec4 color = vec4(1.0);
+
+    #ifdef HAS_COLOR_MAP
+        #ifdef SINGLE_CHANNEL
+        // only the coverage is stored, the color comes from the material or the vertex
+        color.a = texture2D(m_ColorMap, vTexCoord).a;
+        #else
+        color = texture2D(m_ColorMap, vTexCoord);
+        #endif
+    #endif
+
+    #ifdef HAS_COLOR
+        color *= m_Color;
+    #endif
+
+    #ifdef HAS_VERTEXCOLOR
+        color *= vVertColor;
+    #endif
+
+    #ifdef DISCARD_ALPHA
+        if(color.a < m_AlphaDiscardThreshold){
+           discard;
+        }
+    #endif
+
+    gl_FragColor = color;
+}
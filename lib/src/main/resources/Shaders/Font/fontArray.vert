@@ -0,0 +1,21 @@
+#import "Common/ShaderLib/GLSLCompat.glsllib"
+#import "Common/ShaderLib/Instancing.glsllib"
+
+attribute vec3 inPosition;
+attribute vec2 inTexCoord;
+// the layer of the page in the texture array
+attribute float inTexCoord2;
+attribute vec4 inVertColor;
+
+varying vec3 vTexCoord;
+varying vec4 vVertColor;
+
+void main() {
+    vTexCoord = vec3(inTexCoord, inTexCoord2);
+    vVertColor = inVertColor;
+
+    vec3 position = inPosition;
+    vec4 modelSpacePos = vec4(position, 1.0);
+
+    gl_Position = TransformWorldViewProjection(modelSpacePos);
+}
\ No newline at end of file
@@ -21,7 +21,7 @@ void main(void) {
     vec2 uv = vTexCoord.xy;
     vec4 color = vec4(1.0);
 
-    #ifdef SDF_USE_ALPHA
+    #if defined(SDF_USE_ALPHA) || defined(SINGLE_CHANNEL)
     float dist = texture2D(m_ColorMap, uv).a;
     #else
     float dist = texture2D(m_ColorMap, uv).r;
@@ -0,0 +1,216 @@
+package io.github.jmecn.font;
+
+import com.jme3.asset.AssetInfo;
+import com.jme3.font.BitmapFont;
+import com.jme3.material.MaterialDef;
+import com.jme3.shader.VarType;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.generator.FtFontRegistry;
+import io.github.jmecn.font.plugins.FtFontKey;
+import io.github.jmecn.font.plugins.FtFontLoader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The fonts loaded from the cache must be the same as the generated fonts.
+ *
+ * @author yanmaoyuan
+ */
+class TestFontCache {
+
+    static final File FONT = new File("../font/FreeSerif.ttf");
+
+    @TempDir
+    File directory;
+
+    private static FtFontParameter newParameter() {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(24);
+        parameter.setCharacters("\0AVTWaveTo");
+        return parameter;
+    }
+
+    // the parameters of Common/MatDefs/Misc/Unshaded.j3md, the pages of a font need a material
+    private static FtFontParameter newFontParameter() {
+        MaterialDef matDef = new MaterialDef(null, "Unshaded");
+        matDef.addMaterialParamTexture(VarType.Texture2D, "ColorMap", ColorSpace.sRGB, null);
+        matDef.addMaterialParam(VarType.Boolean, "VertexColor", null);
+        FtFontParameter parameter = newParameter();
+        parameter.setMatDef(matDef);
+        return parameter;
+    }
+
+    @Test void testSaveLoad() throws IOException {
+        byte[] fontData = Files.readAllBytes(FONT.toPath());
+        FtFontParameter parameter = newParameter();
+        String key = FtFontCache.getKey(fontData, 0, parameter);
+
+        FtFontCache cache = new FtFontCache(directory);
+        assertNull(cache.load(key, parameter));
+
+        try (FtFontGenerator generator = new FtFontGenerator(FONT)) {
+            FtBitmapCharacterSet expected = generator.generateData(parameter);
+            assertTrue(cache.save(key, parameter, expected));
+
+            FtBitmapCharacterSet actual = cache.load(key, newParameter());
+            assertNotNull(actual);
+            assertEquals(expected.name, actual.name);
+            assertEquals(expected.getLineHeight(), actual.getLineHeight());
+            assertEquals(expected.getBase(), actual.getBase());
+            assertEquals(expected.ascent, actual.ascent);
+            assertEquals(expected.capHeight, actual.capHeight);
+            assertEquals(expected.spaceXadvance, actual.spaceXadvance);
+            assertEquals(expected.getGlyphs().size(), actual.getGlyphs().size());
+            assertNotNull(actual.missingGlyph);
+            assertEquals(expected.missingGlyph.getWidth(), actual.missingGlyph.getWidth());
+            assertEquals(expected.getCharacter(' ').getXAdvance(), actual.getCharacter(' ').getXAdvance());
+
+            int pairs = 0;
+            for (Glyph glyph : expected.getGlyphs()) {
+                Glyph other = actual.getCharacter(glyph.getChar());
+                assertNotNull(other);
+                assertEquals(glyph.getX(), other.getX());
+                assertEquals(glyph.getY(), other.getY());
+                assertEquals(glyph.getWidth(), other.getWidth());
+                assertEquals(glyph.getHeight(), other.getHeight());
+                assertEquals(glyph.getXOffset(), other.getXOffset());
+                assertEquals(glyph.getYOffset(), other.getYOffset());
+                assertEquals(glyph.getXAdvance(), other.getXAdvance());
+                assertEquals(glyph.getPage(), other.getPage());
+                for (Glyph second : expected.getGlyphs()) {
+                    int kerning = glyph.getKerning(second.getChar());
+                    assertEquals(kerning, other.getKerning(second.getChar()));
+                    if (kerning != 0) {
+                        pairs++;
+                    }
+                }
+            }
+            assertTrue(pairs > 0);
+
+            assertEquals(expected.getImages().size(), actual.getImages().size());
+            for (int i = 0; i < expected.getImages().size(); i++) {
+                Image image = expected.getImage(i);
+                Image other = actual.getImage(i);
+                assertEquals(image.getFormat(), other.getFormat());
+                assertEquals(image.getWidth(), other.getWidth());
+                ByteBuffer pixels = image.getData(0).duplicate();
+                pixels.clear();
+                assertEquals(pixels, other.getData(0).duplicate());
+            }
+        }
+    }
+
+    @Test void testReject() throws IOException {
+        byte[] fontData = Files.readAllBytes(FONT.toPath());
+        FtFontParameter parameter = newParameter();
+        String key = FtFontCache.getKey(fontData, 0, parameter);
+
+        FtFontParameter other = newParameter();
+        other.setGamma(1.5f);
+        String otherKey = FtFontCache.getKey(fontData, 0, other);
+        assertNotEquals(key, otherKey);
+        assertNotEquals(key, FtFontCache.getKey(fontData, 1, parameter));
+        assertEquals(key, FtFontCache.getKey(fontData, 0, newParameter()));
+
+        // the mip maps are saved with the pages
+        FtFontParameter mipMaps = newParameter();
+        mipMaps.setGenMipMaps(true);
+        assertNotEquals(key, FtFontCache.getKey(fontData, 0, mipMaps));
+
+        FtFontCache cache = new FtFontCache(directory);
+        try (FtFontGenerator generator = new FtFontGenerator(FONT)) {
+            assertTrue(cache.save(key, parameter, generator.generateData(parameter)));
+        }
+
+        // the entry of another parameter set
+        Files.copy(cache.getFile(key).toPath(), cache.getFile(otherKey).toPath());
+        assertNull(cache.load(otherKey, other));
+
+        // a truncated entry
+        try (RandomAccessFile file = new RandomAccessFile(cache.getFile(key), "rw")) {
+            file.setLength(file.length() - 1);
+        }
+        assertNull(cache.load(key, parameter));
+    }
+
+    @Test void testLoadFont() throws IOException {
+        FtFontRegistry registry = FtFontRegistry.getInstance();
+        String name = "testLoadFont/FreeSerif.ttf";
+        FtFontCache cache = new FtFontCache(directory);
+        try (FtFontRegistry.Handle handle = registry.acquire(name, 0, TestFontCache::open)) {
+            FtFontGenerator generator = handle.getGenerator();
+            String key = FtFontCache.getKey(Files.readAllBytes(FONT.toPath()), 0, newParameter());
+            assertEquals(key, FtFontCache.getKey(generator.getFontData(), 0, newParameter()));
+
+            // generated by the shared generator, then loaded from the cache
+            BitmapFont generated = cache.loadFont(generator, newFontParameter());
+            assertTrue(cache.getFile(key).isFile());
+            BitmapFont loaded = cache.loadFont(generator, newFontParameter());
+            assertNotSame(generated.getCharSet(), loaded.getCharSet());
+            assertEquals(generated.getCharSet().getLineHeight(), loaded.getCharSet().getLineHeight());
+
+            // the generator is still used by the handle
+            assertEquals(1, registry.getRefCount(name, 0));
+            assertTrue(generator.getFace().getCharIndex('A') > 0);
+        }
+        assertEquals(0, registry.getRefCount(name, 0));
+    }
+
+    @Test void testLoader() throws IOException {
+        AtomicInteger reads = new AtomicInteger();
+        FtFontLoader.setCache(new FtFontCache(directory));
+        try {
+            FtFontLoader loader = new FtFontLoader();
+            BitmapFont generated = (BitmapFont) loader.load(newAssetInfo(reads));
+            // the font data is hashed, then read by the registry to generate the font
+            assertEquals(2, reads.get());
+
+            reads.set(0);
+            BitmapFont loaded = (BitmapFont) loader.load(newAssetInfo(reads));
+            // the font data is only hashed, the face is not opened
+            assertEquals(1, reads.get());
+            assertNotSame(generated.getCharSet(), loaded.getCharSet());
+            assertEquals(generated.getCharSet().getLineHeight(), loaded.getCharSet().getLineHeight());
+        } finally {
+            FtFontLoader.setCache(null);
+        }
+    }
+
+    // the generator updates the parameter of the key, each load has its own key
+    private static AssetInfo newAssetInfo(AtomicInteger reads) {
+        FtFontKey key = new FtFontKey("testLoader/FreeSerif.ttf", 24);
+        key.setCharacters("\0AVTWaveTo");
+        key.setMatDef(newFontParameter().getMatDef());
+        return new AssetInfo(null, key) {
+            @Override
+            public InputStream openStream() {
+                reads.incrementAndGet();
+                return open();
+            }
+        };
+    }
+
+    private static InputStream open() {
+        try {
+            return new FileInputStream(FONT);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.jmecn.font;
+
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The glyphs are looked up without locking while the incremental glyphs are added.
+ *
+ * @author yanmaoyuan
+ */
+class TestGlyphTable {
+
+    @Test void testPutGet() {
+        GlyphTable table = new GlyphTable();
+        assertNull(table.get(0, 'A'));
+
+        for (int ch = 0; ch < 5000; ch++) {
+            table.put(0, ch, new Glyph((char) ch));
+        }
+        Glyph bold = new Glyph('A');
+        table.put(1, 'A', bold);
+        assertEquals(5001, table.size());
+
+        for (int ch = 0; ch < 5000; ch++) {
+            assertEquals(ch, table.get(0, ch).getChar());
+        }
+        assertSame(bold, table.get(1, 'A'));
+        assertNotSame(bold, table.get(0, 'A'));
+        assertNull(table.get(2, 'A'));
+
+        // replace
+        Glyph other = new Glyph('A');
+        table.put(0, 'A', other);
+        assertSame(other, table.get(0, 'A'));
+        assertEquals(5001, table.size());
+    }
+
+    @Test void testConcurrentLayout() throws Exception {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters("a");
+
+        String text = "The quick brown fox jumps over the lazy dog 0123456789";
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+
+            List<Future<Glyph[]>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    Glyph[] glyphs = new Glyph[text.length()];
+                    for (int j = 0; j < text.length(); j++) {
+                        glyphs[j] = charSet.getCharacter(text.charAt(j));
+                    }
+                    return glyphs;
+                }));
+            }
+
+            // every thread got the same glyph of a character
+            Glyph[] expected = futures.get(0).get();
+            for (Future<Glyph[]> future : futures) {
+                Glyph[] glyphs = future.get();
+                for (int j = 0; j < text.length(); j++) {
+                    assertSame(expected[j], glyphs[j], "char:" + text.charAt(j));
+                    assertSame(charSet.getCharacter(text.charAt(j)), glyphs[j]);
+                }
+            }
+            long distinct = text.chars().filter(c -> !Character.isWhitespace(c)).distinct().count();
+            assertEquals(distinct, charSet.getGlyphs().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
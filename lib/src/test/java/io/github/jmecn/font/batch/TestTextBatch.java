@@ -0,0 +1,197 @@
+package io.github.jmecn.font.batch;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.material.MaterialDef;
+import com.jme3.math.ColorRGBA;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.shader.VarType;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The labels of a batch are drawn with one geometry per page, and only the changed labels are written.
+ *
+ * @author yanmaoyuan
+ */
+class TestTextBatch {
+
+    static final String TEXT = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    FtFontGenerator generator;
+
+    @BeforeEach void setUp() {
+        generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"));
+    }
+
+    @AfterEach void tearDown() {
+        generator.close();
+    }
+
+    // the parameters of Shaders/Font/Font.j3md, the shaders are not needed without a renderer
+    private FtBitmapCharacterSet generate(boolean textureArray) {
+        MaterialDef matDef = new MaterialDef(null, "Font");
+        matDef.addMaterialParamTexture(textureArray ? VarType.TextureArray : VarType.Texture2D, "ColorMap",
+                ColorSpace.sRGB, null);
+        matDef.addMaterialParam(VarType.Boolean, "VertexColor", null);
+        matDef.addMaterialParam(VarType.Boolean, "SingleChannel", null);
+
+        FtFontParameter parameter = new FtFontParameter();
+        // each page holds a few glyphs
+        parameter.setPacker(new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy()));
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setCharacters(TEXT);
+        parameter.setMatDef(matDef);
+        parameter.setTextureArray(textureArray);
+        BitmapFont font = generator.generateFont(parameter);
+        return (FtBitmapCharacterSet) font.getCharSet();
+    }
+
+    private static int vertexCount(TextBatch batch) {
+        int count = 0;
+        for (Spatial child : batch.getChildren()) {
+            count += ((Geometry) child).getMesh().getVertexCount();
+        }
+        return count;
+    }
+
+    @Test void testPages() {
+        FtBitmapCharacterSet charSet = generate(false);
+        TextBatch batch = new TextBatch(charSet);
+        for (int i = 0; i < 100; i++) {
+            TextLabel label = batch.addLabel(TEXT);
+            label.setPosition(i * 10f, i * 20f, 0);
+        }
+        batch.update();
+
+        // one geometry per page, whatever the number of labels
+        assertTrue(charSet.getImages().size() > 2);
+        assertEquals(charSet.getImages().size(), batch.getChildren().size());
+        int quads = batch.getLabels().get(0).getQuadCount();
+        assertEquals(TEXT.length(), quads);
+        assertEquals(100 * quads, batch.getWrittenQuads());
+        assertEquals(100 * quads * 4, vertexCount(batch));
+
+        // the first quad of a label is at its position
+        int page = charSet.getCharacter('A').getPage();
+        int perPage = 0;
+        for (char c : TEXT.toCharArray()) {
+            if (charSet.getCharacter(c).getPage() == page) {
+                perPage++;
+            }
+        }
+        Mesh mesh = batch.getGeometry(page).getMesh();
+        FloatBuffer positions = (FloatBuffer) mesh.getBuffer(VertexBuffer.Type.Position).getData();
+        for (int i = 0; i < 100; i++) {
+            TextLabel label = batch.getLabels().get(i);
+            float x0 = positions.get(i * perPage * TextBatch.POSITIONS);
+            assertEquals(label.getPosition().x + charSet.getCharacter('A').getXOffset(), x0, 1e-3f);
+        }
+    }
+
+    @Test void testPartialUpdate() {
+        FtBitmapCharacterSet charSet = generate(false);
+        TextBatch batch = new TextBatch(charSet);
+        TextLabel first = batch.addLabel("A");
+        TextLabel second = batch.addLabel("A");
+        batch.update();
+        assertEquals(2, batch.getWrittenQuads());
+
+        Mesh mesh = batch.getGeometry(charSet.getCharacter('A').getPage()).getMesh();
+        VertexBuffer texCoords = mesh.getBuffer(VertexBuffer.Type.TexCoord);
+        texCoords.clearUpdateNeeded();
+
+        // only the moved label is written, the texture coordinates are not uploaded again
+        second.setPosition(100, 50, 0);
+        batch.update();
+        assertEquals(second.getQuadCount(), batch.getWrittenQuads());
+        assertFalse(texCoords.isUpdateNeeded());
+        FloatBuffer positions = (FloatBuffer) mesh.getBuffer(VertexBuffer.Type.Position).getData();
+        assertEquals(positions.get(0) + 100, positions.get(TextBatch.POSITIONS), 1e-3f);
+
+        first.setColor(ColorRGBA.Red);
+        batch.update();
+        assertEquals(first.getQuadCount(), batch.getWrittenQuads());
+        ByteBuffer colors = (ByteBuffer) mesh.getBuffer(VertexBuffer.Type.Color).getData();
+        assertEquals((byte) 255, colors.get(0));
+        assertEquals((byte) 0, colors.get(1));
+        assertEquals((byte) 255, colors.get(TextBatch.COLORS + 1));
+
+        // nothing changed
+        batch.update();
+        assertEquals(0, batch.getWrittenQuads());
+    }
+
+    @Test void testReuseRanges() {
+        FtBitmapCharacterSet charSet = generate(false);
+        TextBatch batch = new TextBatch(charSet);
+        TextLabel[] labels = new TextLabel[50];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = batch.addLabel(TEXT);
+        }
+        batch.update();
+        int vertices = vertexCount(batch);
+
+        // the damage numbers come and go
+        for (int round = 0; round < 10; round++) {
+            for (int i = 0; i < labels.length; i += 2) {
+                batch.removeLabel(labels[i]);
+                labels[i] = batch.addLabel(TEXT);
+                labels[i].setPosition(round, i, 0);
+            }
+            batch.update();
+        }
+        assertEquals(labels.length, batch.getLabels().size());
+        // the free ranges are compacted instead of growing the buffers
+        assertTrue(vertexCount(batch) <= vertices * 2, "vertices:" + vertexCount(batch));
+
+        // a shorter text stays in its range, a longer text is moved
+        labels[1].setText("A");
+        batch.update();
+        assertEquals(1, batch.getWrittenQuads());
+        labels[1].setText(TEXT + TEXT);
+        batch.update();
+        assertEquals(TEXT.length() * 2, batch.getWrittenQuads());
+        assertThrows(IllegalArgumentException.class, () -> new TextBatch(charSet).removeLabel(labels[1]));
+    }
+
+    @Test void testTextureArray() {
+        FtBitmapCharacterSet charSet = generate(true);
+        TextBatch batch = new TextBatch(charSet);
+        for (int i = 0; i < 10; i++) {
+            batch.addLabel(TEXT).setAlign(BitmapFont.Align.Center);
+        }
+        batch.update();
+
+        // all the pages in one draw call, the layer is the page of the glyph
+        assertEquals(1, batch.getChildren().size());
+        assertSame(charSet.getArrayMaterial(), batch.getGeometry(0).getMaterial());
+        Mesh mesh = batch.getGeometry(0).getMesh();
+        FloatBuffer layers = (FloatBuffer) mesh.getBuffer(VertexBuffer.Type.TexCoord2).getData();
+        int page = charSet.getCharacter(TEXT.charAt(TEXT.length() - 1)).getPage();
+        assertTrue(page > 0);
+        assertEquals(page, layers.get((TEXT.length() - 1) * 4), 0f);
+
+        // centered on the position
+        FloatBuffer positions = (FloatBuffer) mesh.getBuffer(VertexBuffer.Type.Position).getData();
+        assertTrue(positions.get(0) < 0);
+        assertTrue(positions.get((TEXT.length() - 1) * TextBatch.POSITIONS + 6) > 0);
+    }
+}
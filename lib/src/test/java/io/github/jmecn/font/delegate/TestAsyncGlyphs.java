@@ -0,0 +1,134 @@
+package io.github.jmecn.font.delegate;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.texture.Image;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.exception.FtRuntimeException;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.Rectangle;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The incremental glyphs of an async font are laid out as placeholders until they are rendered in background.
+ *
+ * @author yanmaoyuan
+ */
+class TestAsyncGlyphs {
+
+    private static void awaitGlyph(FtBitmapCharacterSet charSet, Glyph glyph) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (glyph.isPending()) {
+            assertTrue(System.currentTimeMillis() < deadline, "glyph not rendered in time");
+            Thread.sleep(5);
+            charSet.update();
+        }
+    }
+
+    @Test void testAsync() throws InterruptedException {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters("A");
+        parameter.setAsync(true);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            assertTrue(charSet.isAsync());
+            assertFalse(charSet.getCharacter('A').isPending());
+
+            BitmapFont font = new BitmapFont();
+            font.setCharSet(charSet);
+            BitmapText text = new BitmapText(font, false, false);
+            text.setText("AB");
+
+            // the requests of the same character are collapsed
+            Glyph b = charSet.getCharacter('B');
+            assertSame(b, charSet.getCharacter('B'));
+            assertTrue(b.isPending());
+            assertEquals(0, b.getWidth());
+            assertEquals(0, b.getXAdvance());
+
+            text.updateLogicalState(0f);
+
+            awaitGlyph(charSet, b);
+            assertSame(b, charSet.getCharacter('B'));
+            assertTrue(b.getWidth() > 0);
+            assertTrue(b.getXAdvance() > 0);
+            assertTrue(charSet.getGlyphs().contains(b));
+
+            // the waiting text is laid out again, like a new text
+            text.updateLogicalState(0f);
+            BitmapText expected = new BitmapText(font, false, false);
+            expected.setText("AB");
+            expected.updateLogicalState(0f);
+            assertEquals(expected.getLineWidth(), text.getLineWidth());
+            assertTrue(text.getLineWidth() > charSet.getCharacter('A').getXAdvance());
+        }
+    }
+
+    @Test void testPackFailure() throws InterruptedException {
+        String letters = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+        // each page holds a few glyphs, all the pages are pinned
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setPacker(packer);
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters(letters);
+        parameter.setMaxPages(1);
+        parameter.setAsync(true);
+
+        FtFontParameter sync = new FtFontParameter();
+        sync.setSize(16);
+        sync.setIncremental(true);
+        sync.setCharacters(letters);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            FtBitmapCharacterSet reference = generator.generateData(sync);
+            // fill the space left in the pinned pages
+            assertThrows(FtRuntimeException.class, () -> {
+                while (true) {
+                    packer.insert(null, new Rectangle(1, 1));
+                }
+            });
+
+            BitmapFont font = new BitmapFont();
+            font.setCharSet(charSet);
+            BitmapText text = new BitmapText(font, false, false);
+            text.setText("Ab");
+            Glyph b = charSet.getCharacter('b');
+            assertTrue(b.isPending());
+            text.updateLogicalState(0f);
+
+            // no page is left, the placeholder is evicted without metrics
+            awaitGlyph(charSet, b);
+            assertTrue(b.isEvicted());
+            assertEquals(0, b.getWidth());
+
+            // a page is added, the glyph is generated again when the text is laid out
+            packer.setMaxPages(packer.getPages().size() + 1);
+            text.updateLogicalState(0f);
+            assertFalse(b.isEvicted());
+            Glyph expected = reference.getCharacter('b');
+            assertEquals(expected.getWidth(), b.getWidth());
+            assertEquals(expected.getHeight(), b.getHeight());
+            assertEquals(expected.getXOffset(), b.getXOffset());
+            assertEquals(expected.getYOffset(), b.getYOffset());
+            assertEquals(expected.getXAdvance(), b.getXAdvance());
+
+            text.updateLogicalState(0f);
+            assertTrue(text.getLineWidth() > charSet.getCharacter('A').getXAdvance());
+        }
+    }
+}
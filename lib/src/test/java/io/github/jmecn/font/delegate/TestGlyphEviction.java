@@ -0,0 +1,126 @@
+package io.github.jmecn.font.delegate;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.texture.Image;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * An incremental font with limited pages reuses the least recently used page.
+ *
+ * @author yanmaoyuan
+ */
+class TestGlyphEviction {
+
+    static final String LETTERS = "BCDEFGHIJKLMNOPQRSTUVWXYZbcdefghijklmnopqrstuvwxyz";
+
+    @Test void testEviction() {
+        // each page holds a few glyphs
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setPacker(packer);
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters("A");
+        parameter.setMaxPages(3);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            assertTrue(charSet.isEvictable());
+            Glyph a = charSet.getCharacter('A');
+            assertTrue(a.isPinned());
+
+            // a glyph out of the pinned page
+            Glyph b = null;
+            for (char c : "0123456789".toCharArray()) {
+                b = charSet.getCharacter(c);
+                if (b.getPage() != a.getPage()) {
+                    break;
+                }
+            }
+            assertNotEquals(a.getPage(), b.getPage());
+
+            BitmapFont font = new BitmapFont();
+            font.setCharSet(charSet);
+            BitmapText text = new BitmapText(font, false, false);
+            text.setText("A" + b.getChar());
+            text.updateLogicalState(0f);
+
+            for (char c : LETTERS.toCharArray()) {
+                assertNotNull(charSet.getCharacter(c), "missing glyph:" + c);
+                assertTrue(packer.getPages().size() <= 3);
+            }
+            assertTrue(charSet.getEvictions() > 0);
+            assertFalse(a.isEvicted());
+            assertEquals(0, a.getPage());
+
+            // the glyph was not used since the text was laid out, its page is reused
+            assertTrue(b.isEvicted());
+            // the text is laid out again and generates the glyph again
+            text.updateLogicalState(0f);
+            assertFalse(b.isEvicted());
+            assertSame(b, charSet.getCharacter(b.getChar()));
+            assertTrue(packer.getPages().size() <= 3);
+        }
+    }
+
+    @Test void testMaxBytes() {
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setPacker(packer);
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters("A");
+        parameter.setMaxBytes(packer.getPageBytes() * 2L);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            assertTrue(charSet.isEvictable());
+
+            for (char c : LETTERS.toCharArray()) {
+                assertNotNull(charSet.getCharacter(c), "missing glyph:" + c);
+                assertTrue(packer.getPages().size() <= 2);
+            }
+            assertTrue(charSet.getEvictions() > 0);
+            // the committed bytes are the bytes of the pages allocated
+            assertEquals((long) packer.getPageBytes() * packer.getPages().size(), packer.getCommittedBytes());
+            assertTrue(packer.getCommittedBytes() <= parameter.getMaxBytes());
+        }
+    }
+
+    @Test void testPinnedPagesOnly() {
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setPacker(packer);
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setIncremental(true);
+        parameter.setCharacters("ABCD");
+        parameter.setMaxPages(1);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            charSet.missingGlyph = charSet.getCharacter('A');
+            // no page can be cleared, the missing glyph is used
+            Glyph glyph = null;
+            for (char c : LETTERS.toCharArray()) {
+                glyph = charSet.getCharacter(c);
+            }
+            assertSame(charSet.missingGlyph, glyph);
+            assertEquals(1, packer.getPages().size());
+            assertEquals(0, charSet.getEvictions());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package io.github.jmecn.font.delegate;
+
+import com.jme3.font.BitmapFont;
+import com.jme3.font.BitmapText;
+import com.jme3.material.MaterialDef;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.shader.VarType;
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.generator.FtFontGenerator;
+import io.github.jmecn.font.generator.FtFontParameter;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.FloatBuffer;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A text of a font with many pages is one mesh when the pages are the layers of a texture array.
+ *
+ * @author yanmaoyuan
+ */
+class TestTextureArray {
+
+    static final String TEXT = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    // the parameters of Shaders/Font/FontArray.j3md, the shaders are not needed without a renderer
+    private static MaterialDef newMatDef() {
+        MaterialDef matDef = new MaterialDef(null, "FontArray");
+        matDef.addMaterialParamTexture(VarType.TextureArray, "ColorMap", ColorSpace.sRGB, null);
+        matDef.addMaterialParam(VarType.Vector4, "Color", null);
+        matDef.addMaterialParam(VarType.Boolean, "VertexColor", null);
+        matDef.addMaterialParam(VarType.Boolean, "SingleChannel", null);
+        return matDef;
+    }
+
+    @Test void testOneGeometry() {
+        // each page holds a few glyphs
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setPacker(packer);
+        parameter.setFormat(Image.Format.Alpha8);
+        parameter.setSize(16);
+        parameter.setCharacters(TEXT);
+        parameter.setMatDef(newMatDef());
+        parameter.setTextureArray(true);
+        parameter.setIncremental(true);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            BitmapFont font = generator.generateFont(parameter);
+            FtBitmapCharacterSet charSet = (FtBitmapCharacterSet) font.getCharSet();
+            assertTrue(charSet.isTextureArray());
+            assertTrue(charSet.getImages().size() > 2);
+            assertEquals(0, font.getPageSize());
+            assertEquals(Boolean.TRUE, charSet.getArrayMaterial().getParam("SingleChannel").getValue());
+
+            BitmapText text = new BitmapText(font, false, false);
+            text.setText(TEXT + TEXT);
+            text.updateLogicalState(0f);
+
+            assertEquals(1, text.getChildren().size());
+            Spatial child = text.getChild(0);
+            assertTrue(child instanceof TextArrayGeometry);
+            assertSame(charSet.getArrayMaterial(), ((TextArrayGeometry) child).getMaterial());
+            assertEquals(charSet.getImages().size(), charSet.getTextureArray().getImage().getData().size());
+
+            Mesh mesh = ((TextArrayGeometry) child).getMesh();
+            int quads = TEXT.length() * 2;
+            assertEquals(quads * 4, mesh.getVertexCount());
+            assertEquals(quads * 2, mesh.getTriangleCount());
+
+            // the layer of each vertex is the page of its glyph
+            FloatBuffer layers = (FloatBuffer) mesh.getBuffer(TextArrayGeometry.LAYER).getData();
+            Set<Integer> pages = new HashSet<>();
+            for (int i = 0; i < quads; i++) {
+                int page = charSet.getCharacter(TEXT.charAt(i % TEXT.length())).getPage();
+                pages.add(page);
+                for (int v = 0; v < 4; v++) {
+                    assertEquals(page, layers.get(i * 4 + v), 0f);
+                }
+            }
+            assertTrue(pages.size() > 2);
+
+            // a glyph on a new page adds a layer
+            int layerCount = charSet.getImages().size();
+            text.setText("abcdefghijklmnopqrstuvwxyz");
+            text.updateLogicalState(0f);
+            assertTrue(charSet.getImages().size() > layerCount);
+            assertEquals(charSet.getImages().size(), charSet.getTextureArray().getImage().getData().size());
+            assertFalse(charSet.updateTextureArray());
+            assertEquals(1, text.getChildren().size());
+        }
+    }
+
+    @Test void testMaterialCheck() {
+        // the ColorMap of a Texture2D material
+        MaterialDef matDef = new MaterialDef(null, "Font");
+        matDef.addMaterialParamTexture(VarType.Texture2D, "ColorMap", ColorSpace.sRGB, null);
+        matDef.addMaterialParam(VarType.Boolean, "VertexColor", null);
+
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(16);
+        parameter.setCharacters(TEXT);
+        parameter.setMatDef(matDef);
+        parameter.setTextureArray(true);
+
+        try (FtFontGenerator generator = new FtFontGenerator(new File("../font/FreeSerif.ttf"))) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> generator.generateFont(parameter));
+            assertTrue(e.getMessage().contains("Texture2D"), e.getMessage());
+        }
+    }
+}
@@ -33,6 +33,7 @@
 package io.github.jmecn.font.example;
 
 import com.jme3.app.SimpleApplication;
+import com.jme3.app.state.AbstractAppState;
 import com.jme3.asset.AssetKey;
 import com.jme3.font.BitmapFont;
 import com.jme3.font.BitmapText;
@@ -41,6 +42,7 @@ import com.jme3.material.MaterialDef;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Quaternion;
 import com.jme3.math.Vector3f;
+import com.jme3.renderer.RenderManager;
 import com.jme3.scene.Geometry;
 import com.jme3.scene.shape.Quad;
 import com.jme3.system.AppSettings;
@@ -124,6 +126,14 @@ public class TestBitmapTextIncrement extends SimpleApplication {
             rootNode.attachChild(buildFontPage(fnt, i));
         }
 
+        // upload the new glyphs only, instead of the whole pages
+        stateManager.attach(new AbstractAppState() {
+            @Override
+            public void render(RenderManager rm) {
+                characterSet.upload(rm.getRenderer());
+            }
+        });
+
         // add new page to the scene
         packer.addListener((packer1, strategy, page) -> {
             Geometry fontPage = buildFontPage(fnt, page.getIndex());
@@ -0,0 +1,78 @@
+package io.github.jmecn.font.freetype;
+
+import io.github.jmecn.font.generator.FtFontGenerator;
+import org.junit.jupiter.api.Test;
+import org.lwjgl.util.freetype.FreeType;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The glyph indexes looked up in the cache manager must be the ones of the face, the bitmaps are rendered once.
+ *
+ * @author yanmaoyuan
+ */
+class TestCacheManager {
+
+    static final File FONT = new File("../font/FreeSerif.ttf");
+
+    @Test void testLookup() {
+        try (FtCacheManager cache = new FtCacheManager(); FtLibrary library = new FtLibrary()) {
+            long faceId = cache.addFace(FtLibrary.mapFile(FONT), 0);
+            FtFace face = library.newMappedFace(FONT, 0);
+            for (char c : "AZaz09".toCharArray()) {
+                assertEquals(face.getCharIndex(c), cache.getCharIndex(faceId, c));
+            }
+            assertEquals(0, cache.getCharIndex(faceId, 0x4E2D));
+            assertEquals(1, cache.getFaceMissCount());
+
+            // the bitmap is rendered by the first lookup only
+            int index = cache.getCharIndex(faceId, 'g');
+            FtCacheManager.SBit first = cache.lookupSBit(faceId, 32, index, 0);
+            FtCacheManager.SBit second = cache.lookupSBit(faceId, 32, index, 0);
+            assertEquals(2, cache.getLookupCount());
+            assertEquals(1, cache.getMissCount());
+            assertEquals(1, cache.getHitCount());
+            assertEquals(FreeType.FT_PIXEL_MODE_GRAY, first.getFormat());
+            assertTrue(first.getWidth() > 0 && first.getHeight() > 0);
+            assertArrayEquals(first.getBuffer(), second.getBuffer());
+            face.close();
+
+            cache.removeFace(faceId);
+            assertThrows(IllegalArgumentException.class, () -> cache.getCharIndex(faceId, 'A'));
+        }
+    }
+
+    @Test void testMaxFaces() {
+        try (FtCacheManager small = new FtCacheManager(1, 0, 0);
+             FtCacheManager large = new FtCacheManager(2, 0, 0)) {
+            for (FtCacheManager cache : new FtCacheManager[] {small, large}) {
+                long first = cache.addFace(FtLibrary.mapFile(FONT), 0);
+                long second = cache.addFace(FtLibrary.mapFile(FONT), 0);
+                // the characters of different blocks are different cmap nodes, each lookup needs the face
+                for (int block = 0; block < 4; block++) {
+                    cache.getCharIndex(first, 0x20 + block * 0x80);
+                    cache.getCharIndex(second, 0x20 + block * 0x80);
+                }
+            }
+            // the small cache opened the faces again
+            assertEquals(2, large.getFaceMissCount());
+            assertTrue(small.getFaceMissCount() > 2);
+        }
+    }
+
+    @Test void testGenerator() {
+        try (FtCacheManager cache = new FtCacheManager()) {
+            FtFontGenerator generator = new FtFontGenerator(FONT);
+            int index = generator.getFace().getCharIndex('W');
+            generator.setCacheManager(cache);
+            assertSame(cache, generator.getCacheManager());
+            assertEquals(index, generator.getCharIndex('W'));
+
+            generator.close();
+            assertNull(generator.getCacheManager());
+            assertThrows(IllegalArgumentException.class, () -> cache.getCharIndex(1, 'W'));
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.github.jmecn.font.freetype;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The faces opened in memory, over a mapped file and over a stream must be the same. The time to open a face and the
+ * direct and mapped memory used by each mode are logged.
+ *
+ * @author yanmaoyuan
+ */
+class TestFaceLoading {
+
+    static Logger log = LoggerFactory.getLogger(TestFaceLoading.class);
+
+    static final File FONT = new File("../font/FreeSerif.ttf");
+
+    enum Mode { MEMORY, MAPPED, STREAM }
+
+    private static Supplier<InputStream> source(File file) {
+        return () -> {
+            try {
+                return new FileInputStream(file);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static FtFace open(FtLibrary library, Mode mode) throws Exception {
+        switch (mode) {
+            case MEMORY:
+                try (InputStream in = new FileInputStream(FONT)) {
+                    return library.newFace(in, 0);
+                }
+            case MAPPED:
+                return library.newMappedFace(FONT, 0);
+            default:
+                return library.newStreamFace(source(FONT), -1, 0);
+        }
+    }
+
+    private static long poolUsed(String name) {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals(name)) {
+                return pool.getMemoryUsed();
+            }
+        }
+        return 0;
+    }
+
+    private static long[] metrics(FtFace face, char ch) {
+        assertTrue(face.setPixelSize(0, 32));
+        assertTrue(face.loadChar(ch));
+        FtGlyphMetrics metrics = face.getGlyph().getMetrics();
+        return new long[] {metrics.getWidth(), metrics.getHeight(), metrics.getHoriBearingX(),
+                metrics.getHoriBearingY(), metrics.getHoriAdvance()};
+    }
+
+    @Test void testModes() throws Exception {
+        long[] expected = null;
+        for (Mode mode : Mode.values()) {
+            try (FtLibrary library = new FtLibrary()) {
+                long direct = poolUsed("direct");
+                long mapped = poolUsed("mapped");
+                long start = System.nanoTime();
+                FtFace face = open(library, mode);
+                long nanos = System.nanoTime() - start;
+                log.info("{}: open {} ms, direct {} bytes, mapped {} bytes", mode, nanos / 1e6,
+                        poolUsed("direct") - direct, poolUsed("mapped") - mapped);
+
+                assertEquals("FreeSerif", face.getFamilyName());
+                long[] actual = metrics(face, 'g');
+                if (expected == null) {
+                    expected = actual;
+                } else {
+                    assertArrayEquals(expected, actual, mode.name());
+                }
+                face.close();
+            }
+        }
+    }
+
+    @Test void testSharedMapping() {
+        assertSame(FtLibrary.mapFile(FONT), FtLibrary.mapFile(FONT));
+        assertThrows(IllegalArgumentException.class, () -> FtLibrary.mapFile(new File("../font/none.ttf")));
+    }
+
+    @Test void testStream() {
+        try (FtLibrary library = new FtLibrary()) {
+            FtFace face = library.newStreamFace(source(FONT), FONT.length(), 0);
+            assertEquals(FONT.length(), face.getStream().getSize());
+            assertEquals(metrics(library.newMappedFace(FONT, 0), 'W')[4], metrics(face, 'W')[4]);
+            log.info("stream reopened {} times", face.getStream().getReopenCount());
+            face.close();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.texture.Image;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.strategy.SkylineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * An Alpha8 page keeps the alpha channel of the RGBA8 page.
+ *
+ * @author yanmaoyuan
+ */
+class TestAlphaPage {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+
+    private FtBitmapCharacterSet generate(Image.Format format, int padding) {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(24);
+            parameter.setPadding(padding);
+            parameter.setCharacters("\0abcdefgABCDEFG");
+            parameter.setFormat(format);
+            parameter.setPacker(new Packer(format, 256, 256, 1, false, new SkylineStrategy()));
+            FtBitmapCharacterSet data = generator.generateData(parameter);
+
+            // incremental glyphs
+            for (char c : "xyzXYZ@".toCharArray()) {
+                assertNotNull(generator.createGlyph(c, parameter, null, data.getAscent(), parameter.getPacker()));
+            }
+            return data;
+        }
+    }
+
+    @Test void testSameAlpha() {
+        for (int padding = 0; padding <= 1; padding++) {
+            FtBitmapCharacterSet rgba = generate(Image.Format.RGBA8, padding);
+            FtBitmapCharacterSet alpha = generate(Image.Format.Alpha8, padding);
+            assertEquals(1, alpha.getImages().size());
+
+            Image rgbaPage = rgba.getImage(0);
+            Image alphaPage = alpha.getImage(0);
+            assertEquals(Image.Format.Alpha8, alphaPage.getFormat());
+
+            ByteBuffer rgbaData = rgbaPage.getData(0);
+            ByteBuffer alphaData = alphaPage.getData(0);
+            int pixels = rgbaPage.getWidth() * rgbaPage.getHeight();
+            for (int i = 0; i < pixels; i++) {
+                assertEquals(rgbaData.get(i * 4 + 3), alphaData.get(i), "pixel " + i);
+            }
+        }
+    }
+
+    @Test void testFallbackWithBorder() {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(24);
+            parameter.setBorderWidth(1);
+            parameter.setFormat(Image.Format.Alpha8);
+            FtBitmapCharacterSet data = generator.generateData(parameter);
+            assertEquals(Image.Format.RGBA8, data.getImage(0).getFormat());
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package io.github.jmecn.font.generator;
+
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import org.junit.jupiter.api.Test;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The fonts of a font file share one generator, it is closed with the last font.
+ *
+ * @author yanmaoyuan
+ */
+class TestFontRegistry {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+
+    private static Supplier<InputStream> open(AtomicInteger reads) {
+        return () -> {
+            reads.incrementAndGet();
+            try {
+                return new FileInputStream(FONT);
+            } catch (FileNotFoundException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    private static FtFontParameter newParameter(int size) {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(size);
+        parameter.setIncremental(true);
+        parameter.setCharacters("a");
+        return parameter;
+    }
+
+    @Test void testShared() throws IOException {
+        FtFontRegistry registry = FtFontRegistry.getInstance();
+        AtomicInteger reads = new AtomicInteger();
+        String name = "testShared/FreeSerif.ttf";
+
+        FtFontRegistry.Handle small = registry.acquire(name, 0, open(reads));
+        FtFontRegistry.Handle large = registry.acquire(name, 0, open(reads));
+        assertEquals(1, reads.get());
+        assertSame(small.getGenerator(), large.getGenerator());
+        assertEquals(2, registry.getRefCount(name, 0));
+
+        FtFontGenerator generator = small.getGenerator();
+        // the incremental glyphs are rendered by the shared caches
+        assertSame(registry.getCacheManager(), generator.getCacheManager());
+        long lookups = registry.getCacheManager().getLookupCount();
+        FtBitmapCharacterSet smallFont;
+        FtBitmapCharacterSet largeFont;
+        synchronized (generator) {
+            smallFont = generator.generateData(newParameter(16));
+            largeFont = generator.generateData(newParameter(48));
+        }
+        small.attach(smallFont);
+        large.attach(largeFont);
+
+        // the incremental glyphs are generated at the size of each font
+        Glyph a = smallFont.getCharacter('A');
+        Glyph b = largeFont.getCharacter('A');
+        assertTrue(b.getHeight() > a.getHeight() * 2);
+        assertTrue(registry.getCacheManager().getLookupCount() >= lookups + 2);
+
+        smallFont.close();
+        smallFont.close();
+        assertEquals(1, registry.getRefCount(name, 0));
+        assertFalse(generator.getFace().isClosed());
+
+        largeFont.close();
+        assertEquals(0, registry.getRefCount(name, 0));
+        assertTrue(generator.getFace().isClosed());
+        assertNull(generator.getCacheManager());
+        assertThrows(IllegalStateException.class, small::getGenerator);
+
+        // loaded again
+        try (FtFontRegistry.Handle handle = registry.acquire(name, 0, open(reads))) {
+            assertNotSame(generator, handle.getGenerator());
+            assertEquals(2, reads.get());
+        }
+        assertEquals(0, registry.getRefCount(name, 0));
+    }
+
+    @Test void testCacheDisabled() throws IOException {
+        FtFontRegistry registry = FtFontRegistry.getInstance();
+        String name = "testCacheDisabled/FreeSerif.ttf";
+
+        registry.setCacheEnabled(false);
+        try (FtFontRegistry.Handle handle = registry.acquire(name, 0, open(new AtomicInteger()))) {
+            assertNull(handle.getGenerator().getCacheManager());
+        } finally {
+            registry.setCacheEnabled(true);
+        }
+    }
+
+    @Test void testReleaseCollected() throws IOException, InterruptedException {
+        FtFontRegistry registry = FtFontRegistry.getInstance();
+        String name = "testReleaseCollected/FreeSerif.ttf";
+
+        FtFontRegistry.Handle handle = registry.acquire(name, 0, open(new AtomicInteger()));
+        FtFontGenerator generator = handle.getGenerator();
+        synchronized (generator) {
+            handle.attach(generator.generateData(newParameter(16)));
+        }
+        handle = null;
+        assertEquals(1, registry.getRefCount(name, 0));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while (registry.getRefCount(name, 0) > 0) {
+            assertTrue(System.currentTimeMillis() < deadline, "font not collected in time");
+            System.gc();
+            Thread.sleep(10);
+            registry.purge();
+        }
+        assertTrue(generator.getFace().isClosed());
+    }
+
+    @Test void testStreamMode() throws IOException {
+        FtFontRegistry registry = FtFontRegistry.getInstance();
+        String name = "testStreamMode/FreeSerif.ttf";
+        AtomicInteger reads = new AtomicInteger();
+
+        registry.setLoadMode(FtFontRegistry.LoadMode.STREAM);
+        try (FtFontRegistry.Handle handle = registry.acquire(name, 0, open(reads))) {
+            assertEquals(0, registry.getMemorySize());
+            FtFontParameter parameter = newParameter(24);
+            parameter.setIncremental(false);
+            parameter.setCharacters("AVTWaveTo");
+            // the workers open their own streams
+            parameter.setParallelism(2);
+            FtFontGenerator generator = handle.getGenerator();
+            synchronized (generator) {
+                FtBitmapCharacterSet font = generator.generateData(parameter);
+                assertTrue(font.getCharacter('W').getWidth() > 0);
+            }
+            assertTrue(reads.get() > 1);
+        } finally {
+            registry.setLoadMode(FtFontRegistry.LoadMode.MEMORY);
+        }
+        assertEquals(0, registry.getRefCount(name, 0));
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.math.ColorRGBA;
+import com.jme3.texture.Image;
+import io.github.jmecn.font.Glyph;
+import io.github.jmecn.font.freetype.FtCacheManager;
+import io.github.jmecn.font.freetype.FtFace;
+import io.github.jmecn.font.freetype.FtLibrary;
+import io.github.jmecn.font.freetype.FtStroker;
+import io.github.jmecn.font.generator.enums.Hinting;
+import io.github.jmecn.font.packer.Packer;
+import io.github.jmecn.font.packer.Rectangle;
+import io.github.jmecn.font.utils.ImageUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The scratch images are reused between glyphs, a glyph must not see the pixels of the previous one.
+ *
+ * @author yanmaoyuan
+ */
+class TestGlyphRasterizer {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+
+    @Test void testScratchReuse() {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(24);
+        parameter.setBorderWidth(1);
+        parameter.setShadowOffsetX(2);
+        parameter.setShadowOffsetY(2);
+        parameter.setShadowColor(ColorRGBA.Gray);
+        parameter.setPadding(1);
+
+        try (FtLibrary library = new FtLibrary();
+             FtFace face = library.newFace(new File(FONT), 0)) {
+            face.setPixelSize(0, parameter.getSize());
+            FtStroker stroker = GlyphRasterizer.newStroker(library, parameter);
+            try (GlyphRasterizer rasterizer = new GlyphRasterizer(library, face, false)) {
+                GlyphBitmap first = rasterizer.render('i', parameter, stroker, 20).detach();
+                assertFalse(first.getImage().getData(0).isDirect());
+                GlyphBitmap borrowed = rasterizer.render('W', parameter, stroker, 20);
+                assertFalse(borrowed.isOwned());
+                rasterizer.render('@', parameter, stroker, 20);
+                GlyphBitmap second = rasterizer.render('i', parameter, stroker, 20);
+
+                assertEquals(first.getWidth(), second.getWidth());
+                assertEquals(first.getHeight(), second.getHeight());
+                ByteBuffer a = first.getImage().getData(0).duplicate();
+                ByteBuffer b = second.getImage().getData(0).duplicate();
+                a.clear();
+                b.clear();
+                b.limit(a.limit());
+                assertEquals(a, b);
+            } finally {
+                stroker.close();
+            }
+        }
+    }
+
+    /**
+     * Drawing the FreeType bitmap straight to the page must give the same pixels as compositing it first.
+     */
+    @Test void testDirectSameAsComposited() {
+        ColorRGBA[] colors = {ColorRGBA.White, new ColorRGBA(0.8f, 0.3f, 0.1f, 0.7f)};
+        try (FtLibrary library = new FtLibrary();
+             FtFace face = library.newFace(new File(FONT), 0);
+             GlyphRasterizer rasterizer = new GlyphRasterizer(library, face, false)) {
+            face.setPixelSize(0, 32);
+            for (int renderCount = 1; renderCount <= 3; renderCount++) {
+                for (int padding = 0; padding <= 1; padding++) {
+                    for (ColorRGBA color : colors) {
+                        for (float gamma : new float[]{1f, 1.8f}) {
+                            FtFontParameter parameter = new FtFontParameter();
+                            parameter.setSize(32);
+                            parameter.setRenderCount(renderCount);
+                            parameter.setPadding(padding);
+                            parameter.setColor(color);
+                            parameter.setGamma(gamma);
+                            assertSamePage(rasterizer, parameter, padding > 0 ? 2 : 1);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The bitmaps of the sbit cache must be the ones rendered in the slot, with the same layout metrics.
+     */
+    @Test void testSBitSameAsSlot() {
+        String text = "AgWj@\u00e9,.%";
+        try (FtCacheManager cache = new FtCacheManager();
+             FtLibrary library = new FtLibrary();
+             FtFace face = library.newFace(new File(FONT), 0);
+             GlyphRasterizer slot = new GlyphRasterizer(library, face, false);
+             GlyphRasterizer cached = new GlyphRasterizer(library, face, false)) {
+            cached.setCacheManager(cache, cache.addFace(FtLibrary.mapFile(new File(FONT)), 0));
+            face.setPixelSize(0, 32);
+            for (Hinting hinting : new Hinting[]{Hinting.NORMAL, Hinting.LIGHT, Hinting.AUTO_NORMAL}) {
+                FtFontParameter parameter = new FtFontParameter();
+                parameter.setSize(32);
+                parameter.setHinting(hinting);
+                parameter.setPadding(1);
+                for (char c : text.toCharArray()) {
+                    GlyphBitmap expected = slot.render(c, parameter, null, 24, true);
+                    GlyphBitmap actual = cached.render(c, parameter, null, 24, true);
+                    assertNotNull(actual.getSBit(), hinting + ":" + c);
+                    assertSameGlyph(expected.getGlyph(), actual.getGlyph());
+
+                    Packer a = new Packer(Image.Format.Alpha8, 64, 64, 0, false);
+                    Packer b = new Packer(Image.Format.Alpha8, 64, 64, 0, false);
+                    Rectangle rectA = new Rectangle(expected.getWidth(), expected.getHeight());
+                    Rectangle rectB = new Rectangle(actual.getWidth(), actual.getHeight());
+                    a.insert(null, rectA);
+                    b.insert(null, rectB);
+                    int[] lut = ImageUtils.newCoverageLut(ColorRGBA.White, 1f, 1, 2);
+                    a.drawCoverage(rectA, expected.getCoverage(), lut, 1, 1);
+                    b.drawCoverage(rectB, actual.getSBit(), lut, 1, 1);
+                    expected.dispose();
+                    assertEquals(a.getPages().get(0).getImage().getData(0), b.getPages().get(0).getImage().getData(0),
+                            hinting + ":" + c);
+                }
+            }
+            assertEquals(3L * text.length(), cache.getMissCount());
+
+            // the glyphs are rendered once
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(32);
+            cached.render('A', parameter, null, 24, true);
+            assertEquals(3L * text.length() + 1, cache.getLookupCount());
+            assertEquals(1, cache.getHitCount());
+
+            // the shadows and the big glyphs are rendered in the slot
+            parameter.setShadowOffsetX(1);
+            assertNull(cached.render('A', parameter, null, 24, true).getSBit());
+            parameter.setShadowOffsetX(0);
+            parameter.setSize(300);
+            face.setPixelSize(0, 300);
+            GlyphBitmap big = cached.render('W', parameter, null, 240, true);
+            assertNull(big.getSBit());
+            assertNotNull(big.getCoverage());
+            big.dispose();
+        }
+    }
+
+    private static void assertSameGlyph(Glyph expected, Glyph actual) {
+        String c = String.valueOf(expected.getChar());
+        assertEquals(expected.getWidth(), actual.getWidth(), c);
+        assertEquals(expected.getHeight(), actual.getHeight(), c);
+        assertEquals(expected.getXOffset(), actual.getXOffset(), c);
+        assertEquals(expected.getYOffset(), actual.getYOffset(), c);
+        assertEquals(expected.getXAdvance(), actual.getXAdvance(), c);
+    }
+
+    private void assertSamePage(GlyphRasterizer rasterizer, FtFontParameter parameter, int drawCount) {
+        Packer expected = new Packer(Image.Format.RGBA8, 64, 64, 0, false);
+        Packer actual = new Packer(Image.Format.RGBA8, 64, 64, 0, false);
+
+        GlyphBitmap composited = rasterizer.render('g', parameter, null, 24, false);
+        Rectangle rect = expected.pack(composited.getImage());
+
+        GlyphBitmap direct = rasterizer.render('g', parameter, null, 24, true);
+        assertNotNull(direct.getCoverage());
+        assertEquals(composited.getWidth(), direct.getWidth());
+        assertEquals(composited.getHeight(), direct.getHeight());
+        Rectangle directRect = new Rectangle(direct.getWidth(), direct.getHeight());
+        actual.insert(null, directRect);
+        int[] lut = ImageUtils.newCoverageLut(parameter.getColor(), parameter.getGamma(), parameter.getRenderCount(), drawCount);
+        actual.drawCoverage(directRect, direct.getCoverage(), lut, parameter.getPadLeft(), parameter.getPadTop());
+        direct.dispose();
+
+        assertEquals(rect.getX(), directRect.getX());
+        assertEquals(rect.getY(), directRect.getY());
+        ByteBuffer a = expected.getPages().get(0).getImage().getData(0).duplicate();
+        ByteBuffer b = actual.getPages().get(0).getImage().getData(0).duplicate();
+        a.clear();
+        b.clear();
+        assertEquals(a, b, "renderCount:" + parameter.getRenderCount() + ", padding:" + parameter.getPadTop()
+                + ", color:" + parameter.getColor() + ", gamma:" + parameter.getGamma());
+    }
+}
@@ -0,0 +1,99 @@
+package io.github.jmecn.font.generator;
+
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The lazy kerning must be the same as the kerning generated with the font.
+ *
+ * @author yanmaoyuan
+ */
+class TestKerningCache {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+
+    @Test void testSameAsEager() {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(24);
+            FtBitmapCharacterSet eager = generator.generateData(parameter);
+            assertNull(eager.getKerningCache());
+
+            parameter.setLazyKerning(true);
+            FtBitmapCharacterSet lazy = generator.generateData(parameter);
+            KerningCache cache = lazy.getKerningCache();
+            assertEquals(generator.getFace().hasKerning(), cache != null);
+            if (cache == null) {
+                return;
+            }
+
+            // use another size in between, the cache must still use the size of the font
+            generator.setPixelSizes(0, 48);
+
+            int pairs = 0;
+            for (Glyph first : eager.getGlyphs()) {
+                Glyph other = lazy.getCharacter(first.getChar());
+                assertSame(cache, other.getKerningCache());
+                for (Glyph second : eager.getGlyphs()) {
+                    int expected = first.getKerning(second.getChar());
+                    assertEquals(expected, other.getKerning(second.getChar()), first.getChar() + "" + second.getChar());
+                    if (expected != 0) {
+                        pairs++;
+                    }
+                }
+            }
+            assertTrue(pairs > 0);
+            int size = cache.size();
+            assertEquals(eager.getGlyphs().size() * eager.getGlyphs().size(), size);
+
+            // cached pairs are still available after the face is closed
+            generator.getFace().close();
+            Glyph a = lazy.getCharacter('A');
+            assertEquals(eager.getCharacter('A').getKerning('V'), a.getKerning('V'));
+            assertEquals(size, cache.size());
+        }
+    }
+
+    /**
+     * Exporting the pairs must not fill the cache of the font.
+     */
+    @Test void testForEachKerning() {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(24);
+            FtBitmapCharacterSet eager = generator.generateData(parameter);
+            parameter.setLazyKerning(true);
+            FtBitmapCharacterSet lazy = generator.generateData(parameter);
+            KerningCache cache = lazy.getKerningCache();
+            assertNotNull(cache);
+
+            generator.setPixelSizes(0, 48);
+            List<String> expected = pairs(eager);
+            List<String> actual = pairs(lazy);
+            assertFalse(expected.isEmpty());
+            assertEquals(expected, actual);
+            assertEquals(0, cache.size());
+
+            // only the cached pairs are left once the face is closed
+            int av = lazy.getCharacter('A').getKerning('V');
+            assertNotEquals(0, av);
+            generator.getFace().close();
+            List<String> cached = pairs(lazy);
+            assertEquals(1, cached.size());
+            assertEquals("AV" + av, cached.get(0));
+        }
+    }
+
+    private static List<String> pairs(FtBitmapCharacterSet font) {
+        List<String> pairs = new ArrayList<>();
+        font.forEachKerning(font.getGlyphs(), (first, second, kerning) -> pairs.add("" + first + second + kerning));
+        return pairs;
+    }
+}
@@ -0,0 +1,84 @@
+package io.github.jmecn.font.generator;
+
+import com.jme3.texture.Image;
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The parallel generation must produce the same atlas as the serial one.
+ *
+ * @author yanmaoyuan
+ */
+class TestParallelGenerator {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+
+    private FtBitmapCharacterSet generate(int parallelism, int borderWidth) {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtFontParameter parameter = new FtFontParameter();
+            parameter.setSize(24);
+            parameter.setBorderWidth(borderWidth);
+            parameter.setParallelism(parallelism);
+            return generator.generateData(parameter);
+        }
+    }
+
+    private void assertSameAtlas(FtBitmapCharacterSet expected, FtBitmapCharacterSet actual) {
+        assertEquals(expected.getGlyphs().size(), actual.getGlyphs().size());
+        for (Glyph glyph : expected.getGlyphs()) {
+            Glyph other = actual.getCharacter(glyph.getChar());
+            assertNotNull(other, "missing glyph: " + glyph.getChar());
+            assertEquals(glyph.getPage(), other.getPage());
+            assertEquals(glyph.getX(), other.getX());
+            assertEquals(glyph.getY(), other.getY());
+            assertEquals(glyph.getWidth(), other.getWidth());
+            assertEquals(glyph.getHeight(), other.getHeight());
+            assertEquals(glyph.getXAdvance(), other.getXAdvance());
+        }
+
+        assertEquals(expected.getImages().size(), actual.getImages().size());
+        for (int i = 0; i < expected.getImages().size(); i++) {
+            Image a = expected.getImage(i);
+            Image b = actual.getImage(i);
+            ByteBuffer bufA = a.getData(0).duplicate();
+            ByteBuffer bufB = b.getData(0).duplicate();
+            bufA.clear();
+            bufB.clear();
+            assertEquals(bufA, bufB, "page " + i + " differs");
+        }
+    }
+
+    /**
+     * The .notdef glyph of this font is empty, it must not be packed as the missing glyph.
+     */
+    @Test void testEmptyMissingGlyph() {
+        for (int parallelism = 1; parallelism <= 2; parallelism++) {
+            try (FtFontGenerator generator = new FtFontGenerator(new File("../font/NotoSansArabic-Regular.ttf"))) {
+                FtFontParameter parameter = new FtFontParameter();
+                parameter.setSize(24);
+                parameter.setCharacters("\0AB");
+                parameter.setParallelism(parallelism);
+                FtBitmapCharacterSet data = generator.generateData(parameter);
+                assertNull(data.missingGlyph);
+                assertNull(data.getCharacter('\0'));
+                for (Glyph glyph : data.getGlyphs()) {
+                    assertNotEquals('\0', glyph.getChar());
+                }
+            }
+        }
+    }
+
+    @Test void testSameAsSerial() {
+        assertSameAtlas(generate(1, 0), generate(4, 0));
+    }
+
+    @Test void testSameAsSerialWithBorder() {
+        assertSameAtlas(generate(1, 2), generate(3, 2));
+    }
+}
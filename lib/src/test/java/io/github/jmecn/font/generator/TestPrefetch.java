@@ -0,0 +1,88 @@
+package io.github.jmecn.font.generator;
+
+import io.github.jmecn.font.FtBitmapCharacterSet;
+import io.github.jmecn.font.Glyph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The glyphs of a text prefetched at once must be the same as the glyphs generated one at a time.
+ *
+ * @author yanmaoyuan
+ */
+class TestPrefetch {
+
+    static final String FONT = "../font/FreeSerif.ttf";
+    static final String TEXT = "AVATAR To Wave";
+
+    private static FtFontParameter newParameter() {
+        FtFontParameter parameter = new FtFontParameter();
+        parameter.setSize(24);
+        parameter.setIncremental(true);
+        parameter.setCharacters("a");
+        return parameter;
+    }
+
+    @Test void testPrefetch() {
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtBitmapCharacterSet one = generator.generateData(newParameter());
+            FtBitmapCharacterSet batch = generator.generateData(newParameter());
+
+            // A V T R o W a v e, 'a' is already generated and the spaces are skipped
+            assertEquals(8, batch.prefetch(TEXT));
+            assertEquals(0, batch.prefetch(TEXT));
+            assertEquals(9, batch.getGlyphs().size());
+
+            for (int i = 0; i < TEXT.length(); i++) {
+                one.getCharacter(TEXT.charAt(i));
+            }
+            assertEquals(one.getGlyphs().size(), batch.getGlyphs().size());
+
+            int pairs = 0;
+            for (Glyph first : one.getGlyphs()) {
+                Glyph other = batch.getCharacter(first.getChar());
+                assertEquals(first.getWidth(), other.getWidth());
+                assertEquals(first.getXAdvance(), other.getXAdvance());
+                for (Glyph second : one.getGlyphs()) {
+                    int expected = first.getKerning(second.getChar());
+                    assertEquals(expected, other.getKerning(second.getChar()), first.getChar() + "" + second.getChar());
+                    if (expected != 0) {
+                        pairs++;
+                    }
+                }
+            }
+            assertTrue(pairs > 0);
+            // getCharacter didn't generate anything
+            assertEquals(9, batch.getGlyphs().size());
+        }
+    }
+
+    @Test void testPrefetchAsync() throws InterruptedException {
+        FtFontParameter parameter = newParameter();
+        parameter.setAsync(true);
+        try (FtFontGenerator generator = new FtFontGenerator(new File(FONT))) {
+            FtBitmapCharacterSet charSet = generator.generateData(parameter);
+            assertEquals(2, charSet.prefetchAsync("AVA"));
+
+            Glyph a = charSet.getCharacter('A');
+            Glyph v = charSet.getCharacter('V');
+            assertTrue(a.isPending());
+            assertTrue(v.isPending());
+
+            long deadline = System.currentTimeMillis() + 10000;
+            while (a.isPending() || v.isPending()) {
+                assertTrue(System.currentTimeMillis() < deadline, "glyphs not rendered in time");
+                Thread.sleep(5);
+                charSet.update();
+            }
+            assertSame(a, charSet.getCharacter('A'));
+            assertTrue(a.getWidth() > 0);
+            assertTrue(charSet.getGlyphs().contains(a));
+            assertTrue(charSet.getGlyphs().contains(v));
+            assertEquals(0, charSet.prefetchAsync("AVA"));
+        }
+    }
+}
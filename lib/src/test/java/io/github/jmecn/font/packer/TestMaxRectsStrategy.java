@@ -0,0 +1,10 @@
+package io.github.jmecn.font.packer;
+
+import io.github.jmecn.font.packer.strategy.MaxRectsStrategy;
+
+public class TestMaxRectsStrategy {
+
+    public static void main(String[] args) {
+        new TestPackStrategy(new MaxRectsStrategy()).run();
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.jmecn.font.packer;
+
+import com.jme3.texture.Image;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import io.github.jmecn.font.packer.strategy.MaxRectsStrategy;
+import io.github.jmecn.font.packer.strategy.SkylineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The strategies must not overlap the rectangles, MaxRects and skyline should use less pages than the guillotine.
+ *
+ * @author yanmaoyuan
+ */
+class TestPackStrategies {
+
+    static final int PAGE_SIZE = 256;
+    static final int PADDING = 1;
+
+    private List<Rectangle> glyphs(long seed, int count) {
+        Random rand = new Random(seed);
+        List<Rectangle> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // latin, CJK and punctuation like glyph sizes
+            switch (rand.nextInt(3)) {
+                case 0:
+                    list.add(new Rectangle(8 + rand.nextInt(8), 20 + rand.nextInt(8)));
+                    break;
+                case 1:
+                    list.add(new Rectangle(20 + rand.nextInt(8), 20 + rand.nextInt(8)));
+                    break;
+                default:
+                    list.add(new Rectangle(4 + rand.nextInt(8), 4 + rand.nextInt(8)));
+                    break;
+            }
+        }
+        return list;
+    }
+
+    private Packer pack(PackStrategy strategy, List<Rectangle> rects) {
+        Packer packer = new Packer(Image.Format.Alpha8, PAGE_SIZE, PAGE_SIZE, PADDING, false, strategy);
+        packer.sort(rects);
+        for (Rectangle rect : rects) {
+            packer.insert(null, rect);
+        }
+        return packer;
+    }
+
+    private void assertNoOverlap(List<Rectangle> rects) {
+        for (int i = 0; i < rects.size(); i++) {
+            Rectangle a = rects.get(i);
+            assertTrue(a.x >= PADDING && a.y >= PADDING, "outside of page: " + a);
+            assertTrue(a.x + a.width <= PAGE_SIZE - PADDING && a.y + a.height <= PAGE_SIZE - PADDING, "outside of page: " + a);
+            for (int j = i + 1; j < rects.size(); j++) {
+                Rectangle b = rects.get(j);
+                if (a.page != b.page) {
+                    continue;
+                }
+                // the padding must be kept between rectangles
+                boolean separated = a.x + a.width + PADDING <= b.x || b.x + b.width + PADDING <= a.x
+                        || a.y + a.height + PADDING <= b.y || b.y + b.height + PADDING <= a.y;
+                assertTrue(separated, a + " overlaps " + b);
+            }
+        }
+    }
+
+    @Test void testNoOverlap() {
+        for (MaxRectsStrategy.Heuristic heuristic : MaxRectsStrategy.Heuristic.values()) {
+            List<Rectangle> rects = glyphs(1, 600);
+            pack(new MaxRectsStrategy(heuristic), rects);
+            assertNoOverlap(rects);
+        }
+    }
+
+    @Test void testSkylineNoOverlap() {
+        List<Rectangle> rects = glyphs(1, 600);
+        pack(new SkylineStrategy(), rects);
+        assertNoOverlap(rects);
+    }
+
+    @Test void testNoOverlapUnsorted() {
+        // incremental glyphs come in any order
+        for (PackStrategy strategy : new PackStrategy[]{new MaxRectsStrategy(), new SkylineStrategy()}) {
+            List<Rectangle> rects = glyphs(2, 600);
+            Packer packer = new Packer(Image.Format.Alpha8, PAGE_SIZE, PAGE_SIZE, PADDING, false, strategy);
+            for (Rectangle rect : rects) {
+                packer.insert(null, rect);
+            }
+            assertNoOverlap(rects);
+        }
+    }
+
+    @Test void testLessPages() {
+        int maxRects = pack(new MaxRectsStrategy(), glyphs(3, 1000)).getPages().size();
+        int skyline = pack(new SkylineStrategy(), glyphs(3, 1000)).getPages().size();
+        int guillotine = pack(new GuillotineStrategy(), glyphs(3, 1000)).getPages().size();
+        assertTrue(maxRects <= guillotine, "MaxRects pages: " + maxRects + ", guillotine pages: " + guillotine);
+        assertTrue(skyline <= guillotine, "skyline pages: " + skyline + ", guillotine pages: " + guillotine);
+    }
+
+    @Test void testFullPage() {
+        for (PackStrategy strategy : new PackStrategy[]{new MaxRectsStrategy(), new SkylineStrategy()}) {
+            Packer packer = new Packer(Image.Format.Alpha8, 64, 64, 0, false, strategy);
+            for (int i = 0; i < 16; i++) {
+                packer.insert(null, new Rectangle(16, 16));
+            }
+            assertEquals(1, packer.getPages().size());
+            packer.insert(null, new Rectangle(1, 1));
+            assertEquals(2, packer.getPages().size());
+        }
+    }
+
+    @Test void testSkylineWaste() {
+        Packer packer = new Packer(Image.Format.Alpha8, 64, 64, 0, false, new SkylineStrategy());
+        Rectangle low = new Rectangle(32, 8);
+        Rectangle high = new Rectangle(32, 32);
+        Rectangle wide = new Rectangle(64, 8);
+        Rectangle small = new Rectangle(16, 16);
+        packer.insert(null, low);
+        packer.insert(null, high);
+        // the wide one can't be placed below y=32, leaving 32x24 of waste at (0, 8)
+        packer.insert(null, wide);
+        assertEquals(32, wide.getY());
+        packer.insert(null, small);
+        assertEquals(0, small.getX());
+        assertEquals(8, small.getY());
+        assertEquals(1, packer.getPages().size());
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.jmecn.font.packer;
+
+import com.jme3.texture.Image;
+import io.github.jmecn.font.exception.FtRuntimeException;
+import io.github.jmecn.font.packer.listener.PageListener;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Page size and memory budget of the packer.
+ *
+ * @author yanmaoyuan
+ */
+class TestPackerBudget {
+
+    @Test void testPageBytes() {
+        Packer packer = new Packer(Image.Format.RGBA8, 64, 32, 0, false, new GuillotineStrategy());
+        assertEquals(64 * 32 * 4, packer.getPageBytes());
+        assertEquals(0, packer.getCommittedBytes());
+
+        packer.insert("a", new Rectangle(10, 10));
+        assertEquals(1, packer.getPages().size());
+        assertEquals(64 * 32 * 4, packer.getPages().get(0).getImage().getData(0).capacity());
+        assertEquals(64 * 32 * 4, packer.getCommittedBytes());
+
+        Packer alpha = new Packer(Image.Format.Alpha8, 64, 32, 0, false, new GuillotineStrategy());
+        assertEquals(64 * 32, alpha.getPageBytes());
+    }
+
+    @Test void testRefuse() {
+        Packer packer = new Packer(Image.Format.RGBA8, 32, 32, 0, false, new GuillotineStrategy());
+        packer.setMaxBytes(packer.getPageBytes());
+        packer.insert("a", new Rectangle(32, 32));
+        assertThrows(FtRuntimeException.class, () -> packer.insert("b", new Rectangle(32, 32)));
+        assertEquals(1, packer.getPages().size());
+        assertEquals(packer.getPageBytes(), packer.getCommittedBytes());
+    }
+
+    @Test void testEvict() {
+        Packer packer = new Packer(Image.Format.RGBA8, 32, 32, 0, false, new GuillotineStrategy());
+        packer.setMaxBytes(packer.getPageBytes());
+        int[] calls = new int[1];
+        packer.addListener(new PageListener() {
+            @Override
+            public void onPageAdded(Packer packer, PackStrategy strategy, Page page) {
+                // nothing to do
+            }
+
+            @Override
+            public boolean onPageLimitReached(Packer packer) {
+                calls[0]++;
+                packer.clearPage(packer.getPages().get(0));
+                return true;
+            }
+        });
+        packer.insert("a", new Rectangle(32, 32));
+        packer.insert("b", new Rectangle(32, 32));
+        assertEquals(1, calls[0]);
+
+        // the page is reused instead of allocating a new one
+        assertEquals(1, packer.getPages().size());
+        assertEquals(packer.getPageBytes() * packer.getPages().size(), packer.getCommittedBytes());
+        assertNull(packer.getRect("a"));
+        assertEquals(0, packer.getPageIndex("b"));
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.jmecn.font.packer;
+
+import com.jme3.texture.Image;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lookup of the packed rectangles by name and by id.
+ *
+ * @author yanmaoyuan
+ */
+class TestPackerIndex {
+
+    @Test void testLookup() {
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        Rectangle a = new Rectangle(32, 32);
+        Rectangle b = new Rectangle(16, 16);
+        Rectangle c = new Rectangle(8, 8);
+        packer.insert("a", a);
+        Page page = packer.insert("b", b);
+        packer.insert(42, c);
+
+        assertSame(a, packer.getRect("a"));
+        assertSame(b, packer.getRect("b"));
+        assertSame(c, packer.getRect(42));
+        assertNull(packer.getRect("c"));
+        assertNull(packer.getRect(7));
+
+        assertEquals(1, packer.getPageIndex("b"));
+        assertSame(page, packer.getPage("b"));
+        assertSame(b, page.get("b"));
+        assertEquals(-1, packer.getPageIndex("c"));
+        assertNull(packer.getPage("c"));
+    }
+
+    @Test void testDuplicate() {
+        Packer packer = new Packer(Image.Format.Alpha8, 32, 32, 0, false, new GuillotineStrategy());
+        packer.insert("a", new Rectangle(4, 4));
+        packer.insert(1, new Rectangle(4, 4));
+        assertThrows(IllegalArgumentException.class, () -> packer.insert("a", new Rectangle(4, 4)));
+        assertThrows(IllegalArgumentException.class, () -> packer.insert(1, new Rectangle(4, 4)));
+
+        // unnamed rectangles are not indexed
+        packer.insert(null, new Rectangle(4, 4));
+        packer.insert(null, new Rectangle(4, 4));
+        assertEquals(1, packer.getPages().size());
+    }
+}
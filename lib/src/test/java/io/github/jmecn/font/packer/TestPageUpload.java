@@ -0,0 +1,123 @@
+package io.github.jmecn.font.packer;
+
+import com.jme3.system.NullRenderer;
+import com.jme3.texture.Image;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import io.github.jmecn.font.packer.strategy.GuillotineStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Only the dirty region of an uploaded page is uploaded again.
+ *
+ * @author yanmaoyuan
+ */
+class TestPageUpload {
+
+    static class RecordRenderer extends NullRenderer {
+        int calls;
+        int x;
+        int y;
+        byte[] pixels;
+        int width;
+        int height;
+
+        @Override
+        public void modifyTexture(Texture tex, Image pixels, int x, int y) {
+            calls++;
+            this.x = x;
+            this.y = y;
+            this.width = pixels.getWidth();
+            this.height = pixels.getHeight();
+            ByteBuffer buf = pixels.getData(0);
+            this.pixels = new byte[buf.remaining()];
+            buf.duplicate().get(this.pixels);
+        }
+    }
+
+    private Image image(int width, int height, int value) {
+        ByteBuffer buf = BufferUtils.createByteBuffer(width * height);
+        for (int i = 0; i < width * height; i++) {
+            buf.put((byte) value);
+        }
+        buf.flip();
+        return new Image(Image.Format.Alpha8, width, height, buf, ColorSpace.Linear);
+    }
+
+    private Packer packer() {
+        Packer packer = new Packer(Image.Format.Alpha8, 64, 64, 0, false, new GuillotineStrategy());
+        packer.addListener((p, strategy, page) -> page.setTexture(new Texture2D(page.getImage())));
+        return packer;
+    }
+
+    @Test void testPartialUpload() {
+        Packer packer = packer();
+        packer.pack(image(4, 4, 1));
+        Page page = packer.getPages().get(0);
+        // the page is uploaded as a whole the first time
+        RecordRenderer renderer = new RecordRenderer();
+        packer.upload(renderer);
+        assertEquals(0, renderer.calls);
+        assertEquals(1, packer.getUploadStats().getFullUploads());
+        assertNull(page.getDirtyRegion());
+
+        // pretend the renderer uploaded it
+        page.getImage().setId(1);
+        page.getImage().clearUpdateNeeded();
+
+        Rectangle rect = packer.pack(image(8, 6, 0xFF));
+        // the glyphs are drawn flipped
+        int y = 64 - rect.y - 6;
+        Rectangle dirty = page.getDirtyRegion();
+        assertEquals(rect.x, dirty.x);
+        assertEquals(y, dirty.y);
+        assertEquals(8, dirty.width);
+        assertEquals(6, dirty.height);
+
+        packer.upload(renderer);
+        assertEquals(1, renderer.calls);
+        assertEquals(rect.x, renderer.x);
+        assertEquals(y, renderer.y);
+        assertEquals(8, renderer.width);
+        assertEquals(6, renderer.height);
+        for (byte b : renderer.pixels) {
+            assertEquals((byte) 0xFF, b);
+        }
+        assertFalse(page.getImage().isUpdateNeeded());
+        assertNull(page.getDirtyRegion());
+
+        UploadStats stats = packer.getUploadStats();
+        assertEquals(1, stats.getPartialUploads());
+        assertEquals(64 * 64 + 8 * 6, stats.getUploadedBytes());
+        assertEquals(64 * 64 - 8 * 6, stats.getSavedBytes());
+
+        // nothing drawn, nothing uploaded
+        packer.upload(renderer);
+        assertEquals(1, renderer.calls);
+    }
+
+    @Test void testLargeRegion() {
+        Packer packer = packer();
+        packer.pack(image(4, 4, 1));
+        Page page = packer.getPages().get(0);
+        page.getImage().setId(1);
+        packer.upload(new RecordRenderer());
+        page.getImage().clearUpdateNeeded();
+
+        // the union of far regions covers most of the page
+        page.addDirtyRegion(0, 0, 4, 4);
+        page.addDirtyRegion(60, 60, 4, 4);
+        RecordRenderer renderer = new RecordRenderer();
+        packer.upload(renderer);
+        assertEquals(0, renderer.calls);
+        assertTrue(page.getImage().isUpdateNeeded());
+        assertEquals(1, packer.getUploadStats().getPartialUploads());
+        assertEquals(1, packer.getUploadStats().getFullUploads());
+    }
+}
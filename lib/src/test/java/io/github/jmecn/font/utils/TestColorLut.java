@@ -0,0 +1,94 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.math.ColorRGBA;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The lookup tables must give the same pixels as the per-pixel conversion.
+ *
+ * @author yanmaoyuan
+ */
+class TestColorLut {
+
+    static final ColorRGBA[] COLORS = {
+            ColorRGBA.White, ColorRGBA.Black, new ColorRGBA(0.8f, 0.3f, 0.1f, 0.7f), new ColorRGBA(0.33f, 1f, 0.5f, 1f)
+    };
+    static final float[] GAMMAS = {1f, 1.8f, 0.6f, 2.2f};
+
+    // the conversion of ImageUtils.ftBitmapToImage before the lookup tables
+    private static int gray(int gray, ColorRGBA color, float gamma) {
+        int red = 0xFF;
+        int green = 0xFF;
+        int blue = 0xFF;
+        int alpha;
+        if (gray != 0 && gray != 0xFF && gamma != 1f) {
+            alpha = (int) (0xFF * Math.pow(gray / 255f, gamma));
+        } else {
+            alpha = gray;
+        }
+        if (color.b >= 0f && color.b < 1f) {
+            blue = (int) (blue * color.b);
+        }
+        if (color.g >= 0f && color.g < 1f) {
+            green = (int) (green * color.g);
+        }
+        if (color.r >= 0f && color.r < 1f) {
+            red = (int) (red * color.r);
+        }
+        if (color.a >= 0f && color.a < 1f) {
+            alpha = (int) (alpha * color.a);
+        }
+        return (red << 24) | (green << 16) | (blue << 8) | alpha;
+    }
+
+    private static int bgra(int blue, int green, int red, int alpha, ColorRGBA color, float gamma) {
+        if (color.b >= 0f && color.b < 1f) {
+            blue = (int) (blue * color.b);
+        }
+        if (color.g >= 0f && color.g < 1f) {
+            green = (int) (green * color.g);
+        }
+        if (color.r >= 0f && color.r < 1f) {
+            red = (int) (0xFF * red * color.r);
+        }
+        if (alpha != 255) {
+            alpha = (int) (0xFF * (float) Math.pow(alpha / 255f, gamma) * color.a);
+        }
+        return (red << 24) | (green << 16) | (blue << 8) | alpha;
+    }
+
+    @Test void testGray() {
+        for (ColorRGBA color : COLORS) {
+            for (float gamma : GAMMAS) {
+                ColorLut lut = ColorLut.get(color, gamma);
+                assertEquals(color.asIntRGBA(), lut.mono());
+                for (int i = 0; i < 256; i++) {
+                    assertEquals(gray(i, color, gamma), lut.gray(i), "gray:" + i + ", color:" + color + ", gamma:" + gamma);
+                }
+            }
+        }
+    }
+
+    @Test void testBgra() {
+        for (ColorRGBA color : COLORS) {
+            for (float gamma : GAMMAS) {
+                ColorLut lut = ColorLut.get(color, gamma);
+                for (int i = 0; i < 256; i++) {
+                    int j = 255 - i;
+                    int k = (i * 7) & 0xFF;
+                    assertEquals(bgra(i, j, k, i, color, gamma), lut.bgra(i, j, k, i));
+                    assertEquals(bgra(k, i, j, j, color, gamma), lut.bgra(k, i, j, j));
+                }
+            }
+        }
+    }
+
+    @Test void testCache() {
+        ColorRGBA color = new ColorRGBA(0.5f, 0.5f, 0.5f, 1f);
+        ColorLut lut = ColorLut.get(color, 1.8f);
+        assertSame(lut, ColorLut.get(new ColorRGBA(color), 1.8f));
+        assertNotSame(lut, ColorLut.get(color, 1.7f));
+    }
+}
@@ -0,0 +1,79 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.texture.Image;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The raw buffer kernels of {@link ImageUtils#drawImage} must give the same pixels as the {@code ImageRaster} path.
+ *
+ * @author yanmaoyuan
+ */
+class TestDrawImage {
+
+    static Image randomImage(Random random, Image.Format format, int width, int height) {
+        Image image = ImageUtils.newImage(format, width, height);
+        ByteBuffer data = image.getData(0);
+        for (int i = 0; i < data.capacity(); i++) {
+            // plenty of fully transparent and opaque pixels
+            int v = random.nextInt(300);
+            data.put(i, (byte) (v < 256 ? v : (v < 278 ? 0 : 255)));
+        }
+        return image;
+    }
+
+    static Image copy(Image image) {
+        ByteBuffer data = ByteBuffer.allocateDirect(image.getData(0).capacity());
+        ByteBuffer src = image.getData(0).duplicate();
+        src.clear();
+        data.put(src).flip();
+        return new Image(image.getFormat(), image.getWidth(), image.getHeight(), data, image.getColorSpace());
+    }
+
+    static void assertSamePixels(Image expected, Image actual, String message) {
+        ByteBuffer a = expected.getData(0).duplicate();
+        ByteBuffer b = actual.getData(0).duplicate();
+        a.clear();
+        b.clear();
+        assertEquals(a, b, message);
+    }
+
+    private void assertSame(Image.Format dstFormat, Image.Format srcFormat, boolean flipY, int dstX, int dstY) {
+        Random random = new Random(dstX * 31L + dstY);
+        Image expected = randomImage(random, dstFormat, 40, 30);
+        Image actual = copy(expected);
+        Image source = randomImage(random, srcFormat, 17, 13);
+
+        ImageUtils.drawImageRaster(expected, source, 2, 1, 14, 11, dstX, dstY, flipY);
+        ImageUtils.drawImage(actual, source, 2, 1, 14, 11, dstX, dstY, flipY);
+        assertSamePixels(expected, actual, dstFormat + " <- " + srcFormat + ", flipY:" + flipY + ", x:" + dstX + ", y:" + dstY);
+    }
+
+    @Test void testSameAsRaster() {
+        int[] offsets = {-5, 0, 3, 35};
+        for (boolean flipY : new boolean[]{false, true}) {
+            for (int x : offsets) {
+                for (int y : offsets) {
+                    assertSame(Image.Format.RGBA8, Image.Format.RGBA8, flipY, x, y);
+                    assertSame(Image.Format.Alpha8, Image.Format.RGBA8, flipY, x, y);
+                    assertSame(Image.Format.Alpha8, Image.Format.Alpha8, flipY, x, y);
+                }
+            }
+        }
+    }
+
+    @Test void testDrawOnItself() {
+        Random random = new Random(7);
+        Image expected = randomImage(random, Image.Format.RGBA8, 20, 20);
+        Image actual = copy(expected);
+        for (int i = 0; i < 3; i++) {
+            ImageUtils.drawImageRaster(expected, expected, 0, 0, 20, 20, 0, 0, false);
+            ImageUtils.drawImage(actual, actual, 0, 0, 20, 20, 0, 0, false);
+        }
+        assertSamePixels(expected, actual, "draw on itself");
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.texture.Image;
+
+import java.util.Random;
+
+/**
+ * Compare the raw buffer kernels of {@link ImageUtils#drawImage} with the {@code ImageRaster} path.
+ *
+ * @author yanmaoyuan
+ */
+public class TestDrawImageBenchmark {
+
+    static final int ROUNDS = 5;
+    static final int GLYPHS = 5000;
+
+    interface Draw {
+        void draw(Image destination, Image source, int x, int y);
+    }
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        Image rgbaPage = ImageUtils.newImage(Image.Format.RGBA8, 1024, 1024);
+        Image alphaPage = ImageUtils.newImage(Image.Format.Alpha8, 1024, 1024);
+        // a glyph of 32px
+        Image glyph = TestDrawImage.randomImage(random, Image.Format.RGBA8, 32, 32);
+
+        for (int i = 0; i < ROUNDS; i++) {
+            run("raster RGBA8", rgbaPage, glyph, (d, s, x, y) -> ImageUtils.drawImageRaster(d, s, 0, 0, 32, 32, x, y, true));
+            run("buffer RGBA8", rgbaPage, glyph, (d, s, x, y) -> ImageUtils.drawImage(d, s, 0, 0, 32, 32, x, y, true));
+            run("raster Alpha8", alphaPage, glyph, (d, s, x, y) -> ImageUtils.drawImageRaster(d, s, 0, 0, 32, 32, x, y, true));
+            run("buffer Alpha8", alphaPage, glyph, (d, s, x, y) -> ImageUtils.drawImage(d, s, 0, 0, 32, 32, x, y, true));
+        }
+    }
+
+    static void run(String name, Image page, Image glyph, Draw draw) {
+        long start = System.nanoTime();
+        for (int i = 0; i < GLYPHS; i++) {
+            draw.draw(page, glyph, (i * 32) % 1024, (i / 32 * 32) % 1024);
+        }
+        long time = System.nanoTime() - start;
+        System.out.printf("%-14s %6.2f ms, %6.2f us/glyph%n", name, time / 1e6, time / 1e3 / GLYPHS);
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.jmecn.font.utils;
+
+import com.jme3.texture.Image;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Updating the mip maps of a region must give the same levels as generating all of them.
+ *
+ * @author yanmaoyuan
+ */
+class TestMipMapUtils {
+
+    private Image random(Image.Format format, int width, int height, Random random) {
+        int bpp = format.getBitsPerPixel() / 8;
+        ByteBuffer buf = BufferUtils.createByteBuffer(width * height * bpp);
+        for (int i = 0; i < buf.capacity(); i++) {
+            buf.put(i, (byte) random.nextInt(256));
+        }
+        return new Image(format, width, height, buf, ColorSpace.Linear);
+    }
+
+    private void fill(Image image, int x, int y, int width, int height, Random random) {
+        int bpp = image.getFormat().getBitsPerPixel() / 8;
+        ByteBuffer buf = image.getData(0);
+        for (int row = y; row < y + height; row++) {
+            for (int i = 0; i < width * bpp; i++) {
+                buf.put((row * image.getWidth() + x) * bpp + i, (byte) random.nextInt(256));
+            }
+        }
+    }
+
+    private void assertSameData(Image expected, Image actual) {
+        assertArrayEquals(expected.getMipMapSizes(), actual.getMipMapSizes());
+        ByteBuffer a = expected.getData(0).duplicate();
+        ByteBuffer b = actual.getData(0).duplicate();
+        a.clear();
+        b.clear();
+        assertEquals(a, b);
+    }
+
+    @Test void testMipMapSizes() {
+        assertArrayEquals(new int[]{64 * 32 * 4, 32 * 16 * 4, 16 * 8 * 4, 8 * 4 * 4, 4 * 2 * 4, 2 * 4, 4},
+                MipMapUtils.mipMapSizes(64, 32, 4));
+        assertArrayEquals(new int[]{15, 2, 1}, MipMapUtils.mipMapSizes(5, 3, 1));
+    }
+
+    @Test void testBoxFilter() {
+        ByteBuffer buf = BufferUtils.createByteBuffer(4);
+        buf.put(new byte[]{0, 1, 2, 3}).flip();
+        Image image = new Image(Image.Format.Alpha8, 2, 2, buf, ColorSpace.Linear);
+        MipMapUtils.generateMipMaps(image);
+        assertTrue(image.hasMipmaps());
+        assertEquals(5, image.getData(0).capacity());
+        assertEquals(2, image.getData(0).get(4));
+    }
+
+    @Test void testUpdateRegion() {
+        for (Image.Format format : new Image.Format[]{Image.Format.RGBA8, Image.Format.Alpha8, Image.Format.RGB8}) {
+            Random random = new Random(7);
+            Image image = random(format, 53, 37, random);
+            MipMapUtils.generateMipMaps(image);
+
+            fill(image, 11, 5, 9, 13, random);
+            MipMapUtils.updateMipMaps(image, 11, 5, 9, 13);
+
+            Image expected = new Image(format, 53, 37, image.getData(0).duplicate(), ColorSpace.Linear);
+            MipMapUtils.generateMipMaps(expected);
+            assertSameData(expected, image);
+        }
+    }
+}